@@ -0,0 +1,181 @@
+package wit.io.benchmarks;
+
+import wit.io.data.Client;
+import wit.io.data.Rent;
+import wit.io.data.Ski;
+import wit.io.data.SkiType;
+import wit.io.data.enums.RentStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Generates deterministic data sets shaped like a rental season for the benchmarks.
+ * Every ski has a history of week-long rentals: all but the last one are RETURNED (some FAILED),
+ * the last one is ACTIVE, and on every 50th ski the last rental ended yesterday, so it becomes OVERDUE on load.
+ */
+public final class BenchmarkData {
+    /**
+     * The "current" date of every generated data set.
+     */
+    public static final LocalDate TODAY = LocalDate.of(2025, 1, 15);
+
+    /**
+     * Fixed clock pointing at {@link #TODAY}.
+     */
+    public static final Clock CLOCK = Clock.fixed(TODAY.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+
+    private static final String[] FIRST_NAMES = {"Janusz", "Adrian", "Anna", "Maria", "Piotr", "Katarzyna", "Tomasz", "Agnieszka", "Paweł", "Ewa"};
+    private static final String[] LAST_NAMES = {"Nowak", "Kowalski", "Wiśniewski", "Wójcik", "Kowalczyk", "Kamiński", "Lewandowski", "Zieliński", "Szymański", "Woźniak"};
+    private static final String[] WORDS = {"narty", "wiązania", "kijki", "serwis", "smarowanie", "rysa", "stały klient", "rabat", "zniżka", "kask", "buty", "gogle"};
+    private static final String[] BRANDS = {"Atomic", "Rossignol", "Salomon", "Head", "Fischer", "Elan", "Volkl", "Blizzard"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Number of skis used for a data set of given size.
+     * @param size number of rents in the data set
+     * @return number of skis
+     */
+    public static int skiCount(int size) {
+        return Math.max(10, size / 50);
+    }
+
+    /**
+     * Number of clients used for a data set of given size.
+     * @param size number of rents in the data set
+     * @return number of clients
+     */
+    public static int clientCount(int size) {
+        return Math.max(10, size / 10);
+    }
+
+    /**
+     * Generates ski types named type0, type1, ...
+     * @param count number of ski types
+     * @return list of ski types
+     */
+    public static List<SkiType> skiTypes(int count) {
+        List<SkiType> skiTypes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            skiTypes.add(new SkiType("type" + i, words(new Random(i), 3)));
+        }
+        return skiTypes;
+    }
+
+    /**
+     * Generates skis with models named as in {@link #model(int)}.
+     * @param count number of skis
+     * @param skiTypes types assigned to the skis in turn
+     * @return list of skis
+     */
+    public static List<Ski> skis(int count, List<SkiType> skiTypes) {
+        Random random = new Random(1);
+        List<Ski> skis = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            skis.add(new Ski(skiTypes.get(i % skiTypes.size()), BRANDS[i % BRANDS.length], model(i),
+                    "bonds" + (i % 7), 140f + random.nextInt(50)));
+        }
+        return skis;
+    }
+
+    /**
+     * Generates clients with document IDs as in {@link #docId(int)}.
+     * @param count number of clients
+     * @return list of clients
+     */
+    public static List<Client> clients(int count) {
+        Random random = new Random(2);
+        List<Client> clients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            clients.add(new Client(docId(i), FIRST_NAMES[i % FIRST_NAMES.length] + i,
+                    LAST_NAMES[random.nextInt(LAST_NAMES.length)], words(random, 4)));
+        }
+        return clients;
+    }
+
+    /**
+     * Generates a non-overlapping rental history, see the class description.
+     * @param count number of rents
+     * @param skiCount number of skis the rents are spread over
+     * @param clientCount number of clients renting
+     * @return list of rents
+     */
+    public static List<Rent> rents(int count, int skiCount, int clientCount) {
+        Random random = new Random(3);
+        int rentsPerSki = (count + skiCount - 1) / skiCount;
+        List<Rent> rents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int ski = i % skiCount;
+            int slot = i / skiCount;
+            int slotsAfter = rentsPerSki - 1 - slot;
+
+            LocalDate start = TODAY.minusDays(7L * slotsAfter + 3);
+            LocalDate end = start.plusDays(5);
+            RentStatus status = slot % 100 == 99 ? RentStatus.FAILED : RentStatus.RETURNED;
+            if (slotsAfter == 0) {
+                status = RentStatus.ACTIVE;
+                if (ski % 50 == 0) {
+                    end = TODAY.minusDays(1);
+                }
+            }
+            rents.add(new Rent(new UUID(random.nextLong(), random.nextLong()), start, end, null,
+                    model(ski), docId(random.nextInt(clientCount)), words(random, 2), status));
+        }
+        return rents;
+    }
+
+    /**
+     * Gets the model of the i-th generated ski.
+     * @param i index of the ski
+     * @return ski model
+     */
+    public static String model(int i) {
+        return "model" + i;
+    }
+
+    /**
+     * Gets the document ID of the i-th generated client.
+     * @param i index of the client
+     * @return document ID
+     */
+    public static String docId(int i) {
+        return String.format("%08d", i);
+    }
+
+    private static String words(Random random, int count) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (int i = 0; i < count; i++) {
+            joiner.add(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * Creates an empty temporary directory for the data files of a benchmark.
+     * @return path of the directory
+     * @throws IOException if the directory cannot be created
+     */
+    public static Path createDirectory() throws IOException {
+        return Files.createTempDirectory("narty-benchmark");
+    }
+
+    /**
+     * Removes a directory created by {@link #createDirectory()} with all its files.
+     * @param directory directory to remove
+     * @throws IOException if a file cannot be removed
+     */
+    public static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
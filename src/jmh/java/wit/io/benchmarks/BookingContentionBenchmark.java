@@ -0,0 +1,77 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import wit.io.data.Rent;
+import wit.io.data.enums.RentStatus;
+import wit.io.exceptions.SkiAppException;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of bookings made by several threads at once, either all on the same ski
+ * or each on its own ski. Bookings are checked for overlaps under the read lock of the RentManager and the check
+ * is repeated under the write lock only if a booking of the same ski was made in between, so bookings of the same ski
+ * are expected to repeat the check more often than bookings of different skis.
+ * Every thread books its own period, so no booking overlaps and every invocation adds a rent and removes it again.
+ * With {@code writeBehind} the changes are saved on the write-behind thread, which leaves only the validation
+ * and the locking in the measured time, otherwise the changes are appended to the journal by the booking threads,
+ * several changes queued while the previous append was forced to the disk at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class BookingContentionBenchmark {
+
+    @Param({"true", "false"})
+    public boolean sameSki;
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    @Setup(Level.Trial)
+    public void setUp(DataSet data) {
+        data.rentManager.enableJournal(Integer.MAX_VALUE);
+        if (writeBehind) {
+            data.rentManager.enableWriteBehind();
+        }
+    }
+
+    /**
+     * Saves the changes of the iteration before the next one, and before the data directory is removed.
+     */
+    @TearDown(Level.Iteration)
+    public void tearDown(DataSet data) {
+        if (writeBehind) {
+            data.rentManager.flush().join();
+        }
+    }
+
+    /**
+     * Ski and period booked by one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Booking {
+        public String model;
+        public LocalDate start;
+
+        @Setup(Level.Trial)
+        public void setUp(BookingContentionBenchmark benchmark, ThreadParams thread) {
+            model = BenchmarkData.model(benchmark.sameSki ? 0 : thread.getThreadIndex());
+            start = BenchmarkData.TODAY.plusDays(30 + 10L * thread.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    public void bookAndCancel(DataSet data, Booking booking) throws SkiAppException {
+        Rent rent = new Rent(null, booking.start, booking.start.plusDays(3), null,
+                booking.model, BenchmarkData.docId(0), "", RentStatus.ACTIVE);
+        data.rentManager.addEntity(rent);
+        data.rentManager.removeEntity(rent);
+    }
+}
@@ -0,0 +1,70 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.data.Client;
+import wit.io.data.Rent;
+import wit.io.data.Ski;
+import wit.io.data.SkiType;
+import wit.io.exceptions.SkiAppException;
+import wit.io.managers.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Benchmark state holding all four managers loaded with a generated data set of {@code size} rents.
+ * Data files are written to a temporary directory, which is removed after the trial.
+ */
+@State(Scope.Benchmark)
+public class DataSet {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    public Path directory;
+    public List<SkiType> skiTypes;
+    public List<Ski> skis;
+    public List<Client> clients;
+    public List<Rent> rents;
+
+    public SkiTypeManager skiTypeManager;
+    public SkiManager skiManager;
+    public ClientManager clientManager;
+    public RentManager rentManager;
+    public ReportManager reportManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SkiAppException {
+        directory = BenchmarkData.createDirectory();
+        skiTypes = BenchmarkData.skiTypes(20);
+        skis = BenchmarkData.skis(BenchmarkData.skiCount(size), skiTypes);
+        clients = BenchmarkData.clients(BenchmarkData.clientCount(size));
+        rents = BenchmarkData.rents(size, skis.size(), clients.size());
+
+        skiTypeManager = new SkiTypeManager(path("SkiType"));
+        skiTypeManager.setEntities(new LinkedHashSet<>(skiTypes));
+        skiManager = new SkiManager(path("Ski"));
+        skiManager.setEntities(new LinkedHashSet<>(skis));
+        clientManager = new ClientManager(path("Client"));
+        clientManager.setEntities(new LinkedHashSet<>(clients));
+        // write the raw history first, so that loading it runs the status reconciliation
+        new RentManager(path("Rent"), BenchmarkData.CLOCK).setEntities(new LinkedHashSet<>(rents));
+        rentManager = new RentManager(path("Rent"), BenchmarkData.CLOCK);
+        reportManager = new ReportManager(rentManager, skiManager);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    /**
+     * Gets the path of a data file in the benchmark directory.
+     * @param name name of the file
+     * @return path of the file
+     */
+    public String path(String name) {
+        return directory.resolve(name).toString();
+    }
+}
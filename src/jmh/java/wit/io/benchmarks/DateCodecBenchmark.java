@@ -0,0 +1,56 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.utils.Const;
+import wit.io.utils.Util;
+
+import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the date conversions of {@link Util} with building a formatter on every call
+ * (the previous implementation) and with a shared pattern-based formatter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateCodecBenchmark {
+    private final DateTimeFormatter sharedFormatter = DateTimeFormatter.ofPattern(Const.DateFormat);
+    private final LocalDate date = LocalDate.of(2025, 2, 14);
+    private final String text = "14-02-2025";
+
+    @Benchmark
+    public String formatNewFormatter() {
+        return DateTimeFormatter.ofPattern(Const.DateFormat).format(date);
+    }
+
+    @Benchmark
+    public String formatSharedFormatter() {
+        return sharedFormatter.format(date);
+    }
+
+    @Benchmark
+    public String formatUtil() {
+        return Util.dateToString(date);
+    }
+
+    @Benchmark
+    public LocalDate parseNewFormatter() {
+        return LocalDate.parse(text, DateTimeFormatter.ofPattern(Const.DateFormat));
+    }
+
+    @Benchmark
+    public LocalDate parseSharedFormatter() {
+        return LocalDate.parse(text, sharedFormatter);
+    }
+
+    @Benchmark
+    public LocalDate parseUtil() throws ParseException {
+        return Util.stringToDate(text);
+    }
+}
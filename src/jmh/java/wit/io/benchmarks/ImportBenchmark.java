@@ -0,0 +1,61 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.data.Ski;
+import wit.io.data.SkiType;
+import wit.io.exceptions.SkiAppException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures importing a catalogue of {@code count} new skis into the ski inventory, one ski at a time
+ * and as a single batch, both with a full data file rewrite and with the journal.
+ * The imported skis are removed again after every invocation, outside of the measured time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+
+    @Param({"false", "true"})
+    public boolean journal;
+
+    @Param({"1000"})
+    public int count;
+
+    private List<Ski> catalogue;
+
+    @Setup(Level.Trial)
+    public void setUp(DataSet data) {
+        if (journal) {
+            data.skiManager.enableJournal(Integer.MAX_VALUE);
+        }
+        catalogue = new ArrayList<>(count);
+        SkiType type = data.skiTypes.get(0);
+        for (int i = 0; i < count; i++) {
+            catalogue.add(new Ski(type, "Imported", "imported" + i, "bonds", 160f));
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void removeImported(DataSet data) throws SkiAppException {
+        data.skiManager.removeAll(catalogue);
+    }
+
+    @Benchmark
+    public void importOneByOne(DataSet data) throws SkiAppException {
+        for (Ski ski : catalogue) {
+            data.skiManager.addEntity(ski);
+        }
+    }
+
+    @Benchmark
+    public void importBatch(DataSet data) throws SkiAppException {
+        data.skiManager.addAll(catalogue);
+    }
+}
@@ -0,0 +1,64 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.data.Client;
+import wit.io.utils.Util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the case-insensitive matching used by the search filters: lowercase copies of both strings
+ * (the previous implementation of {@link Util}), in place matching of {@link Util}, and the folded keys
+ * cached by the entities compared with a query folded once per search.
+ * Run with {@code -prof gc}, every method except the lowercase copies should allocate nothing per comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchingBenchmark {
+    private final Client client = new Client("ABC123456", "Małgorzata", "Kowalska",
+            "Stała klientka, preferuje narty SLALOMOWE, wiązania do regulacji");
+    private final String prefix = "MAŁG";
+    private final String substring = "slalomowe";
+    private final String foldedPrefix = Util.foldCase(prefix);
+    private final String foldedSubstring = Util.foldCase(substring);
+
+    @Setup
+    public void setup() {
+        client.getFoldedFirstName();
+        client.getFoldedDescription();
+    }
+
+    @Benchmark
+    public boolean startsWithLowercaseCopies() {
+        return client.getFirstName().toLowerCase().startsWith(prefix.toLowerCase());
+    }
+
+    @Benchmark
+    public boolean startsWithUtil() {
+        return Util.startsWithString(client.getFirstName(), prefix);
+    }
+
+    @Benchmark
+    public boolean startsWithFoldedKey() {
+        return client.getFoldedFirstName().startsWith(foldedPrefix);
+    }
+
+    @Benchmark
+    public boolean containsLowercaseCopies() {
+        return client.getDescription().toLowerCase().contains(substring.toLowerCase());
+    }
+
+    @Benchmark
+    public boolean containsUtil() {
+        return Util.containsString(client.getDescription(), substring);
+    }
+
+    @Benchmark
+    public boolean containsFoldedKey() {
+        return client.getFoldedDescription().contains(foldedSubstring);
+    }
+}
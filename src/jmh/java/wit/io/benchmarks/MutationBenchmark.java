@@ -0,0 +1,65 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.data.Client;
+import wit.io.data.Rent;
+import wit.io.data.enums.RentStatus;
+import wit.io.exceptions.SkiAppException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single booking and a single client registration, including their persistence,
+ * both with a full data file rewrite and with the journal, and a booking followed by reading the entities,
+ * which gets the snapshot of the entities advanced by the booking.
+ * Every invocation adds an entity and removes it again, so the data set does not grow.
+ * The journal is left enabled after the trial, the data directory is removed with it anyway.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class MutationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean journal;
+
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp(DataSet data) {
+        if (journal) {
+            data.rentManager.enableJournal(Integer.MAX_VALUE);
+            data.clientManager.enableJournal(Integer.MAX_VALUE);
+        }
+    }
+
+    @Benchmark
+    public void addAndRemoveRent(DataSet data) throws SkiAppException {
+        String model = BenchmarkData.model(next++ % data.skis.size());
+        Rent rent = new Rent(null, BenchmarkData.TODAY.plusDays(30), BenchmarkData.TODAY.plusDays(33), null,
+                model, BenchmarkData.docId(0), "", RentStatus.ACTIVE);
+        data.rentManager.addEntity(rent);
+        data.rentManager.removeEntity(rent);
+    }
+
+    @Benchmark
+    public int addRentAndGetEntities(DataSet data) throws SkiAppException {
+        String model = BenchmarkData.model(next++ % data.skis.size());
+        Rent rent = new Rent(null, BenchmarkData.TODAY.plusDays(30), BenchmarkData.TODAY.plusDays(33), null,
+                model, BenchmarkData.docId(0), "", RentStatus.ACTIVE);
+        data.rentManager.addEntity(rent);
+        int size = data.rentManager.getEntities().size();
+        data.rentManager.removeEntity(rent);
+        return size + data.rentManager.getEntities().size();
+    }
+
+    @Benchmark
+    public void addAndRemoveClient(DataSet data) throws SkiAppException {
+        Client client = new Client("new" + next++, "Jan", "Kowalski", "");
+        data.clientManager.addEntity(client);
+        data.clientManager.removeEntity(client);
+    }
+}
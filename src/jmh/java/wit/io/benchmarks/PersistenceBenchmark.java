@@ -0,0 +1,45 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.exceptions.SkiAppException;
+import wit.io.managers.ClientManager;
+import wit.io.managers.RentManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and saving whole data files.
+ * Loading rents includes the startup status reconciliation and building the rent indexes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PersistenceBenchmark {
+
+    @Benchmark
+    public RentManager loadRents(DataSet data) throws SkiAppException {
+        return new RentManager(data.path("Rent"), BenchmarkData.CLOCK);
+    }
+
+    @Benchmark
+    public RentManager loadRentsMapped(DataSet data) throws SkiAppException {
+        return new RentManager(data.path("Rent"), BenchmarkData.CLOCK, true);
+    }
+
+    @Benchmark
+    public void saveRents(DataSet data) throws SkiAppException {
+        data.rentManager.writeToFile();
+    }
+
+    @Benchmark
+    public ClientManager loadClients(DataSet data) throws SkiAppException {
+        return new ClientManager(data.path("Client"));
+    }
+
+    @Benchmark
+    public void saveClients(DataSet data) throws SkiAppException {
+        data.clientManager.writeToFile();
+    }
+}
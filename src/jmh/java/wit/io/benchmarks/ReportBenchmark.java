@@ -0,0 +1,44 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.data.Ski;
+import wit.io.data.SkiType;
+
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the three report queries of the report tab and the availability queries over a period.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ReportBenchmark {
+
+    @Benchmark
+    public LinkedHashSet<Ski> availableSkis(DataSet data) {
+        return data.reportManager.availableSkis(BenchmarkData.TODAY);
+    }
+
+    @Benchmark
+    public LinkedHashSet<Ski> rentedSkis(DataSet data) {
+        return data.reportManager.rentedSkis(BenchmarkData.TODAY);
+    }
+
+    @Benchmark
+    public LinkedHashSet<Ski> overdueSkis(DataSet data) {
+        return data.reportManager.overdueSkis();
+    }
+
+    @Benchmark
+    public LinkedHashSet<Ski> availableSkisNextWeek(DataSet data) {
+        return data.reportManager.availableSkis(BenchmarkData.TODAY.plusDays(7), BenchmarkData.TODAY.plusDays(14));
+    }
+
+    @Benchmark
+    public LinkedHashSet<Ski> availableSkisOfTypeNextWeek(DataSet data) {
+        return data.reportManager.availableSkis(new SkiType("type0", ""), BenchmarkData.TODAY.plusDays(7), BenchmarkData.TODAY.plusDays(14));
+    }
+}
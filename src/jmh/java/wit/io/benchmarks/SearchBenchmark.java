@@ -0,0 +1,67 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.data.Client;
+import wit.io.data.Rent;
+import wit.io.data.Ski;
+import wit.io.data.SkiType;
+import wit.io.data.enums.RentStatus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the search methods of all managers with the filters used by the search panels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SearchBenchmark {
+
+    @Benchmark
+    public List<Rent> rentsBySkiModel(DataSet data) {
+        return data.rentManager.search(BenchmarkData.model(7), null, null, null, null, null, null);
+    }
+
+    @Benchmark
+    public List<Rent> rentsByClient(DataSet data) {
+        return data.rentManager.search(null, BenchmarkData.docId(7), null, null, null, null, null);
+    }
+
+    @Benchmark
+    public List<Rent> rentsByStatus(DataSet data) {
+        return data.rentManager.search(null, null, null, null, null, null, RentStatus.OVERDUE);
+    }
+
+    @Benchmark
+    public List<Rent> rentsStartingThisWeek(DataSet data) {
+        return data.rentManager.search(null, null, BenchmarkData.TODAY.minusDays(7), BenchmarkData.TODAY, null, null, null);
+    }
+
+    @Benchmark
+    public List<Rent> rentsByComment(DataSet data) {
+        return data.rentManager.search(null, null, null, null, null, "rabat", null);
+    }
+
+    @Benchmark
+    public List<Client> clientsByNamePrefix(DataSet data) {
+        return data.clientManager.search(null, "ann", "now", null);
+    }
+
+    @Benchmark
+    public List<Client> clientsByDescription(DataSet data) {
+        return data.clientManager.search(null, null, null, "stały");
+    }
+
+    @Benchmark
+    public List<Ski> skisByBrand(DataSet data) {
+        return data.skiManager.search(null, "ross", null, null, null, null);
+    }
+
+    @Benchmark
+    public List<SkiType> skiTypesByName(DataSet data) {
+        return data.skiTypeManager.search("type1", null);
+    }
+}
@@ -0,0 +1,74 @@
+package wit.io.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.data.Ski;
+import wit.io.data.SkiType;
+import wit.io.exceptions.SkiAppException;
+import wit.io.managers.Transaction;
+import wit.io.managers.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures introducing a new ski type with {@code count} skis and retiring it again,
+ * once as separate operations of the SkiTypeManager and the SkiManager, and once as two transactions.
+ * Both managers use the journal, so every separate operation costs one forced journal append, while every
+ * transaction costs one forced transaction log write and one forced journal append per manager.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+
+    @Param({"10"})
+    public int count;
+
+    private TransactionManager transactionManager;
+    private SkiType type;
+    private List<Ski> skis;
+
+    @Setup(Level.Trial)
+    public void setUp(DataSet data) throws SkiAppException {
+        data.skiTypeManager.enableJournal(Integer.MAX_VALUE);
+        data.skiManager.enableJournal(Integer.MAX_VALUE);
+        transactionManager = new TransactionManager(data.path("Transactions"), data.skiTypeManager,
+                data.skiManager, data.clientManager, data.rentManager);
+        type = new SkiType("Retired", "introduced and retired by the benchmark");
+        skis = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            skis.add(new Ski(type, "Retired", "retired" + i, "bonds", 160f));
+        }
+    }
+
+    @Benchmark
+    public void separateOperations(DataSet data) throws SkiAppException {
+        data.skiTypeManager.addEntity(type);
+        for (Ski ski : skis) {
+            data.skiManager.addEntity(ski);
+        }
+        for (Ski ski : skis) {
+            data.skiManager.removeEntity(ski);
+        }
+        data.skiTypeManager.removeEntity(type);
+    }
+
+    @Benchmark
+    public void transactions(DataSet data) throws SkiAppException {
+        Transaction introduce = transactionManager.begin().add(data.skiTypeManager, type);
+        for (Ski ski : skis) {
+            introduce.add(data.skiManager, ski);
+        }
+        introduce.commit();
+
+        Transaction retire = transactionManager.begin();
+        for (Ski ski : skis) {
+            retire.remove(data.skiManager, ski);
+        }
+        retire.remove(data.skiTypeManager, type).commit();
+    }
+}
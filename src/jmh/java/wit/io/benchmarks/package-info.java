@@ -0,0 +1,7 @@
+/**
+ * This package contains JMH benchmarks of the Narty managers, persistence and reports.
+ * Build them with {@code mvn -P benchmarks package -DskipTests}
+ * and run with {@code java -jar target/benchmarks.jar}, data set sizes can be chosen with {@code -p size=...}.
+ */
+
+package wit.io.benchmarks;
@@ -0,0 +1,61 @@
+package wit.io.managers;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.benchmarks.BenchmarkData;
+import wit.io.data.Rent;
+import wit.io.exceptions.SkiAppException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and writing a rent data file with different I/O buffer sizes.
+ * Unlike {@link wit.io.benchmarks.PersistenceBenchmark} it reads into an existing manager,
+ * so the startup status reconciliation is not included.
+ * Placed in the managers package to reset the protected entity set between reads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class FileIOBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"512", "8192", "65536", "1048576"})
+    public int bufferSize;
+
+    private Path directory;
+    private RentManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SkiAppException {
+        directory = BenchmarkData.createDirectory();
+        String path = directory.resolve("Rent").toString();
+        new RentManager(path, BenchmarkData.CLOCK).setEntities(new LinkedHashSet<>(BenchmarkData.rents(size,
+                BenchmarkData.skiCount(size), BenchmarkData.clientCount(size))));
+        manager = new RentManager(path, BenchmarkData.CLOCK, false, bufferSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Set<Rent> read() throws SkiAppException {
+        manager.dataEntities = new LinkedHashSet<>();
+        manager.readFromFile();
+        return manager.dataEntities;
+    }
+
+    @Benchmark
+    public void write() throws SkiAppException {
+        manager.writeToFile();
+    }
+}
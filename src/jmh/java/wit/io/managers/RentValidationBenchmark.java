@@ -0,0 +1,42 @@
+package wit.io.managers;
+
+import org.openjdk.jmh.annotations.*;
+import wit.io.benchmarks.BenchmarkData;
+import wit.io.benchmarks.DataSet;
+import wit.io.data.Rent;
+import wit.io.data.enums.RentStatus;
+import wit.io.exceptions.SkiAppException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link RentManager#validateRent(Rent)} alone, without persisting anything.
+ * Placed in the managers package, because validateRent is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class RentValidationBenchmark {
+    private Rent[] candidates;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp(DataSet data) {
+        candidates = new Rent[1024];
+        for (int i = 0; i < candidates.length; i++) {
+            String model = BenchmarkData.model(i * 31 % data.skis.size());
+            candidates[i] = new Rent(null, BenchmarkData.TODAY.plusDays(30), BenchmarkData.TODAY.plusDays(33), null,
+                    model, BenchmarkData.docId(0), "", RentStatus.ACTIVE);
+        }
+    }
+
+    @Benchmark
+    public Rent validateFreeBooking(DataSet data) throws SkiAppException {
+        Rent rent = candidates[next++ & (candidates.length - 1)];
+        data.rentManager.validateRent(rent);
+        return rent;
+    }
+}
@@ -36,6 +36,21 @@ public class Client implements Writeable {
      */
     private final String description;
 
+    /**
+     * Case-folded first name, computed on first use, see {@link Util#foldCase(String)}.
+     */
+    private String foldedFirstName;
+
+    /**
+     * Case-folded last name, computed on first use, see {@link Util#foldCase(String)}.
+     */
+    private String foldedLastName;
+
+    /**
+     * Case-folded description, computed on first use, see {@link Util#foldCase(String)}.
+     */
+    private String foldedDescription;
+
     /**
      * constructor for Client
      * @param docId Client's ID card number, required argument, has to be unique
@@ -159,4 +174,43 @@ public class Client implements Writeable {
     public String getDescription() {
         return description;
     }
+
+    /**
+     * Gets the client's first name folded for case-insensitive comparisons, see {@link Util#foldCase(String)}.
+     * @return The case-folded first name string.
+     */
+    public String getFoldedFirstName() {
+        String folded = foldedFirstName;
+        if (folded == null) {
+            folded = Util.foldCase(firstName);
+            foldedFirstName = folded;
+        }
+        return folded;
+    }
+
+    /**
+     * Gets the client's last name folded for case-insensitive comparisons, see {@link Util#foldCase(String)}.
+     * @return The case-folded last name string.
+     */
+    public String getFoldedLastName() {
+        String folded = foldedLastName;
+        if (folded == null) {
+            folded = Util.foldCase(lastName);
+            foldedLastName = folded;
+        }
+        return folded;
+    }
+
+    /**
+     * Gets the client's description folded for case-insensitive comparisons, see {@link Util#foldCase(String)}.
+     * @return The case-folded description string.
+     */
+    public String getFoldedDescription() {
+        String folded = foldedDescription;
+        if (folded == null) {
+            folded = Util.foldCase(description);
+            foldedDescription = folded;
+        }
+        return folded;
+    }
 }
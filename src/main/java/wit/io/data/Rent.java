@@ -100,36 +100,77 @@ public class Rent implements Writeable {
             return false;
         }
 
-        return ((Rent) o).hashCode() == (this.hashCode());
+        return ((Rent) o).rentID.equals(rentID);
     }
 
     /**
      * Writes the rent's data to a binary stream.
      * The data is written in the order: rentID, skiModel, docID, startDate, endDate, updatedEndDate, comment, status
-     * dates are saved in the format specified in Const.java
-     * @see wit.io.utils.Const
+     * rentID is saved as two longs, dates as epoch days and status as its ordinal.
      * @param output The DataOutputStream to write the data to.
-     * @throws IOException if an I/O error occurs.
+     * @throws IOException if an I/O error occurs or a date cannot be saved as an int epoch day.
      */
     public void writeData(DataOutputStream output) throws IOException {
-        output.writeUTF(rentID.toString());
+        output.writeLong(rentID.getMostSignificantBits());
+        output.writeLong(rentID.getLeastSignificantBits());
         output.writeUTF(skiModel);
         output.writeUTF(docID);
-        output.writeUTF(Util.dateToString(startDate));
-        output.writeUTF(Util.dateToString(endDate));
-        output.writeUTF(Util.dateToString(updatedEndDate));
+        output.writeInt(epochDay(startDate));
+        output.writeInt(epochDay(endDate));
+        output.writeInt(epochDay(updatedEndDate));
         output.writeUTF(comment);
-        output.writeUTF(status.name());
+        output.writeByte(status.ordinal());
+    }
+
+    /**
+     * Gets the epoch day of a date as saved by {@link #writeData(DataOutputStream)}.
+     * @param date The date to save.
+     * @return The epoch day of the date.
+     * @throws IOException if the epoch day does not fit in an int.
+     */
+    private static int epochDay(LocalDate date) throws IOException {
+        long epochDay = date.toEpochDay();
+        if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+            throw new IOException("Date out of the supported range: " + date);
+        }
+        return (int) epochDay;
     }
 
     /**
      * Reads rental data from a binary stream and creates a new Rent object.
      * The data is read in the order: rentID, skiModel, docID, startDate, endDate, updatedEndDate, comment, status
+     * @see #writeData(DataOutputStream)
      * @param input The DataInputStream to read the data from.
      * @return A new Rent object populated with the data from the stream.
      * @throws IOException if an I/O error occurs or if the end of the stream is reached before the object is populated.
      */
     public static Rent readData(DataInputStream input) throws IOException {
+        UUID rentID = new UUID(input.readLong(), input.readLong());
+        String skiModel = input.readUTF();
+        String docId = input.readUTF();
+        LocalDate startDate = LocalDate.ofEpochDay(input.readInt());
+        LocalDate endDate = LocalDate.ofEpochDay(input.readInt());
+        LocalDate updatedEndDate = LocalDate.ofEpochDay(input.readInt());
+        String comment = input.readUTF();
+        int statusOrdinal = input.readUnsignedByte();
+        RentStatus[] statuses = RentStatus.values();
+        if (statusOrdinal >= statuses.length) {
+            throw new IOException("Unknown rent status: " + statusOrdinal);
+        }
+
+        return new Rent(rentID, startDate, endDate, updatedEndDate, skiModel, docId, comment, statuses[statusOrdinal]);
+    }
+
+    /**
+     * Reads rental data saved in the legacy (version 1) format and creates a new Rent object.
+     * The data is read in the order: rentID, skiModel, docID, startDate, endDate, updatedEndDate, comment, status,
+     * rentID, dates (in the format specified in Const.java) and status are all saved as strings.
+     * @see wit.io.utils.Const
+     * @param input The DataInputStream to read the data from.
+     * @return A new Rent object populated with the data from the stream.
+     * @throws IOException if an I/O error occurs or if the end of the stream is reached before the object is populated.
+     */
+    public static Rent readLegacyData(DataInputStream input) throws IOException {
         UUID rentID = UUID.fromString(input.readUTF());
         String skiModel = input.readUTF();
         String docId = input.readUTF();
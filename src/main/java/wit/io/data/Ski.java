@@ -20,6 +20,21 @@ public class Ski implements Writeable {
     private final String bonds;
     private final Float length;
 
+    /**
+     * Case-folded brand, computed on first use, see {@link Util#foldCase(String)}.
+     */
+    private String foldedBrand;
+
+    /**
+     * Case-folded model, computed on first use, see {@link Util#foldCase(String)}.
+     */
+    private String foldedModel;
+
+    /**
+     * Case-folded bonds, computed on first use, see {@link Util#foldCase(String)}.
+     */
+    private String foldedBonds;
+
     /**
      * Constructor for Ski.
      * @param type The type of the ski, required argument.
@@ -155,4 +170,43 @@ public class Ski implements Writeable {
     public Float getLength() {
         return length;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the ski's brand folded for case-insensitive comparisons, see {@link Util#foldCase(String)}.
+     * @return The case-folded brand string.
+     */
+    public String getFoldedBrand() {
+        String folded = foldedBrand;
+        if (folded == null) {
+            folded = Util.foldCase(brand);
+            foldedBrand = folded;
+        }
+        return folded;
+    }
+
+    /**
+     * Gets the ski's model folded for case-insensitive comparisons, see {@link Util#foldCase(String)}.
+     * @return The case-folded model string.
+     */
+    public String getFoldedModel() {
+        String folded = foldedModel;
+        if (folded == null) {
+            folded = Util.foldCase(model);
+            foldedModel = folded;
+        }
+        return folded;
+    }
+
+    /**
+     * Gets the ski's bonds folded for case-insensitive comparisons, see {@link Util#foldCase(String)}.
+     * @return The case-folded bonds string.
+     */
+    public String getFoldedBonds() {
+        String folded = foldedBonds;
+        if (folded == null) {
+            folded = Util.foldCase(bonds);
+            foldedBonds = folded;
+        }
+        return folded;
+    }
+}
@@ -16,6 +16,16 @@ public class SkiType implements Writeable {
     private final String name; // PK
     private final String description;
 
+    /**
+     * Case-folded name, computed on first use, see {@link Util#foldCase(String)}.
+     */
+    private String foldedName;
+
+    /**
+     * Case-folded description, computed on first use, see {@link Util#foldCase(String)}.
+     */
+    private String foldedDescription;
+
     /**
      * Constructor for SkiType.
      * @param name The name of the ski type (e.g., "Alpine", "Freeride"), required argument. This acts as the primary key.
@@ -110,4 +120,30 @@ public class SkiType implements Writeable {
     public String getDescription() {
         return description;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the ski type's name folded for case-insensitive comparisons, see {@link Util#foldCase(String)}.
+     * @return The case-folded name string.
+     */
+    public String getFoldedName() {
+        String folded = foldedName;
+        if (folded == null) {
+            folded = Util.foldCase(name);
+            foldedName = folded;
+        }
+        return folded;
+    }
+
+    /**
+     * Gets the ski type's description folded for case-insensitive comparisons, see {@link Util#foldCase(String)}.
+     * @return The case-folded description string.
+     */
+    public String getFoldedDescription() {
+        String folded = foldedDescription;
+        if (folded == null) {
+            folded = Util.foldCase(description);
+            foldedDescription = folded;
+        }
+        return folded;
+    }
+}
@@ -2,6 +2,7 @@ package wit.io.data.enums;
 
 /**
  * Enum class representing all states a rental (Rent) can be in
+ * Rents are saved with the ordinal of their status, new states have to be added at the end.
  */
 public enum RentStatus {
     /**
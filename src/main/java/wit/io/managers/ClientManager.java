@@ -5,10 +5,12 @@ import wit.io.exceptions.ReadingException;
 import wit.io.exceptions.SkiAppException;
 import wit.io.exceptions.WritingException;
 import wit.io.data.Client;
+import wit.io.utils.Const;
 import wit.io.utils.Util;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -17,6 +19,15 @@ import java.util.stream.Stream;
  * This class handles Client class interactions between the user and data.
  */
 public class ClientManager extends Manager<Client> {
+    /**
+     * Indexes of clients by document ID and name used by search.
+     */
+    private final ClientSearchIndex searchIndex = new ClientSearchIndex();
+
+    /**
+     * Trigram index of client descriptions used by search.
+     */
+    private final ContainsIndex<Client> descriptionIndex = new ContainsIndex<>(Client::getFoldedDescription);
 
     /**
      * Constructor for ClientManager.
@@ -24,7 +35,21 @@ public class ClientManager extends Manager<Client> {
      * @throws ReadingException if the path is null.
      */
     public ClientManager(String filePath) throws ReadingException {
-        super(filePath);
+        this(filePath, Const.IOBufferSize);
+    }
+
+    /**
+     * Constructor for ClientManager using given size of the I/O buffers, also for reading the existing data.
+     * @param filePath path to the file where client data is or will be stored, required argument.
+     * @param bufferSize size in bytes of the buffers used when reading and writing the data file, has to be positive
+     * @throws ReadingException if the path is null.
+     */
+    public ClientManager(String filePath, int bufferSize) throws ReadingException {
+        super(filePath, bufferSize);
+        searchIndex.entitiesReset(dataEntities);
+        addListener(searchIndex);
+        descriptionIndex.entitiesReset(dataEntities);
+        addListener(descriptionIndex);
     }
 
     /**
@@ -42,6 +67,8 @@ public class ClientManager extends Manager<Client> {
      * Searches for clients based on the provided criteria.
      * Multiple criteria can be combined to narrow down the search results.
      * If a parameter is {@code null}, it is skipped as a filter.
+     * The document ID and name filters are looked up in an index, clients found by a name prefix
+     * are returned ordered by that name. The description filter is looked up in a trigram index.
      *
      * @param docId The Client's ID number to search for (exact match). Optional.
      * @param firstName The first name of the client to search for (starts with match). Optional.
@@ -50,25 +77,38 @@ public class ClientManager extends Manager<Client> {
      * @return An ArrayList of Client instances that match all specified non-null filters.
      */
     public ArrayList<Client> search(String docId, String firstName, String lastName, String description) {
-        Stream<Client> stream = getEntities().stream();
+        String foldedFirstName = firstName == null ? null : Util.foldCase(firstName);
+        String foldedLastName = lastName == null ? null : Util.foldCase(lastName);
+        String foldedDescription = description == null ? null : Util.foldCase(description);
 
-        if(docId != null) {
-            stream = stream.filter(client -> client.getDocId().equals(docId));
-        }
+        entityLock.readLock().lock();
+        try {
+            Collection<Client> candidates = searchIndex.candidates(docId, foldedFirstName, foldedLastName);
+            if (description != null) {
+                candidates = ContainsIndex.smaller(candidates, descriptionIndex.search(foldedDescription));
+            }
+            Stream<Client> stream = (candidates == null ? getEntities() : candidates).stream();
 
-        if(firstName != null) {
-            stream = stream.filter(client -> Util.startsWithString(client.getFirstName(), firstName));
-        }
+            if(docId != null) {
+                stream = stream.filter(client -> client.getDocId().equals(docId));
+            }
 
-        if(lastName != null) {
-            stream = stream.filter(client -> Util.startsWithString(client.getLastName(), lastName));
-        }
+            if(firstName != null) {
+                stream = stream.filter(client -> client.getFoldedFirstName().startsWith(foldedFirstName));
+            }
 
-        if(description != null) {
-            stream = stream.filter(client -> Util.containsString(client.getDescription(), description));
-        }
+            if(lastName != null) {
+                stream = stream.filter(client -> client.getFoldedLastName().startsWith(foldedLastName));
+            }
 
-        return stream.collect(Collectors.toCollection(ArrayList::new));
+            if(description != null) {
+                stream = stream.filter(client -> client.getFoldedDescription().contains(foldedDescription));
+            }
+
+            return stream.collect(Collectors.toCollection(ArrayList::new));
+        } finally {
+            entityLock.readLock().unlock();
+        }
 
     }
 }
@@ -0,0 +1,141 @@
+package wit.io.managers;
+
+import wit.io.data.Client;
+import wit.io.utils.Util;
+
+import java.util.*;
+
+/**
+ * Indexes of clients by document ID and by case-folded first and last name, used by
+ * {@link ClientManager#search(String, String, String, String)}.
+ * Clients are indexed by the folded names they cache, a prefix lookup is a range of the sorted
+ * folded names, which takes O(log n + k) for k matching clients. The clients of a range are sorted back into the
+ * order they were added in, the order the manager keeps them in, so the index used does not change the result order.
+ */
+class ClientSearchIndex implements ManagerListener<Client> {
+    private final Map<String, Client> clientsByDocId = new HashMap<>();
+    private final TreeMap<String, Set<Client>> clientsByFirstName = new TreeMap<>();
+    private final TreeMap<String, Set<Client>> clientsByLastName = new TreeMap<>();
+
+    /**
+     * Position of every indexed client, by document ID, in the order clients were added.
+     */
+    private final Map<String, Long> positions = new HashMap<>();
+    private long nextPosition;
+
+    @Override
+    public void entityAdded(Client client) {
+        Client previous = clientsByDocId.put(client.getDocId(), client);
+        if (previous != null) {
+            unindex(previous);
+        }
+        positions.put(client.getDocId(), nextPosition++);
+        clientsByFirstName.computeIfAbsent(client.getFoldedFirstName(), name -> new LinkedHashSet<>()).add(client);
+        clientsByLastName.computeIfAbsent(client.getFoldedLastName(), name -> new LinkedHashSet<>()).add(client);
+    }
+
+    @Override
+    public void entityRemoved(Client client) {
+        Client previous = clientsByDocId.remove(client.getDocId());
+        if (previous != null) {
+            unindex(previous);
+            positions.remove(client.getDocId());
+        }
+    }
+
+    @Override
+    public void entitiesReset(Set<Client> clients) {
+        clientsByDocId.clear();
+        clientsByFirstName.clear();
+        clientsByLastName.clear();
+        positions.clear();
+        nextPosition = 0;
+        for (Client client : clients) {
+            entityAdded(client);
+        }
+    }
+
+    /**
+     * Picks the smallest set of clients that can match all given filters.
+     * Null filters are ignored, the other filters still have to be applied to the returned clients.
+     * A name prefix range is collected only while it holds fewer clients than the best candidate set so far.
+     * @param docId searched document ID, may be null
+     * @param firstNamePrefix searched first name prefix, case-folded by {@link Util#foldCase(String)}, may be null
+     * @param lastNamePrefix searched last name prefix, case-folded by {@link Util#foldCase(String)}, may be null
+     * @return clients matching the most selective of the given filters, in the order they were added,
+     * or null if all filters are null
+     */
+    Collection<Client> candidates(String docId, String firstNamePrefix, String lastNamePrefix) {
+        if (docId != null) {
+            Client client = clientsByDocId.get(docId);
+            return client == null ? Collections.emptyList() : List.of(client);
+        }
+
+        Collection<Client> candidates = null;
+        if (firstNamePrefix != null) {
+            candidates = withPrefix(clientsByFirstName, firstNamePrefix, Integer.MAX_VALUE);
+        }
+        if (lastNamePrefix != null) {
+            List<Client> lastNameCandidates = withPrefix(clientsByLastName, lastNamePrefix,
+                    candidates == null ? Integer.MAX_VALUE : candidates.size() - 1);
+            if (lastNameCandidates != null) {
+                candidates = lastNameCandidates;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Collects clients whose folded name starts with the folded prefix.
+     * @param index index of folded names
+     * @param prefix searched folded prefix
+     * @param limit maximal number of clients worth collecting
+     * @return matching clients in the order they were added, or null if there are more than {@code limit} of them
+     */
+    private List<Client> withPrefix(TreeMap<String, Set<Client>> index, String prefix, int limit) {
+        String to = prefixEnd(prefix);
+        SortedMap<String, Set<Client>> range = to == null ? index.tailMap(prefix) : index.subMap(prefix, to);
+
+        List<Client> clients = new ArrayList<>();
+        for (Set<Client> nameClients : range.values()) {
+            if (clients.size() + nameClients.size() > limit) {
+                return null;
+            }
+            clients.addAll(nameClients);
+        }
+        clients.sort(Comparator.comparingLong(client -> positions.get(client.getDocId())));
+        return clients;
+    }
+
+    /**
+     * Gets the smallest string greater than every string starting with given prefix.
+     * @param prefix prefix of the range
+     * @return exclusive upper bound of the prefix range, or null if the range has no upper bound
+     */
+    private static String prefixEnd(String prefix) {
+        int last = prefix.length() - 1;
+        while (last >= 0 && prefix.charAt(last) == Character.MAX_VALUE) {
+            last--;
+        }
+        if (last < 0) {
+            return null;
+        }
+        return prefix.substring(0, last) + (char) (prefix.charAt(last) + 1);
+    }
+
+    private void unindex(Client client) {
+        removeFrom(clientsByFirstName, client.getFoldedFirstName(), client);
+        removeFrom(clientsByLastName, client.getFoldedLastName(), client);
+    }
+
+    private static void removeFrom(Map<String, Set<Client>> index, String key, Client client) {
+        Set<Client> clients = index.get(key);
+        if (clients == null) {
+            return;
+        }
+        clients.remove(client);
+        if (clients.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
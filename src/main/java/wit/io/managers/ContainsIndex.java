@@ -0,0 +1,64 @@
+package wit.io.managers;
+
+import wit.io.utils.TrigramIndex;
+import wit.io.utils.Writeable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keeps a {@link TrigramIndex} over one text attribute of the entities of a {@link Manager} up to date,
+ * used by the managers' search methods for "contains" filters.
+ * @param <T> The type of entities managed by the observed Manager.
+ */
+class ContainsIndex<T extends Writeable> implements ManagerListener<T> {
+    private final TrigramIndex<T> index = new TrigramIndex<>();
+    private final Function<T, String> text;
+
+    /**
+     * Constructor for ContainsIndex.
+     * @param text function getting the indexed text of an entity
+     */
+    ContainsIndex(Function<T, String> text) {
+        this.text = text;
+    }
+
+    @Override
+    public void entityAdded(T entity) {
+        index.put(entity, text.apply(entity));
+    }
+
+    @Override
+    public void entityRemoved(T entity) {
+        index.remove(entity);
+    }
+
+    @Override
+    public void entitiesReset(Set<T> entities) {
+        index.clear();
+        for (T entity : entities) {
+            entityAdded(entity);
+        }
+    }
+
+    /**
+     * Finds all entities whose indexed text contains the query, ignoring case.
+     * @param query searched text
+     * @return matching entities
+     */
+    List<T> search(String query) {
+        return index.search(query);
+    }
+
+    /**
+     * Picks the smaller of two candidate collections.
+     * @param current current candidates, null if there are none yet
+     * @param other other candidates
+     * @return the smaller collection
+     */
+    static <E> Collection<E> smaller(Collection<E> current, Collection<E> other) {
+        return current == null || other.size() < current.size() ? other : current;
+    }
+}
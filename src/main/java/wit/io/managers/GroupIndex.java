@@ -0,0 +1,71 @@
+package wit.io.managers;
+
+import wit.io.utils.Writeable;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Keeps the entities of a {@link Manager} grouped by one of their attributes,
+ * so all entities with a given attribute value can be listed in O(result).
+ * Entities of every group are kept in the order they were added.
+ * @param <K> The type of the grouping attribute.
+ * @param <T> The type of entities managed by the observed Manager.
+ */
+class GroupIndex<K, T extends Writeable> implements ManagerListener<T> {
+    private final Map<K, Set<T>> entitiesByGroup = new HashMap<>();
+
+    /**
+     * Currently indexed version of every entity, used to remove an entity from its group.
+     */
+    private final Map<T, T> indexedEntities = new HashMap<>();
+    private final Function<T, K> group;
+
+    /**
+     * Constructor for GroupIndex.
+     * @param group function getting the grouping attribute of an entity
+     */
+    GroupIndex(Function<T, K> group) {
+        this.group = group;
+    }
+
+    @Override
+    public void entityAdded(T entity) {
+        entityRemoved(entity);
+        indexedEntities.put(entity, entity);
+        entitiesByGroup.computeIfAbsent(group.apply(entity), key -> new LinkedHashSet<>()).add(entity);
+    }
+
+    @Override
+    public void entityRemoved(T entity) {
+        T previous = indexedEntities.remove(entity);
+        if (previous == null) {
+            return;
+        }
+        K key = group.apply(previous);
+        Set<T> entities = entitiesByGroup.get(key);
+        entities.remove(previous);
+        if (entities.isEmpty()) {
+            entitiesByGroup.remove(key);
+        }
+    }
+
+    @Override
+    public void entitiesReset(Set<T> entities) {
+        entitiesByGroup.clear();
+        indexedEntities.clear();
+        for (T entity : entities) {
+            entityAdded(entity);
+        }
+    }
+
+    /**
+     * Gets all entities of given group.
+     * @param key value of the grouping attribute
+     * @return unmodifiable view of the entities of the group, empty if there are none, valid until the next change
+     */
+    Set<T> get(K key) {
+        Set<T> entities = entitiesByGroup.get(key);
+        return entities == null ? Collections.emptySet() : Collections.unmodifiableSet(entities);
+    }
+}
@@ -0,0 +1,54 @@
+package wit.io.managers;
+
+import wit.io.utils.Writeable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keeps a map from the primary key of the entities of a {@link Manager} to the current entity up to date,
+ * so an entity can be looked up by its key in O(1).
+ * @param <K> The type of the key.
+ * @param <T> The type of entities managed by the observed Manager.
+ */
+class KeyIndex<K, T extends Writeable> implements ManagerListener<T> {
+    private final Map<K, T> entitiesByKey = new HashMap<>();
+    private final Function<T, K> key;
+
+    /**
+     * Constructor for KeyIndex.
+     * @param key function getting the key of an entity, equal entities have to have equal keys
+     */
+    KeyIndex(Function<T, K> key) {
+        this.key = key;
+    }
+
+    @Override
+    public void entityAdded(T entity) {
+        entitiesByKey.put(key.apply(entity), entity);
+    }
+
+    @Override
+    public void entityRemoved(T entity) {
+        entitiesByKey.remove(key.apply(entity));
+    }
+
+    @Override
+    public void entitiesReset(Set<T> entities) {
+        entitiesByKey.clear();
+        for (T entity : entities) {
+            entityAdded(entity);
+        }
+    }
+
+    /**
+     * Gets the entity with given key.
+     * @param entityKey searched key
+     * @return the entity, or null if there is none
+     */
+    T get(K entityKey) {
+        return entitiesByKey.get(entityKey);
+    }
+}
@@ -1,20 +1,45 @@
 package wit.io.managers;
 
 import wit.io.exceptions.*;
+import wit.io.persistence.Journal;
+import wit.io.persistence.Mutation;
+import wit.io.utils.Const;
 import wit.io.utils.IOThrowableFunction;
+import wit.io.utils.PersistentOrderedSet;
 import wit.io.utils.Util;
 import wit.io.utils.Writeable;
 
 import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * An abstract generic manager class for handling collections of {@link Writeable} entities.
  * This class provides essential functionalities for reading from and writing to a file,
  * as well as managing a set of entities including adding, removing, and editing them
+ * <p>
+ * Managers are thread-safe. The entities are guarded by a read-write lock ({@link #entityLock}):
+ * every change is validated, applied and announced to the listeners under the write lock, then the lock
+ * is downgraded to a read lock while the change is saved, so changes are saved in the order they were applied
+ * and readers are not blocked by the disk. {@link #getEntities()} returns an immutable snapshot without locking,
+ * which every change advances in O(log n), see {@link PersistentOrderedSet}.
+ * With write-behind enabled ({@link #enableWriteBehind()}) changes are saved on a background thread.
+ * Locks are always taken in the order: {@link #entityLock}, {@link #ioLock}, {@link #stateLock}.
+ * Changes spanning several managers are committed atomically by a {@link TransactionManager}.
  * @param <T> The type of entities managed by this class, which MUST implement {@link Writeable}.
  */
 public abstract class Manager<T extends Writeable> {
@@ -30,6 +55,103 @@ public abstract class Manager<T extends Writeable> {
      */
     protected File file;
 
+    /**
+     * Journal kept next to the data file. When journaling is enabled, every mutation is appended
+     * to it instead of rewriting the whole data file. An existing journal is always replayed on read.
+     */
+    protected Journal<T> journal;
+
+    /**
+     * True if mutations should be appended to the journal instead of rewriting the data file.
+     */
+    private volatile boolean journalEnabled = false;
+
+    /**
+     * Number of journal records after which the journal is compacted into a new snapshot.
+     */
+    private int compactionThreshold = Const.JournalCompactionThreshold;
+
+    /**
+     * Size in bytes of the buffers used when reading and writing the data file.
+     */
+    private int bufferSize = Const.IOBufferSize;
+
+    /**
+     * Guards the managed entities and everything derived from them (listeners' indexes, subclass state).
+     * Subclasses changing the entities take the write lock, apply their mutations and release the lock with
+     * {@link #persistAndUnlock(List)}, subclasses reading indexes hold the read lock.
+     */
+    protected final ReentrantReadWriteLock entityLock = new ReentrantReadWriteLock();
+
+    /**
+     * Immutable snapshot of the entities returned by {@link #getEntities()}, null if it has to be taken again.
+     * A {@link PersistentOrderedSet} snapshot is advanced by every applied mutation instead of being taken again.
+     */
+    private volatile Set<T> entitiesSnapshot;
+
+    /**
+     * Guards the pending write-behind state.
+     */
+    private final Object stateLock = new Object();
+
+    /**
+     * Serializes all writes to the data file and the journal.
+     */
+    private final Object ioLock = new Object();
+
+    /**
+     * Executor running write-behind flushes, null if write-behind is disabled.
+     */
+    private ScheduledExecutorService writeBehindExecutor;
+
+    /**
+     * Mutations applied in memory but not saved yet, in the order they were applied.
+     */
+    private final List<Mutation<T>> pendingMutations = new ArrayList<>();
+
+    /**
+     * True if the pending changes have to be saved as a whole snapshot, because the entities were replaced,
+     * a background write failed or an append to the journal failed. Nothing is appended to the journal
+     * until the snapshot is written, so the journal never misses a change.
+     */
+    private boolean snapshotPending = false;
+
+    /**
+     * Completed once the next scheduled flush has finished, null if no flush is scheduled.
+     */
+    private CompletableFuture<Void> scheduledFlush;
+
+    /**
+     * Mutations applied in memory and waiting to be appended to the journal by the next group append,
+     * in the order they were applied, see {@link #persistAndUnlock(List)}.
+     */
+    private final List<Mutation<T>> queuedMutations = new ArrayList<>();
+
+    /**
+     * Completed once the queued mutations are saved, null if no mutations are queued.
+     */
+    private CompletableFuture<Void> queuedAppend;
+
+    /**
+     * Completed once the most recently scheduled flush has finished.
+     */
+    private CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+
+    /**
+     * Listeners notified after every change of the managed entities.
+     */
+    private final List<ManagerListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Handler told about changes that failed to be saved in the background, null if there is none.
+     */
+    private volatile Consumer<? super WritingException> writeFailureHandler;
+
+    /**
+     * True while this manager holds a part of a transaction it failed to save, see {@link #blockWrites()}.
+     */
+    private volatile boolean writesBlocked = false;
+
     /**
      * Abstract method to be implemented by subclasses for reading data from the file.
      * Subclasses should specify how their data class is read.
@@ -47,14 +169,66 @@ public abstract class Manager<T extends Writeable> {
      * @throws ReadingException If an error occurs during the attempt to read from the file.
      */
     public Manager(String filePath) throws ReadingException{
+        this(filePath, Const.IOBufferSize, true);
+    }
+
+    /**
+     * Constructor for Manager using given size of the I/O buffers, also for reading the existing data.
+     *
+     * @param filePath The path to the file where entities are/will be stored.
+     * @param bufferSize size in bytes of the buffers used when reading and writing the data file, has to be positive
+     * @throws IllegalArgumentException If the {@code filePath} is null or bufferSize is not positive.
+     * @throws ReadingException If an error occurs during the attempt to read from the file.
+     */
+    public Manager(String filePath, int bufferSize) throws ReadingException{
+        this(filePath, bufferSize, true);
+    }
+
+    /**
+     * Constructor for Manager that can leave reading the existing data to the subclass,
+     * for subclasses whose readFromFile depends on their own fields.
+     * Such subclass should call {@link #readExistingData()} once its fields are set.
+     *
+     * @param filePath The path to the file where entities are/will be stored.
+     * @param readData true if the existing data should be read right away.
+     * @throws IllegalArgumentException If the {@code filePath} is null.
+     * @throws ReadingException If an error occurs during the attempt to read from the file.
+     */
+    protected Manager(String filePath, boolean readData) throws ReadingException{
+        this(filePath, Const.IOBufferSize, readData);
+    }
+
+    /**
+     * Constructor for Manager using given size of the I/O buffers, that can leave reading the existing data
+     * to the subclass, see {@link #Manager(String, boolean)}.
+     *
+     * @param filePath The path to the file where entities are/will be stored.
+     * @param bufferSize size in bytes of the buffers used when reading and writing the data file, has to be positive
+     * @param readData true if the existing data should be read right away.
+     * @throws IllegalArgumentException If the {@code filePath} is null or bufferSize is not positive.
+     * @throws ReadingException If an error occurs during the attempt to read from the file.
+     */
+    protected Manager(String filePath, int bufferSize, boolean readData) throws ReadingException{
         if(Util.isAnyArgumentNull(filePath)) {
             throw new IllegalArgumentException("filePath cannot be null");
         }
 
         file = new File(filePath);
+        journal = new Journal<>(new File(filePath + Const.JournalFileSuffix));
         dataEntities = new LinkedHashSet<>();
+        setBufferSize(bufferSize);
+
+        if (readData) {
+            readExistingData();
+        }
+    }
 
-        if(!file.exists()) {
+    /**
+     * Reads the data file and the journal in, if any of them exists.
+     * @throws ReadingException If an error occurs during the attempt to read from the file.
+     */
+    protected void readExistingData() throws ReadingException {
+        if(!file.exists() && !journal.exists()) {
             return;
         }
         readFromFile();
@@ -62,25 +236,613 @@ public abstract class Manager<T extends Writeable> {
 
     /**
      * Writes the current set of data entities to the file.
-     * The number of entities is written first, followed by each entity's data
-     * using its writeData method.
+     * A header (magic number and format version) and the number of entities are written first,
+     * followed by each entity's data using its writeData method and a CRC32 checksum of everything before it.
+     * The snapshot is written to a temporary file, forced to the disk and then renamed over the data file,
+     * so a crash during the write leaves the previous snapshot intact.
+     * The written snapshot contains every journaled mutation, so the journal is cleared afterwards.
      * @throws WritingException If an I/O error occurs during the writing process.
      */
     public void writeToFile() throws WritingException {
-        try (DataOutputStream output =
-                     new DataOutputStream(new FileOutputStream(file))) {
-            output.writeInt(dataEntities.size());
-            for (T entity : dataEntities) {
-                entity.writeData(output);
+        entityLock.readLock().lock();
+        boolean readLocked = true;
+        try {
+            synchronized (ioLock) {
+                CompletableFuture<Void> appended;
+                synchronized (stateLock) {
+                    // the snapshot contains all pending and queued changes
+                    pendingMutations.clear();
+                    snapshotPending = false;
+                    appended = takeQueuedAppend(new ArrayList<>());
+                }
+                Set<T> snapshot = getEntities();
+                // changes applied from now on are saved after this snapshot, as they wait for ioLock
+                entityLock.readLock().unlock();
+                readLocked = false;
+                try {
+                    writeSnapshot(snapshot);
+                } catch (IOException e) {
+                    synchronized (stateLock) {
+                        // the journal may lack the changes of this snapshot
+                        snapshotPending = true;
+                    }
+                    if (appended != null) {
+                        appended.completeExceptionally(e);
+                    }
+                    throw new WritingException(e);
+                }
+                if (appended != null) {
+                    appended.complete(null);
+                }
+            }
+        } finally {
+            if (readLocked) {
+                entityLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes given entities as a new snapshot of the data file, see {@link #writeToFile()}, and clears the journal.
+     * @param entities entities to write
+     * @throws IOException If an I/O error occurs during the writing process.
+     */
+    private void writeSnapshot(Collection<T> entities) throws IOException {
+        File tempFile = new File(file.getPath() + Const.TempFileSuffix);
+        try {
+            try (FileOutputStream fileOutput = new FileOutputStream(tempFile)) {
+                CheckedOutputStream checkedOutput = new CheckedOutputStream(fileOutput, new CRC32());
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(checkedOutput, bufferSize));
+                output.writeInt(Const.DataFileMagic);
+                output.writeInt(Const.DataFileVersion);
+                output.writeInt(entities.size());
+                for (T entity : entities) {
+                    entity.writeData(output);
+                }
+                output.flush();
+                output.writeInt((int) checkedOutput.getChecksum().getValue());
+                output.flush();
+                fileOutput.getFD().sync();
             }
+            moveOver(tempFile, file);
         } catch (IOException e) {
-            throw new WritingException(e);
+            tempFile.delete();
+            throw e;
+        }
+        journal.clear();
+    }
+
+    /**
+     * Renames a file over another one, atomically if the file system supports it.
+     * @param source file to rename
+     * @param target file to replace
+     * @throws IOException if an I/O error occurs.
+     */
+    private static void moveOver(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
+    }
 
+    /**
+     * Switches the manager to journaled persistence. From now on every mutation is appended
+     * to the journal file, and the data file is rewritten only once the journal
+     * holds {@code compactionThreshold} records.
+     * @param compactionThreshold number of journal records that triggers compaction, has to be positive
+     * @throws IllegalArgumentException if compactionThreshold is not positive.
+     */
+    public void enableJournal(int compactionThreshold) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("compactionThreshold has to be positive.");
+        }
+        this.compactionThreshold = compactionThreshold;
+        journalEnabled = true;
+    }
+
+    /**
+     * Switches the manager back to rewriting the data file on every mutation.
+     * Pending journal records are compacted into a snapshot first.
+     * @throws WritingException If an error occurs while writing the snapshot.
+     */
+    public void disableJournal() throws WritingException {
+        journalEnabled = false;
+        compact();
+    }
+
+    /**
+     * Checks if mutations are currently appended to the journal.
+     * @return true if journaling is enabled, false otherwise
+     */
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * Gets the size of the buffers used when reading and writing the data file and the journal.
+     * @return buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the size of the buffers used when reading and writing the data file and the journal.
+     * Larger buffers mean fewer system calls when whole files are read or written.
+     * The size used to read the existing data is given to the constructor.
+     * @param bufferSize buffer size in bytes, has to be positive
+     * @throws IllegalArgumentException if bufferSize is not positive.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize has to be positive.");
+        }
+        this.bufferSize = bufferSize;
+        journal.setBufferSize(bufferSize);
+    }
+
+    /**
+     * Folds the journal into a new snapshot of the data file and clears the journal.
+     * @throws WritingException If an error occurs while writing the snapshot.
+     */
+    public void compact() throws WritingException {
+        writeToFile();
+    }
+
+    /**
+     * Applies a mutation to the in-memory entities and notifies all listeners about it.
+     * Has to be called while holding the write lock of {@link #entityLock}.
+     * The mutation is not saved, see {@link #persist(List)}.
+     * @param mutation the mutation to apply
+     */
+    protected void apply(Mutation<T> mutation) {
+        mutation.applyTo(dataEntities);
+        entitiesSnapshot = advance(entitiesSnapshot, mutation);
+        for (ManagerListener<T> listener : listeners) {
+            if (mutation.getOldEntity() != null) {
+                listener.entityRemoved(mutation.getOldEntity());
+            }
+            if (mutation.getNewEntity() != null) {
+                listener.entityAdded(mutation.getNewEntity());
+            }
+        }
+    }
+
+    /**
+     * Registers a listener notified after every change of the managed entities.
+     * The listener is not informed about entities that are already present.
+     * @param listener listener to register, required argument
+     * @throws IllegalArgumentException if listener is null.
+     */
+    public void addListener(ManagerListener<T> listener) {
+        if (Util.isAnyArgumentNull(listener)) {
+            throw new IllegalArgumentException("listener cannot be null.");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Registers a listener and hands it the current entities through {@link ManagerListener#entitiesReset(Set)}.
+     * Both happen under the read lock, which excludes every change, so the listener is told about every change
+     * made after the entities it got and about no change made before.
+     * @param listener listener to register, required argument
+     * @throws IllegalArgumentException if listener is null.
+     */
+    public void addListenerAndReset(ManagerListener<T> listener) {
+        if (Util.isAnyArgumentNull(listener)) {
+            throw new IllegalArgumentException("listener cannot be null.");
+        }
+        entityLock.readLock().lock();
+        try {
+            listeners.add(listener);
+            listener.entitiesReset(getEntities());
+        } finally {
+            entityLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Unregisters a previously registered listener.
+     * @param listener listener to unregister
+     */
+    public void removeListener(ManagerListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Applies a mutation to a snapshot of the entities, sharing all unchanged structure with it.
+     * @param snapshot the current snapshot, may be null
+     * @param mutation the applied mutation
+     * @return the next snapshot, or null if the snapshot cannot be advanced and has to be taken again
+     */
+    private static <T extends Writeable> Set<T> advance(Set<T> snapshot, Mutation<T> mutation) {
+        if (!(snapshot instanceof PersistentOrderedSet)) {
+            return null;
+        }
+        PersistentOrderedSet<T> next = (PersistentOrderedSet<T>) snapshot;
+        if (mutation.getOldEntity() != null) {
+            next = next.without(mutation.getOldEntity());
+        }
+        if (mutation.getNewEntity() != null) {
+            next = next.with(mutation.getNewEntity());
+        }
+        return next;
+    }
+
+    /**
+     * Informs all listeners that the whole set of managed entities was replaced.
+     */
+    protected void notifyReset() {
+        entitiesSnapshot = null;
+        for (ManagerListener<T> listener : listeners) {
+            listener.entitiesReset(dataEntities);
+        }
+    }
+
+    /**
+     * Saves mutations that have already been applied to the in-memory entities.
+     * With journaling enabled the mutations are appended to the journal, otherwise the whole data file is rewritten.
+     * @param mutations the applied mutations, in the order they were applied
+     * @throws WritingException If an error occurs while writing to the journal or the data file.
+     */
+    protected void persist(List<Mutation<T>> mutations) throws WritingException {
+        synchronized (stateLock) {
+            if (writeBehindExecutor != null) {
+                pendingMutations.addAll(mutations);
+                scheduleFlush();
+                return;
+            }
+        }
+        CompletableFuture<Void> appended = queueAppend(mutations);
+        if (appended == null) {
+            writeToFile();
+            return;
+        }
+        awaitAppend(appended);
+    }
+
+    /**
+     * Queues applied mutations for the next group append to the journal, see {@link #awaitAppend(CompletableFuture)}.
+     * @param mutations the applied mutations, in the order they were applied
+     * @return future completed once the mutations are saved, null if write-behind is enabled, journaling
+     * is disabled or a snapshot is pending, so the mutations have to be saved by {@link #persist(List)} instead
+     */
+    private CompletableFuture<Void> queueAppend(List<Mutation<T>> mutations) {
+        synchronized (stateLock) {
+            if (writeBehindExecutor != null || !journalEnabled || snapshotPending) {
+                return null;
+            }
+            queuedMutations.addAll(mutations);
+            if (queuedAppend == null) {
+                queuedAppend = new CompletableFuture<>();
+            }
+            return queuedAppend;
+        }
+    }
+
+    /**
+     * Waits until queued mutations are saved. The first waiting thread to get {@link #ioLock} appends all mutations
+     * queued by then to the journal at once, so changes made while the previous append was being forced to the disk
+     * share a single force. Mutations already contained in a snapshot written in between are not appended again.
+     * If an append fails, the changes queued after it are saved by a snapshot instead, and so is every later change
+     * until the snapshot is written, so the journal never misses the failed changes.
+     * @param appended future returned by {@link #queueAppend(List)}
+     * @throws WritingException If an error occurs while writing to the journal or the snapshot.
+     */
+    private void awaitAppend(CompletableFuture<Void> appended) throws WritingException {
+        boolean snapshotNeeded = false;
+        synchronized (ioLock) {
+            List<Mutation<T>> mutations = new ArrayList<>();
+            CompletableFuture<Void> group = null;
+            synchronized (stateLock) {
+                if (snapshotPending) {
+                    snapshotNeeded = !appended.isDone();
+                } else {
+                    group = takeQueuedAppend(mutations);
+                }
+            }
+            if (group != null) {
+                try {
+                    journal.append(mutations);
+                    group.complete(null);
+                } catch (IOException e) {
+                    synchronized (stateLock) {
+                        snapshotPending = true;
+                    }
+                    group.completeExceptionally(e);
+                }
+            }
+        }
+        if (snapshotNeeded) {
+            // the snapshot takes the queued mutations along and completes their future
+            writeToFile();
+        }
+        try {
+            appended.join();
+        } catch (CompletionException e) {
+            throw new WritingException(e.getCause());
+        }
+        if (journal.getRecordCount() >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * Takes all mutations waiting for a group append, so they are saved together with the caller's own write.
+     * Has to be called while holding {@link #ioLock} and {@link #stateLock}.
+     * @param mutations list the queued mutations are added to
+     * @return future to complete once the queued mutations are saved, null if none are queued
+     */
+    private CompletableFuture<Void> takeQueuedAppend(List<Mutation<T>> mutations) {
+        CompletableFuture<Void> appended = queuedAppend;
+        mutations.addAll(queuedMutations);
+        queuedMutations.clear();
+        queuedAppend = null;
+        return appended;
+    }
+
+    /**
+     * Saves mutations applied under the write lock of {@link #entityLock} and releases the lock.
+     * With journaling enabled the mutations are queued and the write lock is released before they are saved,
+     * so the next change is applied while this one is written, and all changes queued by then are appended
+     * to the journal at once, with a single force to the disk. Otherwise the write lock is downgraded
+     * to a read lock while saving, so readers can proceed and the next change is applied only once this one is saved.
+     * Either way the method returns once the mutations are saved.
+     * @param mutations the applied mutations, in the order they were applied
+     * @throws WritingException If an error occurs while writing to the journal or the data file.
+     */
+    protected void persistAndUnlock(List<Mutation<T>> mutations) throws WritingException {
+        CompletableFuture<Void> appended = queueAppend(mutations);
+        if (appended != null) {
+            // queued in the order the changes were applied, the write lock is not needed to save them
+            entityLock.writeLock().unlock();
+            awaitAppend(appended);
+            return;
+        }
+        entityLock.readLock().lock();
+        entityLock.writeLock().unlock();
+        try {
+            persist(mutations);
+        } finally {
+            entityLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Saves all managed entities as a new snapshot and releases the write lock, see {@link #persistAndUnlock(List)}.
+     * @throws WritingException If an error occurs while writing to the file.
+     */
+    private void persistSnapshotAndUnlock() throws WritingException {
+        entityLock.readLock().lock();
+        entityLock.writeLock().unlock();
+        try {
+            persistSnapshot();
+        } finally {
+            entityLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Saves all managed entities as a new snapshot, on the write-behind thread if write-behind is enabled.
+     * Used when the whole set of entities was replaced.
+     * @throws WritingException If an error occurs while writing to the file.
+     */
+    private void persistSnapshot() throws WritingException {
+        synchronized (stateLock) {
+            if (writeBehindExecutor != null) {
+                pendingMutations.clear();
+                snapshotPending = true;
+                scheduleFlush();
+                return;
+            }
+        }
+        writeToFile();
+    }
+
+    /**
+     * Switches the manager to write-behind persistence. From now on changes are saved on a background thread,
+     * so adding, removing and editing entities does not wait for the disk. A burst of changes made within
+     * {@link Const#WriteBehindDelayMillis} is saved at once, changes are always saved in the order they were made.
+     * Use {@link #flush()} to wait until the changes are saved.
+     * @throws IllegalStateException if write-behind is already enabled.
+     */
+    public void enableWriteBehind() {
+        synchronized (stateLock) {
+            if (writeBehindExecutor != null) {
+                throw new IllegalStateException("Write-behind is already enabled.");
+            }
+            writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, getClass().getSimpleName() + "-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Saves all pending changes and switches the manager back to saving every change before returning.
+     * Does nothing if write-behind is not enabled.
+     * @throws WritingException If an error occurs while saving the pending changes.
+     */
+    public void disableWriteBehind() throws WritingException {
+        if (!isWriteBehindEnabled()) {
+            return;
+        }
+        try {
+            flush().join();
+        } catch (CompletionException e) {
+            throw new WritingException(e.getCause());
+        } finally {
+            synchronized (stateLock) {
+                writeBehindExecutor.shutdown();
+                writeBehindExecutor = null;
+            }
+        }
+    }
+
+    /**
+     * Checks if changes are currently saved on a background thread.
+     * @return true if write-behind is enabled, false otherwise
+     */
+    public boolean isWriteBehindEnabled() {
+        synchronized (stateLock) {
+            return writeBehindExecutor != null;
+        }
+    }
+
+    /**
+     * Sets the handler told about changes that failed to be saved in the background, by a write-behind flush
+     * or another background task of the manager, so the failure can be shown to the user.
+     * The handler is called on the background thread.
+     * @param handler handler called with every background failure, null to not report them
+     */
+    public void setWriteFailureHandler(Consumer<? super WritingException> handler) {
+        writeFailureHandler = handler;
+    }
+
+    /**
+     * Passes a change that failed to be saved in the background to the handler set by
+     * {@link #setWriteFailureHandler(Consumer)}, if any.
+     * @param failure the failure
+     */
+    protected void reportWriteFailure(WritingException failure) {
+        Consumer<? super WritingException> handler = writeFailureHandler;
+        if (handler != null) {
+            handler.accept(failure);
+        }
+    }
+
+    /**
+     * Rejects all changes until {@link #unblockWrites()} is called. Called by {@link TransactionManager}
+     * when the manager failed to save its part of a transaction, which stays in the transaction log and is redone
+     * on top of the saved data by the next recovery, so no other change may be saved before it.
+     */
+    void blockWrites() {
+        writesBlocked = true;
+    }
+
+    /**
+     * Accepts changes again, called by {@link TransactionManager} once the manager is saved as a whole
+     * and the transaction log is cleared.
+     */
+    void unblockWrites() {
+        writesBlocked = false;
+    }
+
+    /**
+     * Checks that the manager accepts changes, called under the write lock before anything is changed.
+     * @throws WritingException If the manager holds a transaction it failed to save, see {@link #blockWrites()}.
+     */
+    protected void checkWritable() throws WritingException {
+        if (writesBlocked) {
+            throw new WritingException("Changes cannot be saved until the transaction log is checkpointed.");
+        }
+    }
+
+    /**
+     * Starts saving all pending changes right away.
+     * The returned future completes once every change made before this call is saved,
+     * or completes exceptionally with a {@link WritingException} if saving them failed.
+     * Without write-behind every change is already saved, so an already completed future is returned.
+     * @return future completed once the pending changes are saved
+     */
+    public CompletableFuture<Void> flush() {
+        synchronized (stateLock) {
+            if (writeBehindExecutor == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (snapshotPending || !pendingMutations.isEmpty()) {
+                scheduleFlush();
+            }
+            if (scheduledFlush != null) {
+                writeBehindExecutor.execute(this::runFlush);
+            }
+            return lastFlush;
+        }
+    }
+
+    /**
+     * Schedules a flush on the write-behind thread unless one is already scheduled.
+     * Has to be called while holding {@link #stateLock}.
+     */
+    private void scheduleFlush() {
+        if (scheduledFlush == null) {
+            scheduledFlush = new CompletableFuture<>();
+            lastFlush = scheduledFlush;
+            writeBehindExecutor.schedule(this::runFlush, Const.WriteBehindDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves pending changes on the write-behind thread. The pending mutations are appended to the journal,
+     * or a copy of the entities is written as a snapshot when journaling is disabled or due for compaction.
+     * If saving fails, the next flush writes a whole snapshot.
+     */
+    private void runFlush() {
+        entityLock.readLock().lock();
+        boolean readLocked = true;
+        try {
+            synchronized (ioLock) {
+                CompletableFuture<Void> future;
+                CompletableFuture<Void> appended;
+                List<Mutation<T>> mutations;
+                Set<T> snapshot = null;
+                synchronized (stateLock) {
+                    future = scheduledFlush;
+                    if (future == null) {
+                        // already saved by an earlier flush or writeToFile
+                        return;
+                    }
+                    scheduledFlush = null;
+                    // changes queued before write-behind was enabled were applied before the pending ones
+                    mutations = new ArrayList<>();
+                    appended = takeQueuedAppend(mutations);
+                    mutations.addAll(pendingMutations);
+                    pendingMutations.clear();
+                    if (snapshotPending || (!mutations.isEmpty() && (!journalEnabled
+                            || journal.getRecordCount() + mutations.size() >= compactionThreshold))) {
+                        snapshot = getEntities();
+                        snapshotPending = false;
+                    }
+                }
+                // changes applied from now on are saved by a later flush, which waits for ioLock
+                entityLock.readLock().unlock();
+                readLocked = false;
+
+                try {
+                    if (snapshot != null) {
+                        writeSnapshot(snapshot);
+                    } else if (!mutations.isEmpty()) {
+                        journal.append(mutations);
+                    }
+                    if (appended != null) {
+                        appended.complete(null);
+                    }
+                    future.complete(null);
+                } catch (IOException e) {
+                    synchronized (stateLock) {
+                        snapshotPending = true;
+                    }
+                    if (appended != null) {
+                        appended.completeExceptionally(e);
+                    }
+                    WritingException failure = new WritingException(e);
+                    // reported first, so the failure is known to the handler once flush() completes
+                    reportWriteFailure(failure);
+                    future.completeExceptionally(failure);
+                }
+            }
+        } finally {
+            if (readLocked) {
+                entityLock.readLock().unlock();
+            }
+        }
     }
 
     /**
      * Reads data from the file using a provided function to load in each entity.
+     * Mutations stored in the journal are replayed on top of the loaded data.
      * This method is protected and intended for use by subclasses to implement their
      * specific readFromFile logic.
      * should be run only once per manager, at the start of the program.
@@ -90,19 +852,71 @@ public abstract class Manager<T extends Writeable> {
      * @throws ReadingException If an I/O error occurs during reading from the file.
      */
     protected void readFromFile(IOThrowableFunction<DataInputStream, T> readFunc) throws ReadingException{
-        if(!file.exists()) {
-            return;
-        }
+        readFromFile(readFunc, readFunc);
+    }
+
+    /**
+     * Reads data from the file using provided functions to load in each entity.
+     * Files in the legacy format (version 1, no header) are read with {@code legacyReadFunc}
+     * and migrated by writing them again in the current format, as are version 2 files without a checksum.
+     * The checksum of current files is verified, a damaged file is not loaded.
+     * Mutations stored in the journal are replayed on top of the loaded data.
+     * should be run only once per manager, at the start of the program.
+     *
+     * @param readFunc function reading an entity saved in the current format.
+     * @param legacyReadFunc function reading an entity saved in the legacy format.
+     * @throws ReadingException If an I/O error occurs during reading from the file, the file has an unknown version
+     * or its checksum does not match.
+     */
+    protected void readFromFile(IOThrowableFunction<DataInputStream, T> readFunc,
+                                IOThrowableFunction<DataInputStream, T> legacyReadFunc) throws ReadingException{
+        int version = Const.DataFileVersion;
+        if(file.exists()) {
+            try (FileInputStream fileInput = new FileInputStream(file)) {
+                CheckedInputStream checkedInput =
+                        new CheckedInputStream(new BufferedInputStream(fileInput, bufferSize), new CRC32());
+                DataInputStream input = new DataInputStream(checkedInput);
+                version = Const.LegacyDataFileVersion;
+                int dataLength = input.readInt();
+                // legacy files start directly with the number of entities
+                if (dataLength == Const.DataFileMagic) {
+                    version = input.readInt();
+                    dataLength = input.readInt();
+                }
+                if (version < Const.LegacyDataFileVersion || version > Const.DataFileVersion) {
+                    throw new ReadingException("Unsupported data file version: " + version);
+                }
 
-        try (DataInputStream input =
-                     new DataInputStream(new FileInputStream(file))) {
-            int dataLength = input.readInt();
-            for (int i = 0; i < dataLength; i++) {
-                dataEntities.add(readFunc.apply(input));
+                IOThrowableFunction<DataInputStream, T> entityReadFunc =
+                        version == Const.LegacyDataFileVersion ? legacyReadFunc : readFunc;
+                for (int i = 0; i < dataLength; i++) {
+                    dataEntities.add(entityReadFunc.apply(input));
+                }
+                if (version > Const.UnsummedDataFileVersion) {
+                    int checksum = (int) checkedInput.getChecksum().getValue();
+                    if (input.readInt() != checksum) {
+                        throw new ReadingException("Checksum mismatch in data file: " + file);
+                    }
+                }
+            } catch(IOException e){
+                throw new ReadingException(e);
             }
+        }
+
+        try {
+            journal.replay(dataEntities, readFunc, legacyReadFunc);
         } catch(IOException e){
             throw new ReadingException(e);
         }
+        notifyReset();
+
+        if (version != Const.DataFileVersion || journal.isLegacyFormat()) {
+            try {
+                writeToFile();
+            } catch (WritingException e) {
+                throw new ReadingException(e);
+            }
+        }
     }
 
     /**
@@ -110,8 +924,19 @@ public abstract class Manager<T extends Writeable> {
      * @throws WritingException If an error occurs while writing to the file.
      */
     public void resetEntityData() throws WritingException{
-        dataEntities = new LinkedHashSet<>();
-        writeToFile();
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            dataEntities = new LinkedHashSet<>();
+            notifyReset();
+            applied = true;
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
+            }
+        }
+        persistSnapshotAndUnlock();
     }
 
     /**
@@ -127,12 +952,35 @@ public abstract class Manager<T extends Writeable> {
             throw new IllegalArgumentException("newEntity cannot be null.");
         }
 
-        if (dataEntities.contains(newEntity)) {
-            throw new EntityAlreadyPresentException("Exception occurred adding new newEntity Type." + newEntity.toString());
+        Mutation<T> mutation;
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            newEntity = prepareNewEntity(newEntity);
+            if (dataEntities.contains(newEntity)) {
+                throw new EntityAlreadyPresentException("Exception occurred adding new newEntity Type." + newEntity.toString());
+            }
+            mutation = Mutation.add(newEntity);
+            apply(mutation);
+            applied = true;
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
+            }
         }
+        persistAndUnlock(List.of(mutation));
+    }
 
-        dataEntities.add(newEntity);
-        writeToFile();
+    /**
+     * Validates a new entity and prepares the version of it that is added, called by {@link #addEntity}
+     * under the write lock, so the validation sees the same entities the entity is added to.
+     * @param newEntity The entity to be added.
+     * @return The entity that should be added.
+     * @throws SkiAppException If the entity cannot be added.
+     */
+    protected T prepareNewEntity(T newEntity) throws SkiAppException {
+        return newEntity;
     }
 
     /**
@@ -146,18 +994,29 @@ public abstract class Manager<T extends Writeable> {
         if (Util.isAnyArgumentNull(entity)) {
             throw new IllegalArgumentException("entity cannot be null.");
         }
-        if (!dataEntities.contains(entity)) {
-            throw new EntityNotPresentException("Error removing e.");
-        }
         // TODO: custom equals
-        dataEntities.remove(entity);
-        writeToFile();
+        Mutation<T> mutation = Mutation.remove(entity);
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            if (!dataEntities.contains(entity)) {
+                throw new EntityNotPresentException("Error removing e.");
+            }
+            apply(mutation);
+            applied = true;
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
+            }
+        }
+        persistAndUnlock(List.of(mutation));
     }
 
     /**
-     * Edits an existing entity by replacing it with a new one. This is achieved by
-     * first removing the old entity and then adding the new entity. The changes are
-     * then saved to the file.
+     * Edits an existing entity by replacing it with a new one. The old entity is
+     * removed and the new one is added as a single change, which is then saved to the file.
+     * Nothing is changed if any of the checks fails.
      *
      * @param oldEntity The entity to be replaced.
      * @param newEntity The new entity that will replace the old one.
@@ -172,26 +1031,315 @@ public abstract class Manager<T extends Writeable> {
         if (Util.isAnyArgumentNull(oldEntity, newEntity)) {
             throw new IllegalArgumentException("One or more of given arguments were null.");
         }
-        removeEntity(oldEntity);
-        addEntity(newEntity);
+
+        Mutation<T> mutation = Mutation.replace(oldEntity, newEntity);
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            validateReplacement(oldEntity, newEntity);
+            if (!dataEntities.contains(oldEntity)) {
+                throw new EntityNotPresentException("Error removing e.");
+            }
+            if (!oldEntity.equals(newEntity) && dataEntities.contains(newEntity)) {
+                throw new EntityAlreadyPresentException("Exception occurred adding new newEntity Type." + newEntity.toString());
+            }
+            apply(mutation);
+            applied = true;
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
+            }
+        }
+        persistAndUnlock(List.of(mutation));
     }
 
     /**
-     * Gets the current set of managed enti
+     * Validates the replacement of an entity, called by {@link #editEntity} under the write lock,
+     * so the validation sees the same entities the replacement is applied to.
+     * @param oldEntity The entity to be replaced.
+     * @param newEntity The new entity that will replace the old one.
+     * @throws SkiAppException If the entity cannot be replaced.
+     */
+    protected void validateReplacement(T oldEntity, T newEntity) throws SkiAppException {
+    }
+
+    /**
+     * Adds all given entities as a single batch, see {@link #applyBatch(List)}.
+     * @param newEntities The entities to be added, in the order they should be added.
+     * @throws IllegalArgumentException If newEntities is or contains null.
+     * @throws EntityAlreadyPresentException If any of the entities is already present or given twice.
+     * @throws WritingException If an error occurs while writing the updated data to the file.
+     * @throws SkiAppException If a general application error occurs
+     */
+    public void addAll(Collection<? extends T> newEntities) throws EntityAlreadyPresentException, WritingException, SkiAppException {
+        if (Util.isAnyArgumentNull(newEntities)) {
+            throw new IllegalArgumentException("newEntities cannot be null.");
+        }
+        List<Mutation<T>> mutations = new ArrayList<>(newEntities.size());
+        for (T newEntity : newEntities) {
+            mutations.add(Mutation.add(newEntity));
+        }
+        applyBatch(mutations);
+    }
+
+    /**
+     * Removes all given entities as a single batch, see {@link #applyBatch(List)}.
+     * @param entities The entities to be removed.
+     * @throws IllegalArgumentException If entities is or contains null.
+     * @throws EntityNotPresentException If any of the entities is not present or given twice.
+     * @throws WritingException If an error occurs while writing the updated data to the file.
+     * @throws SkiAppException If a general application error occurs
+     */
+    public void removeAll(Collection<? extends T> entities) throws EntityNotPresentException, WritingException, SkiAppException {
+        if (Util.isAnyArgumentNull(entities)) {
+            throw new IllegalArgumentException("entities cannot be null.");
+        }
+        List<Mutation<T>> mutations = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            mutations.add(Mutation.remove(entity));
+        }
+        applyBatch(mutations);
+    }
+
+    /**
+     * Applies a batch of mutations as a single change: every mutation is checked against the entities
+     * as left by the mutations before it, then all of them are applied and saved at once,
+     * as a single journal append or a single write of the data file.
+     * Entities added by the batch are prepared by {@link #prepareBatchEntity} first, like {@link #addEntity} does.
+     * Nothing is changed if any of the checks fails.
+     * @param mutations The mutations to apply, in order.
+     * @throws IllegalArgumentException If mutations is or contains null.
+     * @throws EntityNotPresentException If an entity removed or replaced by a mutation is not present.
+     * @throws EntityAlreadyPresentException If an entity added by a mutation is already present.
+     * @throws WritingException If an error occurs while writing the updated data to the file.
+     * @throws SkiAppException If the batch is rejected by {@link #validateBatch(List)}.
+     */
+    public void applyBatch(List<Mutation<T>> mutations)
+            throws EntityNotPresentException, EntityAlreadyPresentException, WritingException, SkiAppException {
+        if (Util.isAnyArgumentNull(mutations) || mutations.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("mutations cannot be or contain null.");
+        }
+        if (mutations.isEmpty()) {
+            return;
+        }
+
+        List<Mutation<T>> batch = prepareBatch(mutations);
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            checkBatch(batch);
+            validateBatch(batch);
+            for (Mutation<T> mutation : batch) {
+                apply(mutation);
+            }
+            applied = true;
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
+            }
+        }
+        persistAndUnlock(batch);
+    }
+
+    /**
+     * Replaces every entity added by a batch with the version prepared by {@link #prepareBatchEntity}.
+     * @param mutations The mutations of the batch.
+     * @return The prepared mutations, in the same order.
+     */
+    private List<Mutation<T>> prepareBatch(List<Mutation<T>> mutations) {
+        List<Mutation<T>> prepared = new ArrayList<>(mutations.size());
+        for (Mutation<T> mutation : mutations) {
+            if (mutation.getType() == Mutation.Type.ADD) {
+                prepared.add(Mutation.add(prepareBatchEntity(mutation.getNewEntity())));
+            } else {
+                prepared.add(mutation);
+            }
+        }
+        return List.copyOf(prepared);
+    }
+
+    /**
+     * Prepares the version of an entity added by a batch or a transaction. Unlike {@link #prepareNewEntity},
+     * the entity is not validated here, it is validated by {@link #validateBatch(List)} together with the rest of the batch.
+     * @param newEntity The entity to be added.
+     * @return The entity that should be added.
+     */
+    protected T prepareBatchEntity(T newEntity) {
+        return newEntity;
+    }
+
+    /**
+     * Checks that every entity removed or replaced by a batch is present and every added entity is not,
+     * taking the mutations before it into account, without changing the managed entities.
+     * @param mutations The mutations of the batch.
+     * @throws EntityNotPresentException If an entity removed or replaced by a mutation is not present.
+     * @throws EntityAlreadyPresentException If an entity added by a mutation is already present.
+     */
+    private void checkBatch(List<Mutation<T>> mutations) throws EntityNotPresentException, EntityAlreadyPresentException {
+        Set<T> added = new HashSet<>();
+        Set<T> removed = new HashSet<>();
+        for (Mutation<T> mutation : mutations) {
+            T oldEntity = mutation.getOldEntity();
+            T newEntity = mutation.getNewEntity();
+            if (oldEntity != null) {
+                if (!added.contains(oldEntity) && (removed.contains(oldEntity) || !dataEntities.contains(oldEntity))) {
+                    throw new EntityNotPresentException("Error removing e.");
+                }
+                added.remove(oldEntity);
+                removed.add(oldEntity);
+            }
+            if (newEntity != null) {
+                if (added.contains(newEntity) || (!removed.contains(newEntity) && dataEntities.contains(newEntity))) {
+                    throw new EntityAlreadyPresentException("Exception occurred adding new newEntity Type." + newEntity.toString());
+                }
+                removed.remove(newEntity);
+                added.add(newEntity);
+            }
+        }
+    }
+
+    /**
+     * Validates a batch of mutations, called by {@link #applyBatch(List)} under the write lock
+     * before any of the mutations is applied. Every mutation has to be validated against the entities
+     * as left by the mutations before it.
+     * @param mutations The mutations of the batch.
+     * @throws SkiAppException If the batch cannot be applied.
+     */
+    protected void validateBatch(List<Mutation<T>> mutations) throws SkiAppException {
+    }
+
+    /**
+     * Prepares, checks and validates the part of a transaction changing this manager, like {@link #applyBatch(List)} does.
+     * Called by {@link TransactionManager} while holding the write lock.
+     * @param mutations The mutations of the transaction changing this manager.
+     * @return The prepared mutations, which should be logged and applied instead of the given ones.
+     * @throws SkiAppException If the mutations cannot be applied.
+     */
+    List<Mutation<T>> prepareTransaction(List<Mutation<T>> mutations) throws SkiAppException {
+        checkWritable();
+        List<Mutation<T>> prepared = prepareBatch(mutations);
+        checkBatch(prepared);
+        validateBatch(prepared);
+        return prepared;
+    }
+
+    /**
+     * Redoes the part of a transaction found in the transaction log, unless the manager already saved it.
+     * Called by {@link TransactionManager} while holding the write lock, before the manager is changed by anyone else,
+     * so the managed entities are the saved ones either without the whole part or with it.
+     * The part is taken as saved if it cannot be applied, i.e. an entity it adds is present or an entity it removes
+     * is not. A saved part that can still be applied only replaces entities by equal ones, applying it again
+     * leaves the same entities.
+     * @param mutations The mutations of the transaction changing this manager.
+     * @return true if the part was applied, false if it was already saved.
+     */
+    boolean redoTransaction(List<Mutation<T>> mutations) {
+        try {
+            checkBatch(mutations);
+        } catch (EntityNotPresentException | EntityAlreadyPresentException e) {
+            return false;
+        }
+        applyTransaction(mutations);
+        return true;
+    }
+
+    /**
+     * Applies the part of a committed transaction changing this manager, without saving it.
+     * Called by {@link TransactionManager} while holding the write lock.
+     * @param mutations The mutations of the transaction changing this manager.
+     */
+    void applyTransaction(List<Mutation<T>> mutations) {
+        for (Mutation<T> mutation : mutations) {
+            apply(mutation);
+        }
+    }
+
+    /**
+     * Saves the part of a committed transaction changing this manager and waits until it is saved,
+     * also with write-behind enabled. Called by {@link TransactionManager} while holding the read lock,
+     * so pending write-behind changes are saved on the calling thread, as the write-behind thread may be
+     * waiting for the read lock behind a writer.
+     * @param mutations The applied mutations of the transaction changing this manager.
+     * @throws WritingException If an error occurs while writing to the journal or the data file.
+     */
+    void persistTransaction(List<Mutation<T>> mutations) throws WritingException {
+        CompletableFuture<Void> saved = null;
+        synchronized (stateLock) {
+            if (writeBehindExecutor != null) {
+                pendingMutations.addAll(mutations);
+                scheduleFlush();
+                saved = scheduledFlush;
+            }
+        }
+        if (saved == null) {
+            persist(mutations);
+            return;
+        }
+        runFlush();
+        try {
+            saved.join();
+        } catch (CompletionException e) {
+            throw new WritingException(e.getCause());
+        }
+    }
+
+    /**
+     * Gets an immutable snapshot of the managed entities, in their iteration order.
+     * The snapshot is taken once after the entities are replaced as a whole, every later change
+     * advances it in O(log n), so the current snapshot is always returned without locking or copying.
+     * A snapshot is never changed, it can be iterated while the manager is changed by other threads.
      * @return A Set containing all managed entities.
      */
     public Set<T> getEntities() {
-        return dataEntities;
+        Set<T> snapshot = entitiesSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        entityLock.readLock().lock();
+        try {
+            snapshot = entitiesSnapshot;
+            if (snapshot == null) {
+                snapshot = snapshot(dataEntities);
+                entitiesSnapshot = snapshot;
+            }
+            return snapshot;
+        } finally {
+            entityLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes an immutable copy of the managed entities for {@link #getEntities()},
+     * called while holding the read lock. Only a {@link PersistentOrderedSet} is advanced by later changes,
+     * any other snapshot is taken again after every change.
+     * @param entities The managed entities.
+     * @return An immutable Set with the same entities in the same order.
+     */
+    protected Set<T> snapshot(Set<T> entities) {
+        return PersistentOrderedSet.copyOf(entities);
     }
 
     /**
-     * Sets the managed entities to a new provided set and saves these changes to the file.
+     * Sets the managed entities to a copy of the provided set and saves these changes to the file.
      * @param setDataEntities The new Set of entities to manage.
      * @throws WritingException If an error occurs while writing the new data to the file.
      */
     public void setEntities(Set<T> setDataEntities) throws WritingException {
-        dataEntities = setDataEntities;
-        writeToFile();
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            dataEntities = new LinkedHashSet<>(setDataEntities);
+            notifyReset();
+            applied = true;
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
+            }
+        }
+        persistSnapshotAndUnlock();
     }
 
     /**
@@ -200,6 +1348,6 @@ public abstract class Manager<T extends Writeable> {
      * @return An ArrayList containing all managed entities.
      */
     public ArrayList<T> getEntitiesList() {
-        return new ArrayList<>(dataEntities);
+        return new ArrayList<>(getEntities());
     }
 }
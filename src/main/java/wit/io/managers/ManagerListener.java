@@ -0,0 +1,31 @@
+package wit.io.managers;
+
+import wit.io.utils.Writeable;
+
+import java.util.Set;
+
+/**
+ * Interface for objects that keep derived data (indexes, counters) in sync with a {@link Manager}.
+ * Listeners are notified after every change of the managed entities.
+ * @param <T> The type of entities managed by the observed Manager.
+ */
+public interface ManagerListener<T extends Writeable> {
+    /**
+     * Called after a new entity was added, or after an entity was replaced by a new version.
+     * @param entity the added entity
+     */
+    void entityAdded(T entity);
+
+    /**
+     * Called after an entity was removed, or before its replacement is added.
+     * The passed object is equal to the removed entity, but does not have to be the same instance.
+     * @param entity the removed entity
+     */
+    void entityRemoved(T entity);
+
+    /**
+     * Called after all managed entities were replaced at once, e.g. when data is read from the file or reset.
+     * @param entities the new set of all managed entities
+     */
+    void entitiesReset(Set<T> entities);
+}
@@ -0,0 +1,366 @@
+package wit.io.managers;
+
+import wit.io.data.Rent;
+import wit.io.utils.Const;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Set of rents backed by a memory-mapped rent data file, used by {@link RentManager} in the mapped history mode.
+ * Only ACTIVE and OVERDUE rents of the file are kept on the heap, the remaining (RETURNED and FAILED) records
+ * stay in the mapped file and are decoded every time they are visited, so the heap usage does not grow
+ * with the length of the rental history.
+ * Per record of the file the store keeps its offset and its ID in an open-addressing table, about 44 bytes.
+ * <p>
+ * Rents added after the file was opened, including new versions of replaced rents, are kept on the heap
+ * until the manager is created again. Limitations:
+ * <ul>
+ *     <li>the data file has to be in the current format and smaller than 2 GiB,</li>
+ *     <li>the mapping is released only when the store is garbage collected,</li>
+ *     <li>new snapshots are renamed over the mapped file, which some platforms (Windows) do not allow
+ *     while the file is mapped, the mapped mode should be used on POSIX systems only.</li>
+ * </ul>
+ * Iteration order is the same as of the LinkedHashSet it replaces: records in file order, then added rents.
+ */
+class RentHistoryStore extends AbstractSet<Rent> {
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    /**
+     * Read-only mapping of the whole data file.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Offset of every record in the file, in file order.
+     */
+    private final int[] offsets;
+
+    /**
+     * Records of the file that were removed from the set.
+     */
+    private final BitSet removed;
+
+    /**
+     * Records of the file kept on the heap, by their position in the file.
+     */
+    private final Map<Integer, Rent> hotRents = new HashMap<>();
+
+    /**
+     * Rents added after the file was opened.
+     */
+    private final LinkedHashSet<Rent> addedRents = new LinkedHashSet<>();
+
+    /**
+     * Open-addressing table of record IDs, split into their most and least significant bits.
+     * {@code slotRecords} holds the record position plus one, 0 marks an empty slot.
+     */
+    private final long[] slotMostBits;
+    private final long[] slotLeastBits;
+    private final int[] slotRecords;
+
+    private int size;
+
+    /**
+     * Checks if a data file can be mapped, i.e. it exists and is written in the current format.
+     * @param file data file to check
+     * @return true if the file can be opened with {@link #open(File)}
+     * @throws IOException if an I/O error occurs.
+     */
+    static boolean isMappable(File file) throws IOException {
+        if (!file.exists() || file.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return input.readInt() == Const.DataFileMagic && input.readInt() == Const.DataFileVersion;
+        }
+    }
+
+    /**
+     * Maps a rent data file and indexes its records. The checksum of the file is verified
+     * and every record is decoded once to find its length, ID and status.
+     * @param file data file in the current format
+     * @return store holding the rents of the file
+     * @throws IOException if an I/O error occurs, the file is not in the current format or is damaged.
+     */
+    static RentHistoryStore open(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Data file is too large to be mapped: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer = mapped;
+        }
+        if (buffer.limit() < HEADER_SIZE + Integer.BYTES
+                || buffer.getInt(0) != Const.DataFileMagic || buffer.getInt(Integer.BYTES) != Const.DataFileVersion) {
+            throw new IOException("Not a data file in the current format: " + file);
+        }
+
+        int checksumOffset = buffer.limit() - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(checksumOffset));
+        if (buffer.getInt(checksumOffset) != (int) crc.getValue()) {
+            throw new IOException("Checksum mismatch in data file: " + file);
+        }
+
+        return new RentHistoryStore(buffer, buffer.getInt(2 * Integer.BYTES));
+    }
+
+    private RentHistoryStore(ByteBuffer buffer, int count) throws IOException {
+        this.buffer = buffer;
+        offsets = new int[count];
+        removed = new BitSet(count);
+        int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+        slotMostBits = new long[capacity];
+        slotLeastBits = new long[capacity];
+        slotRecords = new int[capacity];
+
+        ByteBuffer scan = buffer.duplicate().position(HEADER_SIZE);
+        DataInputStream input = new DataInputStream(new ByteBufferInputStream(scan));
+        for (int i = 0; i < count; i++) {
+            offsets[i] = scan.position();
+            Rent rent = Rent.readData(input);
+            insertSlot(rent.getRentID(), i);
+            if (RentIntervalIndex.isIndexed(rent)) {
+                hotRents.put(i, rent);
+            }
+        }
+        size = count;
+    }
+
+    /**
+     * Copy constructor used by {@link #snapshot()}, the mapping and the ID table are shared.
+     * @param store store to copy
+     */
+    private RentHistoryStore(RentHistoryStore store) {
+        buffer = store.buffer;
+        offsets = store.offsets;
+        removed = (BitSet) store.removed.clone();
+        hotRents.putAll(store.hotRents);
+        addedRents.addAll(store.addedRents);
+        slotMostBits = store.slotMostBits;
+        slotLeastBits = store.slotLeastBits;
+        slotRecords = store.slotRecords;
+        size = store.size;
+    }
+
+    /**
+     * Copies the store without decoding its records. The copy shares the read-only mapping and the ID table,
+     * which are never changed, so it costs O(h + n/64) for h rents kept on the heap and n records of the file.
+     * @return independent copy of the store
+     */
+    RentHistoryStore snapshot() {
+        return new RentHistoryStore(this);
+    }
+
+    /**
+     * Gets all rents kept on the heap: ACTIVE and OVERDUE records of the file and all added rents.
+     * @return list of rents kept on the heap
+     */
+    List<Rent> heapRents() {
+        List<Rent> rents = new ArrayList<>(hotRents.values());
+        rents.addAll(addedRents);
+        return rents;
+    }
+
+    /**
+     * Replaces a rent with its new version without changing its position in the iteration order.
+     * @param oldRent rent to replace
+     * @param newRent new version of the rent, has to have the same ID
+     * @throws IllegalArgumentException if the rents have different IDs.
+     */
+    void replaceInPlace(Rent oldRent, Rent newRent) {
+        if (!oldRent.getRentID().equals(newRent.getRentID())) {
+            throw new IllegalArgumentException("Replaced rent has to keep its ID.");
+        }
+        int record = findRecord(oldRent.getRentID());
+        if (record >= 0 && !removed.get(record)) {
+            hotRents.put(record, newRent);
+        } else if (addedRents.contains(oldRent)) {
+            // LinkedHashSet keeps the position of an element that is already present, so remove it first
+            List<Rent> rents = new ArrayList<>(addedRents);
+            rents.set(rents.indexOf(oldRent), newRent);
+            addedRents.clear();
+            addedRents.addAll(rents);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Rent)) {
+            return false;
+        }
+        if (addedRents.contains(o)) {
+            return true;
+        }
+        int record = findRecord(((Rent) o).getRentID());
+        return record >= 0 && !removed.get(record);
+    }
+
+    @Override
+    public boolean add(Rent rent) {
+        if (contains(rent)) {
+            return false;
+        }
+        addedRents.add(rent);
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Rent)) {
+            return false;
+        }
+        if (addedRents.remove(o)) {
+            size--;
+            return true;
+        }
+        int record = findRecord(((Rent) o).getRentID());
+        if (record < 0 || removed.get(record)) {
+            return false;
+        }
+        removeRecord(record);
+        return true;
+    }
+
+    @Override
+    public Iterator<Rent> iterator() {
+        return new Iterator<>() {
+            private int nextRecord = removed.nextClearBit(0);
+            private int lastRecord = -1;
+            private final Iterator<Rent> addedIterator = addedRents.iterator();
+            private boolean lastFromAdded = false;
+
+            @Override
+            public boolean hasNext() {
+                return nextRecord < offsets.length || addedIterator.hasNext();
+            }
+
+            @Override
+            public Rent next() {
+                if (nextRecord < offsets.length) {
+                    lastRecord = nextRecord;
+                    lastFromAdded = false;
+                    nextRecord = removed.nextClearBit(nextRecord + 1);
+                    return record(lastRecord);
+                }
+                Rent rent = addedIterator.next();
+                lastFromAdded = true;
+                return rent;
+            }
+
+            @Override
+            public void remove() {
+                if (lastFromAdded) {
+                    addedIterator.remove();
+                    size--;
+                } else if (lastRecord >= 0 && !removed.get(lastRecord)) {
+                    removeRecord(lastRecord);
+                } else {
+                    throw new IllegalStateException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Gets a record of the file, from the heap if it is kept there, decoded from the mapping otherwise.
+     * @param record position of the record in the file
+     * @return the rent stored in the record
+     */
+    private Rent record(int record) {
+        Rent rent = hotRents.get(record);
+        if (rent != null) {
+            return rent;
+        }
+        try {
+            ByteBuffer view = buffer.duplicate().position(offsets[record]);
+            return Rent.readData(new DataInputStream(new ByteBufferInputStream(view)));
+        } catch (IOException e) {
+            // the file was verified when opened
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void removeRecord(int record) {
+        removed.set(record);
+        hotRents.remove(record);
+        size--;
+    }
+
+    /**
+     * Finds the position of a record with given ID in the file.
+     * @param id ID of the rent
+     * @return position of the record, or -1 if the file has no such record
+     */
+    private int findRecord(UUID id) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+        int mask = slotRecords.length - 1;
+        for (int slot = slotFor(most, least) & mask; slotRecords[slot] != 0; slot = (slot + 1) & mask) {
+            if (slotMostBits[slot] == most && slotLeastBits[slot] == least) {
+                return slotRecords[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void insertSlot(UUID id, int record) {
+        long most = id.getMostSignificantBits();
+        long least = id.getLeastSignificantBits();
+        int mask = slotRecords.length - 1;
+        int slot = slotFor(most, least) & mask;
+        while (slotRecords[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slotMostBits[slot] = most;
+        slotLeastBits[slot] = least;
+        slotRecords[slot] = record + 1;
+    }
+
+    private static int slotFor(long most, long least) {
+        long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32);
+    }
+
+    /**
+     * InputStream reading from a ByteBuffer, advancing its position.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package wit.io.managers;
+
+import wit.io.data.Rent;
+import wit.io.data.enums.RentStatus;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Index of ACTIVE and OVERDUE rents grouped by ski model, used to find overlapping rentals
+ * without scanning every rent.
+ * Rents of one model are kept sorted by start date. Since no indexed rent lasts longer than
+ * the longest span of the model's currently indexed rents, only rents starting within that span before
+ * the queried period have to be checked. The lookup is O(log k + m) for k rents of the model, m of them
+ * starting in that window; indexed rents of one ski do not overlap, so m stays small unless a single rent
+ * is much longer than the others.
+ */
+class RentIntervalIndex implements ManagerListener<Rent> {
+    /**
+     * Sorted rents of every ski model that has at least one ACTIVE or OVERDUE rent.
+     */
+    private final Map<String, ModelIntervals> intervalsByModel = new HashMap<>();
+
+    /**
+     * Currently indexed version of every rent, used to remove a rent by its ID.
+     */
+    private final Map<UUID, Rent> indexedRents = new HashMap<>();
+
+    /**
+     * Last version given to the rents of a ski model, see {@link #version(String)}.
+     */
+    private long lastVersion = 0;
+
+    /**
+     * Checks if a rent blocks its ski for other rentals.
+     * @param rent rent to check
+     * @return true if rent is ACTIVE or OVERDUE
+     */
+    static boolean isIndexed(Rent rent) {
+        return rent.getStatus() == RentStatus.ACTIVE || rent.getStatus() == RentStatus.OVERDUE;
+    }
+
+    @Override
+    public void entityAdded(Rent rent) {
+        if (!isIndexed(rent)) {
+            return;
+        }
+        Rent previous = indexedRents.put(rent.getRentID(), rent);
+        if (previous != null) {
+            ModelIntervals intervals = intervalsByModel.get(previous.getSkiModel());
+            intervals.remove(previous);
+            intervals.version = ++lastVersion;
+        }
+        ModelIntervals intervals = intervalsByModel.computeIfAbsent(rent.getSkiModel(), model -> new ModelIntervals());
+        intervals.add(rent);
+        intervals.version = ++lastVersion;
+    }
+
+    @Override
+    public void entityRemoved(Rent rent) {
+        Rent previous = indexedRents.remove(rent.getRentID());
+        if (previous == null) {
+            return;
+        }
+        ModelIntervals intervals = intervalsByModel.get(previous.getSkiModel());
+        intervals.remove(previous);
+        intervals.version = ++lastVersion;
+        if (intervals.isEmpty()) {
+            intervalsByModel.remove(previous.getSkiModel());
+        }
+    }
+
+    @Override
+    public void entitiesReset(Set<Rent> rents) {
+        intervalsByModel.clear();
+        indexedRents.clear();
+        for (Rent rent : rents) {
+            entityAdded(rent);
+        }
+    }
+
+    /**
+     * Gets the version of the ACTIVE and OVERDUE rents of a ski model, which changes with every change of them.
+     * A model without such rents has version 0, every other version is given only once, so two equal versions
+     * mean the model has the same rents, and an overlap check made between them is still valid.
+     * @param skiModel model of the ski
+     * @return version of the model's rents
+     */
+    long version(String skiModel) {
+        ModelIntervals intervals = intervalsByModel.get(skiModel);
+        return intervals == null ? 0 : intervals.version;
+    }
+
+    /**
+     * Finds an ACTIVE or OVERDUE rent of the same ski model whose period overlaps with the given rent.
+     * The given rent itself (a rent with the same ID) is never reported.
+     * @param rent rent to check
+     * @return one of the overlapping rents, or null if there are none
+     */
+    Rent findOverlapping(Rent rent) {
+        return findOverlapping(rent.getSkiModel(), rent.getStartDate(), rent.getUpdatedEndDate(), rent);
+    }
+
+    /**
+     * Finds an ACTIVE or OVERDUE rent of given ski model whose period overlaps with the given period.
+     * Both period ends are inclusive, just like in {@link RentManager#rentDatesOverlap(Rent, Rent)}.
+     * @param skiModel model of the ski
+     * @param from first day of the period
+     * @param to last day of the period
+     * @param excluded rent that should not be reported, may be null
+     * @return one of the overlapping rents, or null if there are none
+     */
+    Rent findOverlapping(String skiModel, LocalDate from, LocalDate to, Rent excluded) {
+        return findOverlapping(skiModel, from, to, excluded == null ? rent -> false : excluded::equals);
+    }
+
+    /**
+     * Finds an ACTIVE or OVERDUE rent of given ski model whose period overlaps with the given period,
+     * skipping rents accepted by {@code excluded}.
+     * @param skiModel model of the ski
+     * @param from first day of the period
+     * @param to last day of the period
+     * @param excluded predicate accepting the rents that should not be reported
+     * @return one of the overlapping rents, or null if there are none
+     */
+    Rent findOverlapping(String skiModel, LocalDate from, LocalDate to, Predicate<Rent> excluded) {
+        ModelIntervals intervals = intervalsByModel.get(skiModel);
+        if (intervals == null) {
+            return null;
+        }
+        return intervals.findOverlapping(from, to, excluded);
+    }
+
+    /**
+     * Rents of a single ski model sorted by start date.
+     */
+    private static class ModelIntervals {
+        private final TreeMap<LocalDate, List<Rent>> rentsByStart = new TreeMap<>();
+
+        /**
+         * Number of indexed rents with every period length (in days), the last key is the longest period.
+         */
+        private final TreeMap<Long, Integer> spanCounts = new TreeMap<>();
+
+        /**
+         * Version of the rents, see {@link RentIntervalIndex#version(String)}.
+         */
+        private long version;
+
+        void add(Rent rent) {
+            rentsByStart.computeIfAbsent(rent.getStartDate(), date -> new ArrayList<>(1)).add(rent);
+            spanCounts.merge(span(rent), 1, Integer::sum);
+        }
+
+        void remove(Rent rent) {
+            List<Rent> rents = rentsByStart.get(rent.getStartDate());
+            if (rents == null) {
+                return;
+            }
+            if (!rents.remove(rent)) {
+                return;
+            }
+            if (rents.isEmpty()) {
+                rentsByStart.remove(rent.getStartDate());
+            }
+            // the indexed version of the rent is removed, so its span is the one counted by add
+            spanCounts.computeIfPresent(span(rent), (span, count) -> count == 1 ? null : count - 1);
+        }
+
+        private static long span(Rent rent) {
+            return ChronoUnit.DAYS.between(rent.getStartDate(), rent.getUpdatedEndDate());
+        }
+
+        boolean isEmpty() {
+            return rentsByStart.isEmpty();
+        }
+
+        Rent findOverlapping(LocalDate from, LocalDate to, Predicate<Rent> excluded) {
+            if (spanCounts.isEmpty()) {
+                return null;
+            }
+            LocalDate earliestStart = from.minusDays(spanCounts.lastKey());
+            if (earliestStart.isAfter(to)) {
+                return null;
+            }
+            for (List<Rent> rents : rentsByStart.subMap(earliestStart, true, to, true).values()) {
+                for (Rent rent : rents) {
+                    if (!rent.getUpdatedEndDate().isBefore(from) && !excluded.test(rent)) {
+                        return rent;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -4,11 +4,32 @@ import wit.io.data.Client;
 import wit.io.data.enums.RentStatus;
 import wit.io.exceptions.*;
 import wit.io.data.Rent;
+import wit.io.persistence.Journal;
+import wit.io.persistence.Mutation;
+import wit.io.utils.Const;
 import wit.io.utils.Util;
 
+import java.io.File;
+import java.io.IOException;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,10 +39,54 @@ import java.util.stream.Stream;
  */
 public class RentManager extends Manager<Rent> {
     /**
-     * Local reference to "current" time, can be passed by a constructor, allows for testing of this class
+     * Source of the current date, can be passed by a constructor, allows for testing of this class
      * without mocking Date.
      */
-    private final LocalDate now;
+    private final Clock clock;
+
+    /**
+     * True if the rent file is memory-mapped and only ACTIVE and OVERDUE rents are kept on the heap,
+     * see {@link RentHistoryStore}.
+     */
+    private final boolean historyMapped;
+
+    /**
+     * Append-only archive of closed rents moved out of the live data, see {@link #archiveClosedRents(Period)}.
+     * Every archived rent is stored as an ADD mutation.
+     */
+    private final Journal<Rent> archive;
+
+    /**
+     * True once a torn record left at the end of the archive by a crash was cut off, see {@link Journal#repair()}.
+     * Guarded by the write lock of {@link #entityLock}.
+     */
+    private boolean archiveRepaired = false;
+
+    /**
+     * Index of ACTIVE and OVERDUE rents by ski model, used to check for overlapping rentals.
+     */
+    private final RentIntervalIndex intervalIndex = new RentIntervalIndex();
+
+    /**
+     * Indexes of rents by ski model, client and status used by search, null with a mapped history,
+     * where it would keep every rent on the heap.
+     */
+    private final RentSearchIndex searchIndex;
+
+    /**
+     * Trigram index of rent comments used by search, null with a mapped history.
+     */
+    private final ContainsIndex<Rent> commentIndex;
+
+    /**
+     * Tracks upcoming status changes of ACTIVE rents for {@link #sweepStatuses()}.
+     */
+    private final RentStatusSweeper statusSweeper = new RentStatusSweeper();
+
+    /**
+     * Executor running periodic status sweeps, null if the sweeper is not started.
+     */
+    private ScheduledExecutorService sweepScheduler;
 
     /**
      * Constructor for ClientManager.
@@ -29,7 +94,7 @@ public class RentManager extends Manager<Rent> {
      * @throws ReadingException if the path is null.
      */
     public RentManager(String filePath) throws ReadingException, SkiAppException {
-        this(filePath, LocalDate.now());
+        this(filePath, Clock.systemDefaultZone());
     }
 
     /**
@@ -40,71 +105,243 @@ public class RentManager extends Manager<Rent> {
      * @throws SkiAppException If a general application error occurs during initialization
      */
     public RentManager(String filePath, LocalDate now) throws ReadingException, SkiAppException {
-        super(filePath);
+        this(filePath, Clock.fixed(now.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()));
+    }
 
-        this.now = now;
-        setOverdue(now);
-        setFailed(now);
+    /**
+     * Constructor for RentManager.
+     * @param filePath path to the file where rent data is/will be stored, required argument.
+     * @param clock clock providing the current date for validations and status updates, required argument.
+     * @throws ReadingException if the path is null.
+     * @throws SkiAppException If a general application error occurs during initialization
+     */
+    public RentManager(String filePath, Clock clock) throws ReadingException, SkiAppException {
+        this(filePath, clock, false);
     }
 
     /**
-     * Updates the status of RentStatus rentals to OVERDUE
-     * if their planned end date is before the 'now' date.
-     * The `updatedEndDate` for these rentals is also set to 'now'.
-     * @param now The current date used to determine if a rental is overdue.
+     * Constructor for RentManager.
+     * With {@code historyMapped} set, the rent file is memory-mapped and RETURNED and FAILED rents
+     * are decoded only when visited, so long rental histories do not stay on the heap.
+     * See {@link RentHistoryStore} for the limitations of this mode.
+     * @param filePath path to the file where rent data is/will be stored, required argument.
+     * @param clock clock providing the current date for validations and status updates, required argument.
+     * @param historyMapped true if the rent file should be memory-mapped.
+     * @throws ReadingException if the path is null.
+     * @throws SkiAppException If a general application error occurs during initialization
      */
-    private void setOverdue(LocalDate now) {
-        LinkedHashSet<Rent> updatedRents = new LinkedHashSet<>();
-        var it = dataEntities.iterator();
-        while(it.hasNext()) {
-            Rent rent = it.next();
-            if (rent.getStatus() == RentStatus.ACTIVE && rent.getEndDate().isBefore(now)) {
-                Rent updatedRent = rent.setStatus(RentStatus.OVERDUE).setUpdatedEndDate(now);
-                updatedRents.add(updatedRent);
-                it.remove();
+    public RentManager(String filePath, Clock clock, boolean historyMapped) throws ReadingException, SkiAppException {
+        this(filePath, clock, historyMapped, Const.IOBufferSize);
+    }
+
+    /**
+     * Constructor for RentManager using given size of the I/O buffers, also for reading the existing data.
+     * @param filePath path to the file where rent data is/will be stored, required argument.
+     * @param clock clock providing the current date for validations and status updates, required argument.
+     * @param historyMapped true if the rent file should be memory-mapped, see {@link #RentManager(String, Clock, boolean)}.
+     * @param bufferSize size in bytes of the buffers used when reading and writing the data file, has to be positive
+     * @throws ReadingException if the path is null.
+     * @throws SkiAppException If a general application error occurs during initialization
+     */
+    public RentManager(String filePath, Clock clock, boolean historyMapped, int bufferSize) throws ReadingException, SkiAppException {
+        super(filePath, bufferSize, false);
+        if (Util.isAnyArgumentNull(clock)) {
+            throw new IllegalArgumentException("clock cannot be null.");
+        }
+
+        this.clock = clock;
+        this.historyMapped = historyMapped;
+        archive = new Journal<>(new File(filePath + Const.ArchiveFileSuffix));
+        archive.setBufferSize(bufferSize);
+        readExistingData();
+        reconcileStatuses(today());
+
+        intervalIndex.entitiesReset(dataEntities);
+        addListener(intervalIndex);
+        searchIndex = historyMapped ? null : new RentSearchIndex();
+        commentIndex = historyMapped ? null : new ContainsIndex<>(Rent::getComment);
+        if (!historyMapped) {
+            searchIndex.entitiesReset(dataEntities);
+            addListener(searchIndex);
+            commentIndex.entitiesReset(dataEntities);
+            addListener(commentIndex);
+        }
+        statusSweeper.entitiesReset(dataEntities);
+        addListener(statusSweeper);
+    }
+
+    /**
+     * Gets the current date according to the manager's clock.
+     * @return today's date
+     */
+    private LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    /**
+     * Updates statuses of rentals whose end or start date passed since the last update:
+     * ACTIVE rentals past their planned end date become OVERDUE, and ACTIVE rentals that should
+     * have started on a ski with an OVERDUE rental become FAILED.
+     * Only rentals with a due status change are visited, all changes are saved at once.
+     * @throws WritingException If an error occurs while saving the updated rentals.
+     */
+    public void sweepStatuses() throws WritingException {
+        LocalDate today = today();
+        List<Mutation<Rent>> transitions = new ArrayList<>();
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            Mutation<Rent> transition;
+            while ((transition = statusSweeper.nextTransition(today)) != null) {
+                apply(transition);
+                transitions.add(transition);
+            }
+            applied = !transitions.isEmpty();
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
             }
         }
-        // don't use this.addEntity, because it will always set status to ACTIVE
-        // and perform same validations again
-        dataEntities.addAll(updatedRents);
+
+        if (applied) {
+            persistAndUnlock(transitions);
+        }
     }
 
     /**
-     * Identifies and updates the status of rentals to FAILED.
-     * A rental is marked as FAILED if it is currently ACTIVE and was supposed to start
-     * by 'now', but another OVERDUE rental exists for the same ski model.
-     * This prevents new rentals from starting if the ski is not returned on time from a previous rental.
-     * @param now The current date used to determine if a rental should start.
+     * Starts a background thread that periodically updates rental statuses, see {@link #sweepStatuses()}.
+     * Every sweep is handed over to {@code sweepExecutor}, e.g. {@code SwingUtilities::invokeLater}
+     * to keep the changes of statuses on the thread updating the UI.
+     * Sweeps that fail to save the updated statuses are reported to the write failure handler,
+     * see {@link #setWriteFailureHandler}.
+     * @param period time between two sweeps, has to be positive
+     * @param unit unit of the period, required argument
+     * @param sweepExecutor executor running the sweeps, required argument
+     * @throws IllegalStateException if the sweeper is already running.
      */
-    private void setFailed(LocalDate now) {
-        LinkedHashSet<Rent> removedRents = new LinkedHashSet<>();
-        LinkedHashSet<Rent> updatedRents = new LinkedHashSet<>();
-        for (Rent rent : dataEntities) {
+    public void startStatusSweeper(long period, TimeUnit unit, Executor sweepExecutor) {
+        if (Util.isAnyArgumentNull(unit, sweepExecutor)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        if (sweepScheduler != null) {
+            throw new IllegalStateException("Status sweeper is already running.");
+        }
+
+        sweepScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rent-status-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweepScheduler.scheduleAtFixedRate(() -> sweepExecutor.execute(() -> {
+            try {
+                sweepStatuses();
+            } catch (WritingException e) {
+                reportWriteFailure(e);
+            }
+        }), period, period, unit);
+    }
+
+    /**
+     * Stops the background thread started by {@link #startStatusSweeper(long, TimeUnit, Executor)}.
+     * Does nothing if the sweeper is not running.
+     */
+    public void stopStatusSweeper() {
+        if (sweepScheduler != null) {
+            sweepScheduler.shutdownNow();
+            sweepScheduler = null;
+        }
+    }
+
+    /**
+     * Updates statuses of all rentals in two linear passes over the data.
+     * First, ACTIVE rentals whose planned end date is before 'now' become OVERDUE
+     * (their `updatedEndDate` is set to 'now') and the ski models of all OVERDUE rentals are collected.
+     * Then every ACTIVE rental that was supposed to start by 'now' is marked as FAILED
+     * if its ski model has an OVERDUE rental, as the ski was not returned on time from a previous rental.
+     * The order of rentals is preserved.
+     * @param now The current date used to determine if a rental is overdue or should start.
+     */
+    private void reconcileStatuses(LocalDate now) {
+        // only ACTIVE rents change, RETURNED and FAILED ones of a mapped history can be skipped
+        Collection<Rent> candidates = dataEntities instanceof RentHistoryStore
+                ? ((RentHistoryStore) dataEntities).heapRents() : dataEntities;
+
+        Set<String> overdueSkiModels = new HashSet<>();
+        Map<Rent, Rent> reconciled = new HashMap<>();
+        for (Rent rent : candidates) {
+            if (rent.getStatus() == RentStatus.ACTIVE && rent.getEndDate().isBefore(now)) {
+                Rent overdue = rent.setStatus(RentStatus.OVERDUE).setUpdatedEndDate(now);
+                reconciled.put(rent, overdue);
+                rent = overdue;
+            }
+            if (rent.getStatus() == RentStatus.OVERDUE) {
+                overdueSkiModels.add(rent.getSkiModel());
+            }
+        }
+
+        for (Rent rent : candidates) {
             // istnieje ACTIVE, który się zaczął, ale istnieje dla niego jakiś OVERDUE
             boolean shouldStartNow = rent.getStatus() == RentStatus.ACTIVE && rent.getStartDate().compareTo(now) <= 0;
-            if (shouldStartNow) {
-                for (Rent otherRent : dataEntities) {
-                    boolean otherIsOverdue = otherRent.getStatus() == RentStatus.OVERDUE && otherRent.getSkiModel().equals(rent.getSkiModel());
-                    if (otherIsOverdue) {
-                        removedRents.add(rent);
-                        updatedRents.add(rent.setStatus(RentStatus.FAILED));
-                    }
-                }
+            if (shouldStartNow && !reconciled.containsKey(rent) && overdueSkiModels.contains(rent.getSkiModel())) {
+                reconciled.put(rent, rent.setStatus(RentStatus.FAILED));
+            }
+        }
+        if (reconciled.isEmpty()) {
+            return;
+        }
+
+        // don't use this.addEntity, because it will always set status to ACTIVE
+        // and perform same validations again
+        if (dataEntities instanceof RentHistoryStore) {
+            for (Map.Entry<Rent, Rent> entry : reconciled.entrySet()) {
+                ((RentHistoryStore) dataEntities).replaceInPlace(entry.getKey(), entry.getValue());
+            }
+        } else {
+            LinkedHashSet<Rent> reconciledRents = new LinkedHashSet<>();
+            for (Rent rent : dataEntities) {
+                reconciledRents.add(reconciled.getOrDefault(rent, rent));
             }
+            dataEntities = reconciledRents;
         }
-        dataEntities.removeAll(removedRents);
-        dataEntities.addAll(updatedRents);
+        // a snapshot taken while migrating the data file does not contain the reconciled rents
+        notifyReset();
     }
 
     /**
      * Reads rental data from the file specified during construction.
      * This method utilizes the readData method from the Rent class
-     * to load the rental objects.
+     * to load the rental objects, files saved in the legacy format are read with readLegacyData.
      * @throws ReadingException If an error occurs while reading the rental data from the file.
      */
     @Override
     public void readFromFile() throws ReadingException {
-        readFromFile(Rent::readData);
+        if (!historyMapped) {
+            readFromFile(Rent::readData, Rent::readLegacyData);
+            return;
+        }
+
+        try {
+            if (file.exists() && !RentHistoryStore.isMappable(file)) {
+                // files in older formats are read in and migrated to the current format first
+                readFromFile(Rent::readData, Rent::readLegacyData);
+            }
+            if (RentHistoryStore.isMappable(file)) {
+                dataEntities = RentHistoryStore.open(file);
+            }
+            journal.replay(dataEntities, Rent::readData, Rent::readLegacyData);
+        } catch (IOException e) {
+            throw new ReadingException(e);
+        }
+        notifyReset();
+
+        if (journal.isLegacyFormat()) {
+            try {
+                writeToFile();
+            } catch (WritingException e) {
+                throw new ReadingException(e);
+            }
+        }
     }
 
     /**
@@ -120,33 +357,78 @@ public class RentManager extends Manager<Rent> {
         return !(rent.getUpdatedEndDate().isBefore(otherRent.getStartDate()) || rent.getStartDate().isAfter(otherRent.getUpdatedEndDate()));
     }
 
+    /**
+     * Checks if a ski is free for the whole given period, i.e. it has no ACTIVE or OVERDUE rental
+     * whose period (up to its updated end date) overlaps with it.
+     * The check is a lookup in the per-model interval index, O(log k) for k rentals of the ski.
+     * @param skiModel The model of the ski.
+     * @param from The first day of the period (inclusive).
+     * @param to The last day of the period (inclusive).
+     * @return true if no ACTIVE or OVERDUE rental of the ski overlaps with the period.
+     * @throws IllegalArgumentException If any argument is null or the period ends before it starts.
+     */
+    public boolean isSkiFree(String skiModel, LocalDate from, LocalDate to) {
+        if (Util.isAnyArgumentNull(skiModel, from, to)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Period cannot end before it starts.");
+        }
+        entityLock.readLock().lock();
+        try {
+            return intervalIndex.findOverlapping(skiModel, from, to, rent -> false) == null;
+        } finally {
+            entityLock.readLock().unlock();
+        }
+    }
+
     /**
      * Validates a new rental to ensure its dates are valid and do not overlap with existing rentals
      * for the same ski model that are currently ACTIVE or OVERDUE.
+     * Overlaps are looked up in the per-model interval index, so only rents of the same ski are checked.
      * @param rent The Rent instance to validate.
      * @throws InvalidRentDateException If the rental's start or end date is invalid (e.g., start date is after end date, or in the past for new rentals).
      * @throws OverlappingRentDateException If the rental period overlaps with an existing active or overdue rental for the same ski.
      */
     void validateRent(Rent rent) throws InvalidRentDateException, OverlappingRentDateException {
-        if(!Util.isDateRangeValid(rent.getStartDate(), rent.getEndDate(), now)) {
+        validateRent(rent, rent::equals);
+    }
+
+    /**
+     * Validates a new rental like {@link #validateRent(Rent)}, skipping the indexed rentals accepted by {@code replaced}.
+     * @param rent The Rent instance to validate.
+     * @param replaced predicate accepting the indexed rentals that are removed or replaced together with the validation
+     * @return The version of the rentals of the ski model the rental was validated against, see {@link RentIntervalIndex#version(String)}.
+     * @throws InvalidRentDateException If the rental's start or end date is invalid.
+     * @throws OverlappingRentDateException If the rental period overlaps with an existing active or overdue rental for the same ski.
+     */
+    private long validateRent(Rent rent, Predicate<Rent> replaced) throws InvalidRentDateException, OverlappingRentDateException {
+        if(!Util.isDateRangeValid(rent.getStartDate(), rent.getEndDate(), today())) {
             throw new InvalidRentDateException();
         }
 
-        for (Rent otherRent : getEntities()) {
-            if(otherRent.equals(rent)) continue;
-            if (rentDatesOverlap(rent, otherRent)
-                && (otherRent.getStatus() == RentStatus.ACTIVE || otherRent.getStatus() == RentStatus.OVERDUE)
-                && otherRent.getSkiModel().equals(rent.getSkiModel())) {
-                throw new OverlappingRentDateException("Cannot create a reservation. " +
-                        "Chosen skis are already reserved for given startDate and endDate");
+        entityLock.readLock().lock();
+        try {
+            if (intervalIndex.findOverlapping(rent.getSkiModel(), rent.getStartDate(), rent.getUpdatedEndDate(), replaced) != null) {
+                throw overlappingRent();
             }
+            return intervalIndex.version(rent.getSkiModel());
+        } finally {
+            entityLock.readLock().unlock();
         }
     }
 
+    private static OverlappingRentDateException overlappingRent() {
+        return new OverlappingRentDateException("Cannot create a reservation. " +
+                "Chosen skis are already reserved for given startDate and endDate");
+    }
+
     /**
      * Adds a new rental entity to the manager. Before adding, it validates the rental's dates
      * and checks for overlaps with existing rentals. The new rental's status is automatically
      * set to {@link RentStatus#ACTIVE}.
+     * The overlap check runs under the read lock, so bookings of different skis are validated concurrently.
+     * Under the write lock it is repeated only if the rentals of the same ski model changed in between.
      * @param newRent The Rent instance to be added.
      * @throws IllegalArgumentException If newRent is null.
      * @throws EntityAlreadyPresentException If the rental to be added already exists.
@@ -161,50 +443,229 @@ public class RentManager extends Manager<Rent> {
         if (Util.isAnyArgumentNull(newRent)) {
             throw new IllegalArgumentException("newRent cannot be null.");
         }
-        validateRent(newRent);
-
+        Rent rent = newRent.setStatus(RentStatus.ACTIVE);
+        long version = validateRent(rent, rent::equals);
 
         // TODO: updtae statusów ACTIVE -> RETURNED, gdy user zwróci w UI
         // to ogarnia SWING za pomocą edit()
 
+        Mutation<Rent> mutation = Mutation.add(rent);
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            if (intervalIndex.version(rent.getSkiModel()) != version
+                    && intervalIndex.findOverlapping(rent.getSkiModel(), rent.getStartDate(), rent.getUpdatedEndDate(), rent::equals) != null) {
+                throw overlappingRent();
+            }
+            if (dataEntities.contains(rent)) {
+                throw new EntityAlreadyPresentException("Exception occurred adding new newEntity Type." + rent);
+            }
+            apply(mutation);
+            applied = true;
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
+            }
+        }
+        persistAndUnlock(List.of(mutation));
+    }
 
-        newRent = newRent.setStatus(RentStatus.ACTIVE);
-        super.addEntity(newRent);
+    /**
+     * Sets the status of a rental added by a batch or a transaction to {@link RentStatus#ACTIVE},
+     * like {@link #addEntity(Rent)} does, its dates are validated by {@link #validateBatch(List)}.
+     * @param newRent The Rent instance to be added.
+     * @return The rental with ACTIVE status.
+     */
+    @Override
+    protected Rent prepareBatchEntity(Rent newRent) {
+        return newRent.setStatus(RentStatus.ACTIVE);
     }
 
     /**
-     * Edits an existing rental entity by replacing it with a new one.
+     * Validates an edited rental, called by {@link #editEntity} under the write lock.
      * If the start date, end date, or updated end date of the rental has changed,
      * it re-validates the new rental to ensure date validity and prevent overlaps.
+     * Unlike {@link #addEntity(Rent)}, editing keeps the status of the new rental.
      *
      * @param oldRent The existing Rent instance to be replaced.
      * @param newRent The new Rent instance that will replace the old one.
-     * @throws IllegalArgumentException If either oldRent or newRent is null.
-     * @throws EntityNotPresentException If the oldRent is not found in the collection.
-     * @throws EntityAlreadyPresentException If the newRent (after removal of old)
-     * still exists (veri rare).
+     * @throws InvalidRentDateException If the new rental's dates are invalid.
+     * @throws OverlappingRentDateException If the new rental overlaps with another rental for the same ski.
+     */
+    @Override
+    protected void validateReplacement(Rent oldRent, Rent newRent) throws InvalidRentDateException, OverlappingRentDateException {
+        if (datesChanged(oldRent, newRent)) {
+            validateRent(newRent);
+        }
+    }
+
+    /**
+     * Checks if the start date, end date or updated end date of an edited rental has changed.
+     * @param oldRent The rental before the edit.
+     * @param newRent The rental after the edit.
+     * @return true if any of the dates is different.
+     */
+    private static boolean datesChanged(Rent oldRent, Rent newRent) {
+        return !oldRent.getStartDate().isEqual(newRent.getStartDate()) || !oldRent.getEndDate().isEqual(newRent.getEndDate())
+                || !oldRent.getUpdatedEndDate().isEqual(newRent.getUpdatedEndDate());
+    }
+
+    /**
+     * Adds all given rentals as a single batch saved at once, see {@link #applyBatch(List)}.
+     * Like in {@link #addEntity(Rent)}, every rental's status is set to {@link RentStatus#ACTIVE}
+     * and its dates are validated, the rentals are also checked for overlaps with each other.
+     * Nothing is added if any of the rentals is rejected.
+     * @param newRents The rentals to be added.
+     * @throws IllegalArgumentException If newRents is or contains null.
+     * @throws EntityAlreadyPresentException If any of the rentals already exists.
      * @throws WritingException If an error occurs while writing the updated data to the file.
+     * @throws InvalidRentDateException If any rental's dates are invalid.
+     * @throws OverlappingRentDateException If any rental overlaps with an existing rental or another added rental for the same ski.
      * @throws SkiAppException If a general application error occurs.
      */
-    public void editEntity(Rent oldRent, Rent newRent)
-            throws EntityNotPresentException, EntityAlreadyPresentException, IllegalArgumentException, WritingException, SkiAppException {
-        if (Util.isAnyArgumentNull(oldRent, newRent)) {
-            throw new IllegalArgumentException("One or more of given arguments were null.");
+    @Override
+    public void addAll(Collection<? extends Rent> newRents)
+            throws EntityAlreadyPresentException, WritingException, InvalidRentDateException, OverlappingRentDateException, SkiAppException {
+        if (Util.isAnyArgumentNull(newRents)) {
+            throw new IllegalArgumentException("newRents cannot be null.");
         }
-        if (!oldRent.getStartDate().isEqual(newRent.getStartDate()) || !oldRent.getEndDate().isEqual(newRent.getEndDate()) || !oldRent.getUpdatedEndDate().isEqual(newRent.getUpdatedEndDate())) {
-            validateRent(newRent);
+        for (Rent newRent : newRents) {
+            if (newRent == null) {
+                throw new IllegalArgumentException("newRents cannot contain null.");
+            }
         }
+        super.addAll(newRents);
+    }
 
-        removeEntity(oldRent);
-        // don't use this.addEntity, because it will always set status to ACTIVE
-        // and perform same validations again
-        super.addEntity(newRent);
+    /**
+     * Validates a batch of changes, called by {@link #applyBatch(List)} under the write lock.
+     * Every added rental and every edited rental with changed dates is validated like in {@link #addEntity(Rent)}
+     * and {@link #editEntity(Rent, Rent)}, against the rentals as left by the mutations before it:
+     * rentals removed or replaced earlier in the batch do not block it, rentals added earlier do.
+     * @param mutations The mutations of the batch.
+     * @throws InvalidRentDateException If the dates of an added or edited rental are invalid.
+     * @throws OverlappingRentDateException If an added or edited rental overlaps with another rental for the same ski.
+     */
+    @Override
+    protected void validateBatch(List<Mutation<Rent>> mutations) throws InvalidRentDateException, OverlappingRentDateException {
+        Set<UUID> replacedIds = new HashSet<>();
+        RentIntervalIndex batchRents = new RentIntervalIndex();
+        for (Mutation<Rent> mutation : mutations) {
+            Rent oldRent = mutation.getOldEntity();
+            Rent newRent = mutation.getNewEntity();
+            if (oldRent != null) {
+                replacedIds.add(oldRent.getRentID());
+                batchRents.entityRemoved(oldRent);
+            }
+            if (newRent == null) {
+                continue;
+            }
+            if (oldRent == null || datesChanged(oldRent, newRent)) {
+                validateRent(newRent, rent -> replacedIds.contains(rent.getRentID()));
+                if (batchRents.findOverlapping(newRent) != null) {
+                    throw overlappingRent();
+                }
+            }
+            batchRents.entityAdded(newRent);
+        }
+    }
+
+    /**
+     * Moves RETURNED and FAILED rentals that ended more than {@code horizon} ago into the archive file,
+     * so that they are no longer kept, scanned and saved with the live data.
+     * Archived rentals are found only by {@link #search(String, String, LocalDate, LocalDate, LocalDate, String, RentStatus, boolean)}
+     * with the archive included. The rentals are appended to the archive before they are removed from the live data,
+     * so a crash in between can leave a rental in both, which the search tolerates.
+     * @param horizon how long closed rentals stay in the live data after their end date, required argument
+     * @return number of archived rentals
+     * @throws WritingException If an error occurs while writing to the archive or saving the live data.
+     */
+    public int archiveClosedRents(Period horizon) throws WritingException {
+        if (Util.isAnyArgumentNull(horizon)) {
+            throw new IllegalArgumentException("horizon cannot be null.");
+        }
+
+        LocalDate cutoff = today().minus(horizon);
+        List<Mutation<Rent>> archived = new ArrayList<>();
+        List<Mutation<Rent>> removals = new ArrayList<>();
+        entityLock.writeLock().lock();
+        boolean applied = false;
+        try {
+            checkWritable();
+            for (Rent rent : dataEntities) {
+                boolean closed = rent.getStatus() == RentStatus.RETURNED || rent.getStatus() == RentStatus.FAILED;
+                if (closed && rent.getUpdatedEndDate().isBefore(cutoff)) {
+                    archived.add(Mutation.add(rent));
+                    removals.add(Mutation.remove(rent));
+                }
+            }
+            if (archived.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                if (!archiveRepaired) {
+                    // searches only read the archive, so a torn record is cut off before the first append
+                    archive.repair();
+                    archiveRepaired = true;
+                }
+                archive.append(archived);
+            } catch (IOException e) {
+                throw new WritingException(e);
+            }
+            for (Mutation<Rent> removal : removals) {
+                apply(removal);
+            }
+            applied = true;
+        } finally {
+            if (!applied) {
+                entityLock.writeLock().unlock();
+            }
+        }
+        persistAndUnlock(removals);
+        return archived.size();
+    }
+
+    /**
+     * Takes an immutable copy of the rentals, a mapped history is copied without decoding its records,
+     * see {@link RentHistoryStore#snapshot()}.
+     * @param entities The managed rentals.
+     * @return An immutable Set with the same rentals in the same order.
+     */
+    @Override
+    protected Set<Rent> snapshot(Set<Rent> entities) {
+        if (entities instanceof RentHistoryStore) {
+            return Collections.unmodifiableSet(((RentHistoryStore) entities).snapshot());
+        }
+        return super.snapshot(entities);
+    }
+
+    /**
+     * Resets rental data by clearing the current set and the archive, and writing an empty set to the file.
+     * @throws WritingException If an error occurs while writing to the file or removing the archive.
+     */
+    @Override
+    public void resetEntityData() throws WritingException {
+        entityLock.writeLock().lock();
+        try {
+            checkWritable();
+            archive.clear();
+        } catch (IOException e) {
+            throw new WritingException(e);
+        } finally {
+            entityLock.writeLock().unlock();
+        }
+        super.resetEntityData();
     }
 
     /**
      * Searches for rental records based on the provided criteria.
      * Multiple criteria can be combined to narrow down the search results.
      * If a parameter is null, it is not used as a filter.
+     * When the ski model, client, status or a start date bound is given, only the rents of the smallest
+     * matching index entry are checked. Rents are returned in the order the manager keeps them in, whichever index is used.
+     * The comment filter is looked up in a trigram index.
      * @param SkiModel The model of the ski equipment.
      * @param docId The document ID of the client renting.
      * @param startDate The start date of the rental period (inclusive search).
@@ -215,8 +676,72 @@ public class RentManager extends Manager<Rent> {
      * @return An ArrayList of Rent instances that match all specified non-null criteria.
      */
     public ArrayList<Rent> search(String SkiModel, String docId, LocalDate startDate, LocalDate endDate, LocalDate updatedEndDate, String comment, RentStatus status) {
-        Stream<Rent> stream = getEntities().stream();
+        // every date filter compares the start date, the tighter of the two upper bounds is used
+        LocalDate startTo = endDate == null || (updatedEndDate != null && updatedEndDate.isBefore(endDate)) ? updatedEndDate : endDate;
+        entityLock.readLock().lock();
+        try {
+            Collection<Rent> candidates = searchIndex == null ? null
+                    : searchIndex.candidates(SkiModel, docId, status, startDate, startTo);
+            if (comment != null && commentIndex != null) {
+                candidates = ContainsIndex.smaller(candidates, commentIndex.search(comment));
+            }
+            if (candidates == null) {
+                candidates = getEntities();
+            }
+            return filter(candidates.stream(), SkiModel, docId, startDate, endDate, updatedEndDate, comment, status)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } finally {
+            entityLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches for rental records based on the provided criteria, optionally also among archived rentals.
+     * The archive file is read only for this search and only if the searched status can be archived.
+     * Archived rentals are listed after the live ones.
+     * @param SkiModel The model of the ski equipment.
+     * @param docId The document ID of the client renting.
+     * @param startDate The start date of the rental period (inclusive search).
+     * @param endDate The planned end date of the rental period (inclusive search).
+     * @param updatedEndDate The actual (updated) end date of the rental period (inclusive search).
+     * @param comment Optional notes about the rental (contains match).
+     * @param status The current status of the rental (e.g., ACTIVE, OVERDUE, RETURNED, FAILED).
+     * @param includeArchive true if archived rentals should be searched as well.
+     * @return An ArrayList of Rent instances that match all specified non-null criteria.
+     * @throws ReadingException If an error occurs while reading the archive.
+     */
+    public ArrayList<Rent> search(String SkiModel, String docId, LocalDate startDate, LocalDate endDate, LocalDate updatedEndDate,
+                                  String comment, RentStatus status, boolean includeArchive) throws ReadingException {
+        ArrayList<Rent> result = search(SkiModel, docId, startDate, endDate, updatedEndDate, comment, status);
+        boolean archivable = status == null || status == RentStatus.RETURNED || status == RentStatus.FAILED;
+        if (!includeArchive || !archivable || !archive.exists()) {
+            return result;
+        }
 
+        Set<Rent> archivedRents = new LinkedHashSet<>();
+        // archiving appends under the write lock, so the archive is not changed while it is read,
+        // every search reads it on its own, as the archive file is only read and never repaired here
+        entityLock.readLock().lock();
+        try {
+            archive.read(archivedRents, Rent::readData, Rent::readLegacyData);
+            // a crash while archiving can leave a rental both in the live data and in the archive
+            archivedRents.removeAll(getEntities());
+        } catch (IOException e) {
+            throw new ReadingException(e);
+        } finally {
+            entityLock.readLock().unlock();
+        }
+        filter(archivedRents.stream(), SkiModel, docId, startDate, endDate, updatedEndDate, comment, status)
+                .forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Filters rentals by the search criteria, see {@link #search(String, String, LocalDate, LocalDate, LocalDate, String, RentStatus)}.
+     * @return stream of rentals matching all specified non-null criteria
+     */
+    private static Stream<Rent> filter(Stream<Rent> stream, String SkiModel, String docId, LocalDate startDate, LocalDate endDate,
+                                       LocalDate updatedEndDate, String comment, RentStatus status) {
         if(SkiModel != null) {
             stream = stream.filter(rent -> rent.getSkiModel().equals(SkiModel));
         }
@@ -245,7 +770,6 @@ public class RentManager extends Manager<Rent> {
             stream = stream.filter(rent -> rent.getStatus().equals(status));
         }
 
-        return stream.collect(Collectors.toCollection(ArrayList::new));
-
+        return stream;
     }
 }
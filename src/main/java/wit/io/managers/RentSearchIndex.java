@@ -0,0 +1,157 @@
+package wit.io.managers;
+
+import wit.io.data.Rent;
+import wit.io.data.enums.RentStatus;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Secondary indexes of rents by ski model, client document ID, status and start date, used by
+ * {@link RentManager#search(String, String, LocalDate, LocalDate, LocalDate, String, RentStatus)}
+ * to visit only the rents matching its most selective filter.
+ * Rents of every index entry are kept in the order they were added, the same order the manager keeps them in,
+ * rents collected from a start date range are sorted back into that order.
+ */
+class RentSearchIndex implements ManagerListener<Rent> {
+    private final Map<String, Set<Rent>> rentsByModel = new HashMap<>();
+    private final Map<String, Set<Rent>> rentsByClient = new HashMap<>();
+    private final Map<RentStatus, Set<Rent>> rentsByStatus = new EnumMap<>(RentStatus.class);
+
+    /**
+     * Rents by the epoch day of their start date, all date filters of the search compare the start date.
+     */
+    private final TreeMap<Long, Set<Rent>> rentsByStartDay = new TreeMap<>();
+
+    /**
+     * Currently indexed version of every rent, used to remove a rent by its ID.
+     */
+    private final Map<UUID, Rent> indexedRents = new HashMap<>();
+
+    /**
+     * Position of every indexed rent, by its ID, in the order rents were added.
+     */
+    private final Map<UUID, Long> positions = new HashMap<>();
+    private long nextPosition;
+
+    @Override
+    public void entityAdded(Rent rent) {
+        Rent previous = indexedRents.put(rent.getRentID(), rent);
+        if (previous != null) {
+            unindex(previous);
+        }
+        positions.put(rent.getRentID(), nextPosition++);
+        rentsByModel.computeIfAbsent(rent.getSkiModel(), model -> new LinkedHashSet<>()).add(rent);
+        rentsByClient.computeIfAbsent(rent.getClientID(), docId -> new LinkedHashSet<>()).add(rent);
+        rentsByStatus.computeIfAbsent(rent.getStatus(), status -> new LinkedHashSet<>()).add(rent);
+        rentsByStartDay.computeIfAbsent(rent.getStartDate().toEpochDay(), day -> new LinkedHashSet<>()).add(rent);
+    }
+
+    @Override
+    public void entityRemoved(Rent rent) {
+        Rent previous = indexedRents.remove(rent.getRentID());
+        if (previous != null) {
+            unindex(previous);
+            positions.remove(rent.getRentID());
+        }
+    }
+
+    @Override
+    public void entitiesReset(Set<Rent> rents) {
+        rentsByModel.clear();
+        rentsByClient.clear();
+        rentsByStatus.clear();
+        rentsByStartDay.clear();
+        indexedRents.clear();
+        positions.clear();
+        nextPosition = 0;
+        for (Rent rent : rents) {
+            entityAdded(rent);
+        }
+    }
+
+    /**
+     * Picks the smallest set of rents that can match all given filters.
+     * Null filters are ignored, the other filters still have to be applied to the returned rents.
+     * The start date range is used only if it holds fewer rents than the best exact-match filter,
+     * counting stops as soon as it holds more, so the range costs O(log n + k) for k rents it is checked against.
+     * @param skiModel searched ski model, may be null
+     * @param docId searched client document ID, may be null
+     * @param status searched status, may be null
+     * @param startFrom first start date of the searched range (inclusive), may be null
+     * @param startTo last start date of the searched range (inclusive), may be null
+     * @return rents matching the most selective of the given filters, or null if all filters are null
+     */
+    Collection<Rent> candidates(String skiModel, String docId, RentStatus status, LocalDate startFrom, LocalDate startTo) {
+        Collection<Rent> candidates = null;
+        if (skiModel != null) {
+            candidates = smaller(candidates, rentsByModel.get(skiModel));
+        }
+        if (docId != null) {
+            candidates = smaller(candidates, rentsByClient.get(docId));
+        }
+        if (status != null) {
+            candidates = smaller(candidates, rentsByStatus.get(status));
+        }
+        if (startFrom != null || startTo != null) {
+            List<Rent> started = startingBetween(startFrom, startTo, candidates == null ? Integer.MAX_VALUE : candidates.size());
+            if (started != null) {
+                candidates = started;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Collects rents starting within given range, in the order they were added.
+     * @param from first start date (inclusive), null for no lower bound
+     * @param to last start date (inclusive), null for no upper bound
+     * @param limit maximal number of rents worth collecting
+     * @return rents starting within the range, or null if there are more than {@code limit} of them
+     */
+    private List<Rent> startingBetween(LocalDate from, LocalDate to, int limit) {
+        if (from != null && to != null && from.isAfter(to)) {
+            return Collections.emptyList();
+        }
+        NavigableMap<Long, Set<Rent>> range = rentsByStartDay;
+        if (from != null) {
+            range = range.tailMap(from.toEpochDay(), true);
+        }
+        if (to != null) {
+            range = range.headMap(to.toEpochDay(), true);
+        }
+
+        List<Rent> rents = new ArrayList<>();
+        for (Set<Rent> dayRents : range.values()) {
+            if (rents.size() + dayRents.size() > limit) {
+                return null;
+            }
+            rents.addAll(dayRents);
+        }
+        rents.sort(Comparator.comparingLong(rent -> positions.get(rent.getRentID())));
+        return rents;
+    }
+
+    private static Collection<Rent> smaller(Collection<Rent> current, Set<Rent> entry) {
+        Collection<Rent> rents = entry == null ? Collections.emptySet() : entry;
+        return current == null || rents.size() < current.size() ? rents : current;
+    }
+
+    private void unindex(Rent rent) {
+        removeFrom(rentsByModel, rent.getSkiModel(), rent);
+        removeFrom(rentsByClient, rent.getClientID(), rent);
+        removeFrom(rentsByStatus, rent.getStatus(), rent);
+        removeFrom(rentsByStartDay, rent.getStartDate().toEpochDay(), rent);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Rent>> index, K key, Rent rent) {
+        Set<Rent> rents = index.get(key);
+        if (rents == null) {
+            return;
+        }
+        rents.remove(rent);
+        if (rents.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
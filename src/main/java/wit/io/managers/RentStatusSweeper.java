@@ -0,0 +1,166 @@
+package wit.io.managers;
+
+import wit.io.data.Rent;
+import wit.io.data.enums.RentStatus;
+import wit.io.persistence.Mutation;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Keeps track of the dates on which ACTIVE rents change their status, so that a long-running
+ * {@link RentManager} can update them without scanning all rentals.
+ * Every ACTIVE rent has two pending transitions in a date-ordered queue:
+ * becoming OVERDUE on the day after its planned end date, and possibly FAILED on its start date
+ * (if its ski model has an OVERDUE rent by then). A rent that started while its ski had no OVERDUE rent
+ * is kept as started and fails once a rent of the same ski becomes OVERDUE, just like
+ * {@link RentManager} fails it when the rentals are read in.
+ * The transitions of a rent are dropped from the queue as soon as the rent is changed or removed.
+ */
+class RentStatusSweeper implements ManagerListener<Rent> {
+    /**
+     * Kinds of status transitions, in the order they are processed on the same day.
+     */
+    private enum Kind {
+        OVERDUE,
+        START
+    }
+
+    /**
+     * Single pending status check of a rent.
+     */
+    private static class Transition {
+        final LocalDate date;
+        final Kind kind;
+        final Rent rent;
+
+        /**
+         * Order in which the transition was scheduled, tells apart transitions of the same day and kind.
+         */
+        final long sequence;
+
+        Transition(LocalDate date, Kind kind, Rent rent, long sequence) {
+            this.date = date;
+            this.kind = kind;
+            this.rent = rent;
+            this.sequence = sequence;
+        }
+    }
+
+    private final TreeSet<Transition> pendingTransitions = new TreeSet<>(
+            Comparator.comparing((Transition transition) -> transition.date)
+                    .thenComparing(transition -> transition.kind)
+                    .thenComparingLong(transition -> transition.sequence));
+
+    private long nextSequence = 0;
+
+    /**
+     * Pending transitions of every ACTIVE rent, by ID.
+     */
+    private final Map<UUID, List<Transition>> transitionsByRent = new HashMap<>();
+
+    /**
+     * ACTIVE rents whose start date passed while their ski had no OVERDUE rent, by ski model and ID.
+     */
+    private final Map<String, Map<UUID, Rent>> startedRentsByModel = new HashMap<>();
+
+    /**
+     * Ski models that got an OVERDUE rent while having started ACTIVE rents, which have to fail.
+     */
+    private final Set<String> modelsToFail = new LinkedHashSet<>();
+
+    /**
+     * Ski model of every OVERDUE rent, by ID.
+     */
+    private final Map<UUID, String> overdueRents = new HashMap<>();
+
+    /**
+     * Number of OVERDUE rents of every ski model that has any.
+     */
+    private final Map<String, Integer> overdueCountByModel = new HashMap<>();
+
+    @Override
+    public void entityAdded(Rent rent) {
+        if (rent.getStatus() == RentStatus.ACTIVE) {
+            List<Transition> transitions = List.of(
+                    new Transition(rent.getEndDate().plusDays(1), Kind.OVERDUE, rent, nextSequence++),
+                    new Transition(rent.getStartDate(), Kind.START, rent, nextSequence++));
+            transitionsByRent.put(rent.getRentID(), new ArrayList<>(transitions));
+            pendingTransitions.addAll(transitions);
+        } else if (rent.getStatus() == RentStatus.OVERDUE) {
+            overdueRents.put(rent.getRentID(), rent.getSkiModel());
+            overdueCountByModel.merge(rent.getSkiModel(), 1, Integer::sum);
+            if (startedRentsByModel.containsKey(rent.getSkiModel())) {
+                modelsToFail.add(rent.getSkiModel());
+            }
+        }
+    }
+
+    @Override
+    public void entityRemoved(Rent rent) {
+        List<Transition> transitions = transitionsByRent.remove(rent.getRentID());
+        if (transitions != null) {
+            transitions.forEach(pendingTransitions::remove);
+        }
+        Map<UUID, Rent> started = startedRentsByModel.get(rent.getSkiModel());
+        if (started != null && started.remove(rent.getRentID()) != null && started.isEmpty()) {
+            startedRentsByModel.remove(rent.getSkiModel());
+        }
+        String overdueModel = overdueRents.remove(rent.getRentID());
+        if (overdueModel != null) {
+            overdueCountByModel.computeIfPresent(overdueModel, (model, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    @Override
+    public void entitiesReset(Set<Rent> rents) {
+        pendingTransitions.clear();
+        transitionsByRent.clear();
+        startedRentsByModel.clear();
+        modelsToFail.clear();
+        overdueRents.clear();
+        overdueCountByModel.clear();
+        for (Rent rent : rents) {
+            entityAdded(rent);
+        }
+    }
+
+    /**
+     * Finds the next status change that should have happened by the given day.
+     * The returned mutation has to be applied to the manager before calling this method again,
+     * so that an OVERDUE rent can fail the started rentals of the same ski.
+     * @param today the current date
+     * @return mutation replacing a rent with its updated version, or null if no rent has to be updated
+     */
+    Mutation<Rent> nextTransition(LocalDate today) {
+        while (!modelsToFail.isEmpty()) {
+            String model = modelsToFail.iterator().next();
+            Map<UUID, Rent> started = startedRentsByModel.get(model);
+            if (started == null || !overdueCountByModel.containsKey(model)) {
+                modelsToFail.remove(model);
+                continue;
+            }
+            Rent rent = started.values().iterator().next();
+            return Mutation.replace(rent, rent.setStatus(RentStatus.FAILED));
+        }
+
+        while (!pendingTransitions.isEmpty() && !pendingTransitions.first().date.isAfter(today)) {
+            Transition transition = pendingTransitions.pollFirst();
+            Rent rent = transition.rent;
+            List<Transition> transitions = transitionsByRent.get(rent.getRentID());
+            transitions.remove(transition);
+            if (transitions.isEmpty()) {
+                transitionsByRent.remove(rent.getRentID());
+            }
+
+            if (transition.kind == Kind.OVERDUE) {
+                return Mutation.replace(rent, rent.setStatus(RentStatus.OVERDUE).setUpdatedEndDate(today));
+            }
+            if (overdueCountByModel.containsKey(rent.getSkiModel())) {
+                return Mutation.replace(rent, rent.setStatus(RentStatus.FAILED));
+            }
+            startedRentsByModel.computeIfAbsent(rent.getSkiModel(), model -> new LinkedHashMap<>()).put(rent.getRentID(), rent);
+        }
+        return null;
+    }
+}
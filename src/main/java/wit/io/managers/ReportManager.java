@@ -6,17 +6,30 @@ import wit.io.data.Rent;
 import wit.io.data.enums.RentStatus;
 import wit.io.utils.Util;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Manages reporting functionality for ski rental operations, providing methods to track
  * available skis, rentals, and overdue equipment.
+ * The reports are read from a live view updated on every change of rents and skis, see {@link SkiAvailabilityView}.
+ * Every report lists the skis in the order of the ski inventory.
  */
 public class ReportManager {
+    private static final RentStatus[] RENTED_STATUSES = {RentStatus.ACTIVE, RentStatus.OVERDUE};
+
     private RentManager rentManager;
     private SkiManager skiManager;
+    private final SkiAvailabilityView view = new SkiAvailabilityView();
+
+    /**
+     * If true, every report read from the view is compared with the report computed from the rents.
+     */
+    private volatile boolean consistencyCheck = false;
 
     /**
      * Constructor for ReportManager
@@ -29,17 +42,71 @@ public class ReportManager {
         }
         this.rentManager = rentManager;
         this.skiManager = skiManager;
+
+        skiManager.addListenerAndReset(view.skiListener);
+        rentManager.addListenerAndReset(view.rentListener);
+    }
+
+    /**
+     * Enables or disables the consistency check mode, meant for tests.
+     * With the check enabled every report read from the live view is also computed from the rents,
+     * and a difference is reported by an IllegalStateException.
+     * @param enabled true to enable the check
+     */
+    public void setConsistencyCheck(boolean enabled) {
+        consistencyCheck = enabled;
+    }
+
+    /**
+     * Checks if the consistency check mode is enabled.
+     * @return true if reports are checked against reports computed from the rents
+     */
+    public boolean isConsistencyCheck() {
+        return consistencyCheck;
     }
 
     /**
      * Retrieves a collection of skis currently available for rental within the specified date range.
      * A ski is considered available if it is not currently rented out.
-     * @param startDate Date from which to check availability, required
+     * @param startDate Date from which to check availability (null defaults to current date)
      * @return Set of available Ski objects
      */
     public LinkedHashSet<Ski> availableSkis(LocalDate startDate) {
-        // wszystkie - na wypożyczeniu
-        return getSelectedSkisDifference(rentedSkis(startDate));
+        LocalDate date = (startDate == null) ? LocalDate.now() : startDate;
+        LinkedHashSet<Ski> result = view.available(date);
+        if (consistencyCheck) {
+            verify("available", result, computeAvailableSkis(date));
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves skis that are free for the whole given period, i.e. have no ACTIVE or OVERDUE rental
+     * (including future bookings) overlapping with it.
+     * Every ski is checked in the per-model interval index of rentals, see {@link RentManager#isSkiFree}.
+     * @param from First day of the period (inclusive), required
+     * @param to Last day of the period (inclusive), required
+     * @return Set of free Ski objects, in the order of the ski inventory
+     * @throws IllegalArgumentException if any argument is null or the period ends before it starts.
+     */
+    public LinkedHashSet<Ski> availableSkis(LocalDate from, LocalDate to) {
+        return freeSkis(skiManager.getEntities(), from, to);
+    }
+
+    /**
+     * Retrieves skis of given type that are free for the whole given period,
+     * see {@link #availableSkis(LocalDate, LocalDate)}.
+     * @param type Type of the skis, required
+     * @param from First day of the period (inclusive), required
+     * @param to Last day of the period (inclusive), required
+     * @return Set of free Ski objects of given type
+     * @throws IllegalArgumentException if any argument is null or the period ends before it starts.
+     */
+    public LinkedHashSet<Ski> availableSkis(SkiType type, LocalDate from, LocalDate to) {
+        if (Util.isAnyArgumentNull(type)) {
+            throw new IllegalArgumentException("type cannot be null.");
+        }
+        return freeSkis(skiManager.getSkisOfType(type), from, to);
     }
 
     /**
@@ -48,13 +115,11 @@ public class ReportManager {
      * @return Set of overdue Ski objects
      */
     public LinkedHashSet<Ski> overdueSkis() {
-        var selectedRents = rentManager.getEntities()
-                .stream()
-                .filter(e -> e.getStatus() == RentStatus.OVERDUE);
-
-        var selectedSkis = toSkiSet(selectedRents);
-        return getSelectedSkis(selectedSkis);
-
+        LinkedHashSet<Ski> result = view.overdue();
+        if (consistencyCheck) {
+            verify("overdue", result, computeOverdueSkis());
+        }
+        return result;
     }
 
     /**
@@ -64,53 +129,152 @@ public class ReportManager {
      * @return Set of currently rented Ski objects
      */
     public LinkedHashSet<Ski> rentedSkis(LocalDate startDate) {
-        // startDate now or before now
-        LocalDate startDateFilter = (startDate == null) ? LocalDate.now() : startDate;
-        var selectedRents = rentManager.getEntities()
-                .stream()
-                .filter(e -> e.getStatus() == RentStatus.ACTIVE || e.getStatus() == RentStatus.OVERDUE)
-                .filter(e -> !e.getStartDate().isAfter(startDateFilter));
+        LocalDate date = (startDate == null) ? LocalDate.now() : startDate;
+        LinkedHashSet<Ski> result = view.rented(date);
+        if (consistencyCheck) {
+            verify("rented", result, computeRentedSkis(date));
+        }
+        return result;
+    }
+
+    /**
+     * Computes available skis from the rents and the ski inventory.
+     * @param date Date from which to check availability
+     * @return Set of available Ski objects, in the order of the ski inventory
+     */
+    private LinkedHashSet<Ski> computeAvailableSkis(LocalDate date) {
+        // wszystkie - na wypożyczeniu
+        Set<String> rentedModels = rentedModels(date);
+        LinkedHashSet<Ski> result = new LinkedHashSet<>();
+        for (Ski ski : skiManager.getEntities()) {
+            if (!rentedModels.contains(ski.getModel())) {
+                result.add(ski);
+            }
+        }
+        return result;
+    }
 
-        var selectedSkis = toSkiSet(selectedRents);
-        return getSelectedSkis(selectedSkis);
-        // TODO: test if stream is empty at any stage
+    /**
+     * Computes overdue skis from the rents.
+     * @return Set of overdue Ski objects, in the order of the ski inventory
+     */
+    private LinkedHashSet<Ski> computeOverdueSkis() {
+        Set<String> overdueModels = new HashSet<>();
+        for (Rent rent : rentManager.search(null, null, null, null, null, null, RentStatus.OVERDUE)) {
+            overdueModels.add(rent.getSkiModel());
+        }
+        return skisOfModels(overdueModels);
     }
 
     /**
-     * Creates a filtered set containing only the skis present in both the full inventory
-     * and the selected skis collection.
-     * @param selectedSkis Collection of skis to compare against
-     * @return Filtered set of matching Ski objects
+     * Computes skis rented at given date from the rents.
+     * @param date Filter date for rentals
+     * @return Set of rented Ski objects, in the order of the ski inventory
      */
-    private LinkedHashSet<Ski> getSelectedSkis(LinkedHashSet<Ski> selectedSkis) {
-        var result = new LinkedHashSet<>(skiManager.getEntities());
-        result.retainAll(selectedSkis);
+    private LinkedHashSet<Ski> computeRentedSkis(LocalDate date) {
+        return skisOfModels(rentedModels(date));
+    }
 
+    /**
+     * Picks skis free for the whole given period.
+     * @param skis Skis to check
+     * @param from First day of the period (inclusive)
+     * @param to Last day of the period (inclusive)
+     * @return Set of free Ski objects
+     */
+    private LinkedHashSet<Ski> freeSkis(Collection<Ski> skis, LocalDate from, LocalDate to) {
+        if (Util.isAnyArgumentNull(from, to)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        LinkedHashSet<Ski> result = new LinkedHashSet<>();
+        for (Ski ski : skis) {
+            if (rentManager.isSkiFree(ski.getModel(), from, to)) {
+                result.add(ski);
+            }
+        }
+        if (consistencyCheck) {
+            verify("free", result, computeFreeSkis(skis, from, to));
+        }
         return result;
     }
 
     /**
-     * Creates a set containing all skis except those in the selected collection.
-     * Used to determine available skis by removing currently rented ones.
-     * @param selectedSkis Collection of skis to exclude
-     * @return Set of remaining Ski objects
+     * Computes skis free for the whole given period by scanning all rents.
+     * @param skis Skis to check
+     * @param from First day of the period (inclusive)
+     * @param to Last day of the period (inclusive)
+     * @return Set of free Ski objects
      */
-    private LinkedHashSet<Ski> getSelectedSkisDifference(LinkedHashSet<Ski> selectedSkis) {
-        var result = new LinkedHashSet<>(skiManager.getEntities());
-        result.removeAll(selectedSkis);
-
+    private LinkedHashSet<Ski> computeFreeSkis(Collection<Ski> skis, LocalDate from, LocalDate to) {
+        Set<String> bookedModels = new HashSet<>();
+        for (Rent rent : rentManager.getEntities()) {
+            boolean open = rent.getStatus() == RentStatus.ACTIVE || rent.getStatus() == RentStatus.OVERDUE;
+            if (open && !rent.getUpdatedEndDate().isBefore(from) && !rent.getStartDate().isAfter(to)) {
+                bookedModels.add(rent.getSkiModel());
+            }
+        }
+        LinkedHashSet<Ski> result = new LinkedHashSet<>();
+        for (Ski ski : skis) {
+            if (!bookedModels.contains(ski.getModel())) {
+                result.add(ski);
+            }
+        }
         return result;
     }
 
     /**
-     * Converts a stream of Rent objects to a set of corresponding Ski objects.
-     * Creates new Ski instances mapped from the rental records
-     * @param s Stream of Rent objects to convert
-     * @return Set of converted Ski objects
+     * Compares a report read from the live view with the report computed from the rents.
+     * @param report name of the report
+     * @param live report read from the view
+     * @param computed report computed from the rents
+     * @throws IllegalStateException if the reports contain different skis or list them in a different order.
      */
-    private LinkedHashSet<Ski> toSkiSet(Stream<Rent> s) {
-        return  s.map(Rent::getSkiModel)
-                .map(e -> new Ski(new SkiType("", ""), "", e, "", 0.0f))
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+    private static void verify(String report, Set<Ski> live, Set<Ski> computed) {
+        if (!new ArrayList<>(live).equals(new ArrayList<>(computed))) {
+            throw new IllegalStateException("Live " + report + " skis report " + live
+                    + " differs from computed report " + computed + ".");
+        }
+    }
+
+    /**
+     * Collects the models of skis rented at given date.
+     * @param date Filter date for rentals
+     * @return Set of ski models of ACTIVE and OVERDUE rentals
+     */
+    private Set<String> rentedModels(LocalDate date) {
+        Set<String> models = new HashSet<>();
+        for (RentStatus status : RENTED_STATUSES) {
+            for (Rent rent : rentedAt(date, status)) {
+                models.add(rent.getSkiModel());
+            }
+        }
+        return models;
+    }
+
+    /**
+     * Finds rents with given status that started at or before given date.
+     * @param date Filter date for rentals
+     * @param status Searched status
+     * @return List of matching rents
+     */
+    private List<Rent> rentedAt(LocalDate date, RentStatus status) {
+        // search picks the smaller of the status and start date indexes
+        return rentManager.search(null, null, null, date, null, null, status);
+    }
+
+    /**
+     * Picks the skis of given models from the ski inventory.
+     * Models of skis that are no longer in the inventory are skipped.
+     * @param models Models of the picked skis
+     * @return Set of Ski objects, in the order of the ski inventory
+     */
+    private LinkedHashSet<Ski> skisOfModels(Set<String> models) {
+        LinkedHashSet<Ski> result = new LinkedHashSet<>();
+        for (Ski ski : skiManager.getEntities()) {
+            if (models.contains(ski.getModel())) {
+                result.add(ski);
+            }
+        }
+        return result;
     }
 }
@@ -0,0 +1,274 @@
+package wit.io.managers;
+
+import wit.io.data.Rent;
+import wit.io.data.Ski;
+import wit.io.data.enums.RentStatus;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Live split of the ski inventory into available, rented and overdue skis, used by {@link ReportManager}.
+ * The view listens to a {@link RentManager} and a {@link SkiManager} and keeps per-model counters of
+ * open (ACTIVE or OVERDUE) rents, a ski moves between the sets when its counters change from or to zero,
+ * so every change costs O(log n) and every read costs O(result).
+ * The sets hold all open rents regardless of their start date. The view also keeps the models by the earliest
+ * start of their open rents, a query for a date moves only the skis whose open rents all start after it
+ * from the rented to the available skis.
+ * Every set is ordered by the position of its skis in the inventory, the order the SkiManager keeps them in.
+ * All methods synchronize on the view, listeners may be notified from any thread.
+ */
+class SkiAvailabilityView {
+    private final Map<String, Ski> skisByModel = new HashMap<>();
+
+    /**
+     * Position of every ski, by model, in the order skis were added to the inventory.
+     */
+    private final Map<String, Long> positions = new HashMap<>();
+    private long nextPosition;
+
+    /**
+     * Counted version of every open rent, used to uncount a rent by its ID.
+     */
+    private final Map<UUID, Rent> openRents = new HashMap<>();
+    private final Map<String, Integer> rentedCounts = new HashMap<>();
+    private final Map<String, Integer> overdueCounts = new HashMap<>();
+
+    /**
+     * Number of open rents of every model by the epoch day they start on.
+     */
+    private final Map<String, TreeMap<Long, Integer>> openStartsByModel = new HashMap<>();
+
+    /**
+     * Models with open rents by the epoch day the earliest of their open rents starts on.
+     */
+    private final TreeMap<Long, Set<String>> modelsByFirstStart = new TreeMap<>();
+
+    private final TreeMap<Long, Ski> available = new TreeMap<>();
+    private final TreeMap<Long, Ski> rented = new TreeMap<>();
+    private final TreeMap<Long, Ski> overdue = new TreeMap<>();
+
+    /**
+     * Listener to register with the RentManager.
+     */
+    final ManagerListener<Rent> rentListener = new ManagerListener<>() {
+        @Override
+        public void entityAdded(Rent rent) {
+            rentAdded(rent);
+        }
+
+        @Override
+        public void entityRemoved(Rent rent) {
+            rentRemoved(rent);
+        }
+
+        @Override
+        public void entitiesReset(Set<Rent> rents) {
+            rentsReset(rents);
+        }
+    };
+
+    /**
+     * Listener to register with the SkiManager.
+     */
+    final ManagerListener<Ski> skiListener = new ManagerListener<>() {
+        @Override
+        public void entityAdded(Ski ski) {
+            skiAdded(ski);
+        }
+
+        @Override
+        public void entityRemoved(Ski ski) {
+            skiRemoved(ski);
+        }
+
+        @Override
+        public void entitiesReset(Set<Ski> skis) {
+            skisReset(skis);
+        }
+    };
+
+    /**
+     * Gets skis without open rents started on or before given date.
+     * @param date date of the query
+     * @return copy of the available skis, in the order of the ski inventory
+     */
+    synchronized LinkedHashSet<Ski> available(LocalDate date) {
+        List<Ski> notYetRented = notYetRented(date);
+        if (notYetRented.isEmpty()) {
+            return new LinkedHashSet<>(available.values());
+        }
+        TreeMap<Long, Ski> result = new TreeMap<>(available);
+        for (Ski ski : notYetRented) {
+            result.put(positions.get(ski.getModel()), ski);
+        }
+        return new LinkedHashSet<>(result.values());
+    }
+
+    /**
+     * Gets skis with at least one open rent started on or before given date.
+     * @param date date of the query
+     * @return copy of the rented skis, in the order of the ski inventory
+     */
+    synchronized LinkedHashSet<Ski> rented(LocalDate date) {
+        LinkedHashSet<Ski> result = new LinkedHashSet<>(rented.values());
+        result.removeAll(new HashSet<>(notYetRented(date)));
+        return result;
+    }
+
+    /**
+     * Gets skis with at least one OVERDUE rent.
+     * @return copy of the overdue skis, in the order of the ski inventory
+     */
+    synchronized LinkedHashSet<Ski> overdue() {
+        return new LinkedHashSet<>(overdue.values());
+    }
+
+    /**
+     * Collects skis with open rents that all start after given date.
+     * @param date date of the query
+     * @return skis counted as rented that are not rented yet at the date
+     */
+    private List<Ski> notYetRented(LocalDate date) {
+        List<Ski> skis = new ArrayList<>();
+        for (Set<String> models : modelsByFirstStart.tailMap(date.toEpochDay(), false).values()) {
+            for (String model : models) {
+                Ski ski = skisByModel.get(model);
+                if (ski != null) {
+                    skis.add(ski);
+                }
+            }
+        }
+        return skis;
+    }
+
+    private synchronized void rentAdded(Rent rent) {
+        rentRemoved(rent);
+        if (rent.getStatus() == RentStatus.ACTIVE || rent.getStatus() == RentStatus.OVERDUE) {
+            openRents.put(rent.getRentID(), rent);
+            count(rent, 1);
+        }
+    }
+
+    private synchronized void rentRemoved(Rent rent) {
+        Rent previous = openRents.remove(rent.getRentID());
+        if (previous != null) {
+            count(previous, -1);
+        }
+    }
+
+    private synchronized void rentsReset(Set<Rent> rents) {
+        openRents.clear();
+        rentedCounts.clear();
+        overdueCounts.clear();
+        openStartsByModel.clear();
+        modelsByFirstStart.clear();
+        for (Rent rent : rents) {
+            rentAdded(rent);
+        }
+        placeAll();
+    }
+
+    private synchronized void skiAdded(Ski ski) {
+        skiRemoved(ski);
+        skisByModel.put(ski.getModel(), ski);
+        positions.put(ski.getModel(), nextPosition++);
+        place(ski);
+    }
+
+    private synchronized void skiRemoved(Ski ski) {
+        if (skisByModel.remove(ski.getModel()) != null) {
+            Long position = positions.remove(ski.getModel());
+            available.remove(position);
+            rented.remove(position);
+            overdue.remove(position);
+        }
+    }
+
+    private synchronized void skisReset(Set<Ski> skis) {
+        skisByModel.clear();
+        positions.clear();
+        nextPosition = 0;
+        for (Ski ski : skis) {
+            skisByModel.put(ski.getModel(), ski);
+            positions.put(ski.getModel(), nextPosition++);
+        }
+        placeAll();
+    }
+
+    private void count(Rent rent, int delta) {
+        String model = rent.getSkiModel();
+        boolean wasRented = rentedCounts.containsKey(model);
+        boolean wasOverdue = overdueCounts.containsKey(model);
+
+        add(rentedCounts, model, delta);
+        if (rent.getStatus() == RentStatus.OVERDUE) {
+            add(overdueCounts, model, delta);
+        }
+        countStart(model, rent.getStartDate().toEpochDay(), delta);
+
+        Ski ski = skisByModel.get(model);
+        if (ski != null && (wasRented != rentedCounts.containsKey(model) || wasOverdue != overdueCounts.containsKey(model))) {
+            place(ski);
+        }
+    }
+
+    /**
+     * Counts an open rent start of a model and moves the model to its new earliest start day.
+     */
+    private void countStart(String model, long startDay, int delta) {
+        TreeMap<Long, Integer> starts = openStartsByModel.computeIfAbsent(model, key -> new TreeMap<>());
+        Long firstStart = starts.isEmpty() ? null : starts.firstKey();
+        add(starts, startDay, delta);
+        Long newFirstStart = starts.isEmpty() ? null : starts.firstKey();
+        if (starts.isEmpty()) {
+            openStartsByModel.remove(model);
+        }
+        if (Objects.equals(firstStart, newFirstStart)) {
+            return;
+        }
+        if (firstStart != null) {
+            Set<String> models = modelsByFirstStart.get(firstStart);
+            models.remove(model);
+            if (models.isEmpty()) {
+                modelsByFirstStart.remove(firstStart);
+            }
+        }
+        if (newFirstStart != null) {
+            modelsByFirstStart.computeIfAbsent(newFirstStart, day -> new HashSet<>()).add(model);
+        }
+    }
+
+    /**
+     * Moves a ski to the sets matching its counters.
+     */
+    private void place(Ski ski) {
+        String model = ski.getModel();
+        Long position = positions.get(model);
+        if (rentedCounts.containsKey(model)) {
+            available.remove(position);
+            rented.put(position, ski);
+        } else {
+            rented.remove(position);
+            available.put(position, ski);
+        }
+        if (overdueCounts.containsKey(model)) {
+            overdue.put(position, ski);
+        } else {
+            overdue.remove(position);
+        }
+    }
+
+    private void placeAll() {
+        available.clear();
+        rented.clear();
+        overdue.clear();
+        for (Ski ski : skisByModel.values()) {
+            place(ski);
+        }
+    }
+
+    private static <K> void add(Map<K, Integer> counts, K key, int delta) {
+        counts.merge(key, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+}
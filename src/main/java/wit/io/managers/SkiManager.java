@@ -5,10 +5,14 @@ import wit.io.exceptions.ReadingException;
 import wit.io.exceptions.WritingException;
 import wit.io.data.Ski;
 import wit.io.data.SkiType;
+import wit.io.utils.Const;
 import wit.io.utils.Util;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -18,13 +22,48 @@ import java.util.stream.Stream;
  * This class handles Ski class interactions between the user and data.
  */
 public class SkiManager extends Manager<Ski> {
+    /**
+     * Trigram indexes of ski brands, models and bindings used by search.
+     */
+    private final ContainsIndex<Ski> brandIndex = new ContainsIndex<>(Ski::getFoldedBrand);
+    private final ContainsIndex<Ski> modelIndex = new ContainsIndex<>(Ski::getFoldedModel);
+    private final ContainsIndex<Ski> bondsIndex = new ContainsIndex<>(Ski::getFoldedBonds);
+
+    /**
+     * Skis by their model, the primary key.
+     */
+    private final KeyIndex<String, Ski> skisByModel = new KeyIndex<>(Ski::getModel);
+
+    /**
+     * Skis grouped by their type.
+     */
+    private final GroupIndex<SkiType, Ski> skisByType = new GroupIndex<>(Ski::getType);
+
     /**
      * Constructor for SkiManager.
      * @param filePath path to the file where Ski data is/will be stored, required argument.
      * @throws ReadingException if the path is null.
      */
     public SkiManager(String filePath) throws ReadingException {
-        super(filePath);
+        this(filePath, Const.IOBufferSize);
+    }
+
+    /**
+     * Constructor for SkiManager using given size of the I/O buffers, also for reading the existing data.
+     * @param filePath path to the file where Ski data is/will be stored, required argument.
+     * @param bufferSize size in bytes of the buffers used when reading and writing the data file, has to be positive
+     * @throws ReadingException if the path is null.
+     */
+    public SkiManager(String filePath, int bufferSize) throws ReadingException {
+        super(filePath, bufferSize);
+        for (ContainsIndex<Ski> index : List.of(brandIndex, modelIndex, bondsIndex)) {
+            index.entitiesReset(dataEntities);
+            addListener(index);
+        }
+        skisByModel.entitiesReset(dataEntities);
+        addListener(skisByModel);
+        skisByType.entitiesReset(dataEntities);
+        addListener(skisByType);
     }
 
     /**
@@ -38,10 +77,39 @@ public class SkiManager extends Manager<Ski> {
         readFromFile(Ski::readData);
     }
 
+    /**
+     * Finds the ski of given model.
+     * @param model The model name of the ski, its primary key.
+     * @return The ski of given model, or null if there is no such ski.
+     */
+    public Ski getSkiByModel(String model) {
+        entityLock.readLock().lock();
+        try {
+            return skisByModel.get(model);
+        } finally {
+            entityLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lists the skis of given type.
+     * @param type The SkiType of the skis.
+     * @return A new set of the skis of given type, in the order they were added.
+     */
+    public LinkedHashSet<Ski> getSkisOfType(SkiType type) {
+        entityLock.readLock().lock();
+        try {
+            return new LinkedHashSet<>(skisByType.get(type));
+        } finally {
+            entityLock.readLock().unlock();
+        }
+    }
+
     /**
      * Searches for skis based on the provided criteria.
      * Multiple criteria can be combined to narrow down the search results.
      * If a parameter is null, it is not used as a filter.
+     * The contains filters are looked up in trigram indexes, only the skis matching the most selective one are checked.
      *
      * @param type The SkiType of the ski to search for (exact match).
      * @param brand The brand of the ski to search for (contains match).
@@ -52,34 +120,53 @@ public class SkiManager extends Manager<Ski> {
      * @return An ArrayList of Ski instances that match all specified non-null criteria.
      */
     public ArrayList<Ski> search(SkiType type, String brand, String model, String bonds, Float minLength, Float maxLength) {
-        Stream<Ski> stream = getEntities().stream();
+        String foldedBrand = brand == null ? null : Util.foldCase(brand);
+        String foldedModel = model == null ? null : Util.foldCase(model);
+        String foldedBonds = bonds == null ? null : Util.foldCase(bonds);
 
-        // DRY? what's that.
-        if(type != null) {
-            stream = stream.filter(ski -> ski.getType().equals(type));
-        }
+        entityLock.readLock().lock();
+        try {
+            Collection<Ski> candidates = null;
+            if(brand != null) {
+                candidates = ContainsIndex.smaller(candidates, brandIndex.search(foldedBrand));
+            }
+            if(model != null) {
+                candidates = ContainsIndex.smaller(candidates, modelIndex.search(foldedModel));
+            }
+            if(bonds != null) {
+                candidates = ContainsIndex.smaller(candidates, bondsIndex.search(foldedBonds));
+            }
+            Stream<Ski> stream = (candidates == null ? getEntities() : candidates).stream();
 
-        if(brand != null) {
-            stream = stream.filter(ski -> Util.containsString(ski.getBrand(), brand));
-        }
+            // DRY? what's that.
+            if(type != null) {
+                stream = stream.filter(ski -> ski.getType().equals(type));
+            }
 
-        if(model != null) {
-            stream = stream.filter(ski -> Util.containsString(ski.getModel(), model));
-        }
+            if(brand != null) {
+                stream = stream.filter(ski -> ski.getFoldedBrand().contains(foldedBrand));
+            }
 
-        if(bonds != null) {
-            stream = stream.filter(ski -> Util.containsString(ski.getBonds(), bonds));
-        }
+            if(model != null) {
+                stream = stream.filter(ski -> ski.getFoldedModel().contains(foldedModel));
+            }
 
-        if(minLength != null) {
-            stream = stream.filter(ski -> ski.getLength() >= minLength);
-        }
+            if(bonds != null) {
+                stream = stream.filter(ski -> ski.getFoldedBonds().contains(foldedBonds));
+            }
 
-        if(maxLength != null) {
-            stream = stream.filter(ski -> ski.getLength() <= maxLength);
-        }
+            if(minLength != null) {
+                stream = stream.filter(ski -> ski.getLength() >= minLength);
+            }
 
-        return stream.collect(Collectors.toCollection(ArrayList::new));
+            if(maxLength != null) {
+                stream = stream.filter(ski -> ski.getLength() <= maxLength);
+            }
+
+            return stream.collect(Collectors.toCollection(ArrayList::new));
+        } finally {
+            entityLock.readLock().unlock();
+        }
 
     }
 }
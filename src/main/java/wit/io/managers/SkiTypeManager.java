@@ -5,6 +5,7 @@ import wit.io.data.Ski;
 import wit.io.exceptions.ReadingException;
 import wit.io.exceptions.WritingException;
 import wit.io.data.SkiType;
+import wit.io.utils.Const;
 import wit.io.utils.Util;
 
 import java.io.*;
@@ -18,13 +19,30 @@ import java.util.stream.Stream;
  * This class handles SkiType class interactions between the user and data.
  */
 public class SkiTypeManager extends Manager<SkiType> {
+    /**
+     * Trigram index of ski type descriptions used by search.
+     */
+    private final ContainsIndex<SkiType> descriptionIndex = new ContainsIndex<>(SkiType::getFoldedDescription);
+
     /**
      * Constructor for SkiTypeManager.
      * @param filePath path to the file where SkiType data is/will be stored, required argument.
      * @throws ReadingException if the path is null.
      */
     public SkiTypeManager(String filePath) throws ReadingException {
-        super(filePath);
+        this(filePath, Const.IOBufferSize);
+    }
+
+    /**
+     * Constructor for SkiTypeManager using given size of the I/O buffers, also for reading the existing data.
+     * @param filePath path to the file where SkiType data is/will be stored, required argument.
+     * @param bufferSize size in bytes of the buffers used when reading and writing the data file, has to be positive
+     * @throws ReadingException if the path is null.
+     */
+    public SkiTypeManager(String filePath, int bufferSize) throws ReadingException {
+        super(filePath, bufferSize);
+        descriptionIndex.entitiesReset(dataEntities);
+        addListener(descriptionIndex);
     }
 
     /**
@@ -44,22 +62,32 @@ public class SkiTypeManager extends Manager<SkiType> {
      * Searches for ski types based on the provided criteria.
      * Multiple criteria can be combined to narrow down the search results.
      * If a parameter is null, it is not used as a filter.
+     * The description filter is looked up in a trigram index.
      *
      * @param nameSuffix The suffix of the ski type name to search for (starts with match)..
      * @param partialDescription A partial string to match within the ski type's description (contains match).
      * @return An ArrayList of SkiType instances that match all specified non-null criteria.
      */
     public ArrayList<SkiType> search(String nameSuffix, String partialDescription) {
-        Stream<SkiType> stream = getEntities().stream();
+        String foldedName = nameSuffix == null ? null : Util.foldCase(nameSuffix);
+        String foldedDescription = partialDescription == null ? null : Util.foldCase(partialDescription);
 
-        if(nameSuffix != null) {
-            stream = stream.filter(ski -> Util.startsWithString(ski.getName(), nameSuffix));
-        }
+        entityLock.readLock().lock();
+        try {
+            Stream<SkiType> stream = (partialDescription == null
+                    ? getEntities() : descriptionIndex.search(foldedDescription)).stream();
 
-        if(partialDescription != null) {
-            stream = stream.filter(ski -> Util.containsString(ski.getDescription(), partialDescription));
-        }
+            if(nameSuffix != null) {
+                stream = stream.filter(ski -> ski.getFoldedName().startsWith(foldedName));
+            }
+
+            if(partialDescription != null) {
+                stream = stream.filter(ski -> ski.getFoldedDescription().contains(foldedDescription));
+            }
 
-        return stream.collect(Collectors.toCollection(ArrayList::new));
+            return stream.collect(Collectors.toCollection(ArrayList::new));
+        } finally {
+            entityLock.readLock().unlock();
+        }
     }
 }
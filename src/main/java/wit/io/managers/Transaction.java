@@ -0,0 +1,124 @@
+package wit.io.managers;
+
+import wit.io.exceptions.*;
+import wit.io.persistence.Mutation;
+import wit.io.utils.Util;
+import wit.io.utils.Writeable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes of several managers buffered until they are committed together, see {@link TransactionManager#begin()}.
+ * Nothing is changed before {@link #commit()}. A transaction is meant to be used by a single thread
+ * and can be committed only once, whether or not the commit succeeds.
+ */
+public class Transaction {
+    private final TransactionManager transactionManager;
+
+    /**
+     * Buffered mutations of every changed manager, in the order they were given.
+     */
+    private final Map<Manager<?>, List<Mutation<?>>> changes = new LinkedHashMap<>();
+    private boolean finished = false;
+
+    /**
+     * Constructor for Transaction.
+     * @param transactionManager the TransactionManager committing the transaction
+     */
+    Transaction(TransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Buffers adding a new entity. Like with {@link Manager#addAll}, the entity is added as given.
+     * @param manager The manager the entity should be added to.
+     * @param newEntity The entity to be added.
+     * @return this transaction
+     * @param <T> The type of entities managed by the manager.
+     * @throws IllegalArgumentException If any argument is null or the manager is not part of the TransactionManager.
+     * @throws IllegalStateException If the transaction was already committed.
+     */
+    public <T extends Writeable> Transaction add(Manager<T> manager, T newEntity) {
+        if (Util.isAnyArgumentNull(manager, newEntity)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        return apply(manager, Mutation.add(newEntity));
+    }
+
+    /**
+     * Buffers removing an existing entity.
+     * @param manager The manager the entity should be removed from.
+     * @param entity The entity to be removed.
+     * @return this transaction
+     * @param <T> The type of entities managed by the manager.
+     * @throws IllegalArgumentException If any argument is null or the manager is not part of the TransactionManager.
+     * @throws IllegalStateException If the transaction was already committed.
+     */
+    public <T extends Writeable> Transaction remove(Manager<T> manager, T entity) {
+        if (Util.isAnyArgumentNull(manager, entity)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        return apply(manager, Mutation.remove(entity));
+    }
+
+    /**
+     * Buffers replacing an existing entity with a new one.
+     * @param manager The manager holding the entity.
+     * @param oldEntity The entity to be replaced.
+     * @param newEntity The new entity that will replace the old one.
+     * @return this transaction
+     * @param <T> The type of entities managed by the manager.
+     * @throws IllegalArgumentException If any argument is null or the manager is not part of the TransactionManager.
+     * @throws IllegalStateException If the transaction was already committed.
+     */
+    public <T extends Writeable> Transaction edit(Manager<T> manager, T oldEntity, T newEntity) {
+        if (Util.isAnyArgumentNull(manager, oldEntity, newEntity)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        return apply(manager, Mutation.replace(oldEntity, newEntity));
+    }
+
+    /**
+     * Buffers a mutation of given manager.
+     * @param manager The manager the mutation should be applied to.
+     * @param mutation The mutation to apply.
+     * @return this transaction
+     * @param <T> The type of entities managed by the manager.
+     * @throws IllegalArgumentException If any argument is null or the manager is not part of the TransactionManager.
+     * @throws IllegalStateException If the transaction was already committed.
+     */
+    public <T extends Writeable> Transaction apply(Manager<T> manager, Mutation<T> mutation) {
+        if (Util.isAnyArgumentNull(manager, mutation)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        if (finished) {
+            throw new IllegalStateException("Transaction was already committed.");
+        }
+        if (!transactionManager.manages(manager)) {
+            throw new IllegalArgumentException("manager is not part of the TransactionManager.");
+        }
+        changes.computeIfAbsent(manager, key -> new ArrayList<>()).add(mutation);
+        return this;
+    }
+
+    /**
+     * Commits all buffered changes at once, see {@link TransactionManager}.
+     * Every manager checks its changes like {@link Manager#applyBatch(List)} does, taking the changes before them
+     * into account, nothing is changed if any of the checks fails.
+     * @throws EntityNotPresentException If an entity removed or replaced by the transaction is not present.
+     * @throws EntityAlreadyPresentException If an entity added by the transaction is already present.
+     * @throws WritingException If an error occurs while writing the transaction log or the data files.
+     * @throws SkiAppException If the changes are rejected by one of the managers.
+     * @throws IllegalStateException If the transaction was already committed.
+     */
+    public void commit() throws EntityNotPresentException, EntityAlreadyPresentException, WritingException, SkiAppException {
+        if (finished) {
+            throw new IllegalStateException("Transaction was already committed.");
+        }
+        finished = true;
+        transactionManager.commit(changes);
+    }
+}
@@ -0,0 +1,301 @@
+package wit.io.managers;
+
+import wit.io.data.Client;
+import wit.io.data.Rent;
+import wit.io.data.Ski;
+import wit.io.data.SkiType;
+import wit.io.exceptions.*;
+import wit.io.persistence.Mutation;
+import wit.io.persistence.TransactionLog;
+import wit.io.utils.IOThrowableFunction;
+import wit.io.utils.Util;
+import wit.io.utils.Writeable;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Commits changes spanning the SkiTypeManager, SkiManager, ClientManager and RentManager atomically,
+ * e.g. removing a ski type together with its skis, or returning a rent while changing its ski.
+ * <p>
+ * A transaction ({@link #begin()}) buffers its changes. On commit the write locks of all changed managers are taken,
+ * always in the order the managers were given to the constructor, every manager checks its part of the changes, and
+ * all changes are written to a shared {@link TransactionLog} as a single record, forced to the disk once for all
+ * transactions committed at the same time. Only then the changes are applied and every manager saves its part,
+ * after which the transaction is marked done in the log. The managers are not changed by anyone else until then,
+ * so a transaction found in the log but not marked done is redone on top of the saved data by the next
+ * TransactionManager created for the same log. A crash can come between the saves of two parts, so every part
+ * is redone only if its manager has not saved it yet, see {@link Manager#redoTransaction(List)}.
+ * <p>
+ * If a manager fails to save its part, the transaction stays in the log and is redone by the next recovery.
+ * The managers that saved their part are recorded as saved in the log, so they can be changed again, while
+ * the managers that failed reject every change until {@link #checkpoint()} saves all managers and clears the log.
+ */
+public class TransactionManager {
+    /**
+     * Managers changed by transactions, in the order their locks are taken. The index of a manager
+     * identifies it in the transaction log.
+     */
+    private final List<Manager<?>> managers;
+    private final TransactionLog log;
+
+    /**
+     * Constructor for TransactionManager.
+     * Transactions committed to the log but not marked done are redone and saved by all managers.
+     * @param logPath The path to the file the transaction log is stored in.
+     * @param skiTypeManager the SkiTypeManager
+     * @param skiManager the SkiManager
+     * @param clientManager the ClientManager
+     * @param rentManager the RentManager
+     * @throws IllegalArgumentException If any argument is null.
+     * @throws ReadingException If an error occurs while reading the transaction log.
+     * @throws WritingException If an error occurs while saving the redone transactions.
+     */
+    public TransactionManager(String logPath, SkiTypeManager skiTypeManager, SkiManager skiManager,
+                              ClientManager clientManager, RentManager rentManager) throws ReadingException, WritingException {
+        if (Util.isAnyArgumentNull(logPath, skiTypeManager, skiManager, clientManager, rentManager)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        managers = List.of(skiTypeManager, skiManager, clientManager, rentManager);
+        log = new TransactionLog(new File(logPath));
+        recover(List.of(SkiType::readData, Ski::readData, Client::readData, Rent::readData));
+    }
+
+    /**
+     * Starts a new transaction.
+     * @return an empty transaction
+     */
+    public Transaction begin() {
+        return new Transaction(this);
+    }
+
+    /**
+     * Checks if a manager is changed by transactions of this TransactionManager.
+     * @param manager the manager
+     * @return true if the manager is one of the managers given to the constructor
+     */
+    boolean manages(Manager<?> manager) {
+        return managers.stream().anyMatch(managed -> managed == manager);
+    }
+
+    /**
+     * Commits the changes of a transaction, see {@link Transaction#commit()}.
+     * @param changes buffered mutations of every changed manager
+     */
+    void commit(Map<Manager<?>, List<Mutation<?>>> changes)
+            throws EntityNotPresentException, EntityAlreadyPresentException, WritingException, SkiAppException {
+        List<Part<?>> parts = new ArrayList<>();
+        for (int i = 0; i < managers.size(); i++) {
+            List<Mutation<?>> mutations = changes.get(managers.get(i));
+            if (mutations != null) {
+                parts.add(Part.of(i, managers.get(i), mutations));
+            }
+        }
+        if (parts.isEmpty()) {
+            return;
+        }
+
+        long transactionId;
+        int locked = 0;
+        boolean applied = false;
+        try {
+            for (Part<?> part : parts) {
+                part.manager.entityLock.writeLock().lock();
+                locked++;
+            }
+            List<TransactionLog.Change> logged = new ArrayList<>();
+            for (Part<?> part : parts) {
+                part.prepare();
+                for (Mutation<?> mutation : part.mutations) {
+                    logged.add(new TransactionLog.Change(part.index, mutation));
+                }
+            }
+            try {
+                transactionId = log.commit(logged);
+            } catch (IOException e) {
+                throw new WritingException(e);
+            }
+            for (Part<?> part : parts) {
+                part.apply();
+            }
+            applied = true;
+        } finally {
+            if (!applied) {
+                for (int i = 0; i < locked; i++) {
+                    parts.get(i).manager.entityLock.writeLock().unlock();
+                }
+            }
+        }
+
+        // readers can proceed while the parts are saved, writers wait until the transaction is done
+        for (Part<?> part : parts) {
+            part.manager.entityLock.readLock().lock();
+            part.manager.entityLock.writeLock().unlock();
+        }
+        try {
+            WritingException failure = null;
+            List<Part<?>> failed = new ArrayList<>();
+            List<Integer> saved = new ArrayList<>();
+            for (Part<?> part : parts) {
+                try {
+                    part.persist();
+                    saved.add(part.index);
+                } catch (WritingException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    failed.add(part);
+                }
+            }
+            if (failure != null) {
+                if (!saved.isEmpty()) {
+                    try {
+                        log.saved(transactionId, saved);
+                    } catch (IOException e) {
+                        // every part is redone by the next recovery, so none of them may be changed until then
+                        failed = parts;
+                    }
+                }
+                for (Part<?> part : failed) {
+                    part.manager.blockWrites();
+                }
+                throw failure;
+            }
+            try {
+                log.done(transactionId);
+            } catch (IOException e) {
+                throw new WritingException(e);
+            }
+        } finally {
+            for (Part<?> part : parts) {
+                part.manager.entityLock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Saves all managers as new snapshots and clears the transaction log,
+     * so no transaction in it is redone. Waits until no transaction is being committed.
+     * Managers that failed to save their part of a transaction accept changes again afterwards.
+     * @throws WritingException If an error occurs while saving a manager or clearing the log.
+     */
+    public void checkpoint() throws WritingException {
+        int locked = 0;
+        try {
+            for (Manager<?> manager : managers) {
+                manager.entityLock.writeLock().lock();
+                locked++;
+            }
+            for (Manager<?> manager : managers) {
+                manager.writeToFile();
+            }
+            log.clear();
+            for (Manager<?> manager : managers) {
+                manager.unblockWrites();
+            }
+        } catch (IOException e) {
+            throw new WritingException(e);
+        } finally {
+            for (int i = 0; i < locked; i++) {
+                managers.get(i).entityLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Redoes every transaction committed to the log but not marked done, saves the changed managers and clears the log.
+     * Parts recorded as saved in the log are skipped, as their managers may have been changed since. Every other part
+     * was not changed by anyone else after the transaction, so its manager was saved either with the whole part or
+     * without it, and the part is redone only in the latter case.
+     * @param readFuncs function reading a single entity of every manager, in the order of {@link #managers}
+     */
+    private void recover(List<IOThrowableFunction<DataInputStream, ? extends Writeable>> readFuncs)
+            throws ReadingException, WritingException {
+        List<TransactionLog.OpenTransaction> transactions;
+        try {
+            transactions = log.replay(readFuncs);
+        } catch (IOException e) {
+            throw new ReadingException(e);
+        }
+
+        Set<Manager<?>> changed = new LinkedHashSet<>();
+        for (TransactionLog.OpenTransaction transaction : transactions) {
+            Map<Integer, List<Mutation<?>>> unsavedParts = new TreeMap<>();
+            for (TransactionLog.Change change : transaction.getChanges()) {
+                if (!transaction.getSavedParts().contains(change.getPart())) {
+                    unsavedParts.computeIfAbsent(change.getPart(), part -> new ArrayList<>()).add(change.getMutation());
+                }
+            }
+            for (Map.Entry<Integer, List<Mutation<?>>> part : unsavedParts.entrySet()) {
+                Manager<?> manager = managers.get(part.getKey());
+                if (redo(Part.of(part.getKey(), manager, part.getValue()))) {
+                    changed.add(manager);
+                }
+            }
+        }
+        for (Manager<?> manager : changed) {
+            manager.writeToFile();
+        }
+        try {
+            log.clear();
+        } catch (IOException e) {
+            throw new WritingException(e);
+        }
+    }
+
+    private static boolean redo(Part<?> part) {
+        part.manager.entityLock.writeLock().lock();
+        try {
+            return part.redo();
+        } finally {
+            part.manager.entityLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mutations of a transaction changing a single manager.
+     * @param <T> The type of entities managed by the manager.
+     */
+    private static final class Part<T extends Writeable> {
+        private final int index;
+        private final Manager<T> manager;
+        private List<Mutation<T>> mutations;
+
+        private Part(int index, Manager<T> manager, List<Mutation<T>> mutations) {
+            this.index = index;
+            this.manager = manager;
+            this.mutations = mutations;
+        }
+
+        /**
+         * Creates the part of a manager, the mutations were buffered for it by {@link Transaction},
+         * which only accepts mutations of the manager's entity type.
+         */
+        @SuppressWarnings("unchecked")
+        private static <T extends Writeable> Part<T> of(int index, Manager<T> manager, List<Mutation<?>> mutations) {
+            List<Mutation<T>> typed = new ArrayList<>(mutations.size());
+            for (Mutation<?> mutation : mutations) {
+                typed.add((Mutation<T>) mutation);
+            }
+            return new Part<>(index, manager, typed);
+        }
+
+        private void prepare() throws SkiAppException {
+            mutations = manager.prepareTransaction(mutations);
+        }
+
+        private void apply() {
+            manager.applyTransaction(mutations);
+        }
+
+        private boolean redo() {
+            return manager.redoTransaction(mutations);
+        }
+
+        private void persist() throws WritingException {
+            manager.persistTransaction(mutations);
+        }
+    }
+}
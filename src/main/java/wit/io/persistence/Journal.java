@@ -0,0 +1,299 @@
+package wit.io.persistence;
+
+import wit.io.utils.Const;
+import wit.io.utils.IOThrowableFunction;
+import wit.io.utils.Writeable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of {@link Mutation}s applied to a managed set of entities.
+ * Instead of rewriting the whole data file after every change, a Manager can append
+ * the change here, which costs I/O proportional to the size of the change only.
+ * The journal is replayed on top of the last snapshot when the data is read in,
+ * and cleared every time a new snapshot is written.
+ * <p>
+ * File layout: magic number, format version, then records of the form
+ * payload length, payload (one serialized Mutation), CRC32 of the payload.
+ * A record cut short by a crash is detected by its length or checksum and dropped on replay.
+ * @param <T> The type of the journaled entities, which MUST implement {@link Writeable}.
+ */
+public class Journal<T extends Writeable> {
+    /**
+     * Marks the beginning of a journal file.
+     */
+    static final int MAGIC = 0x4E4A524E;
+
+    /**
+     * Version of the journal file format, always the same as the version of the data file format.
+     * Version 1 journals hold entities in the legacy format, all later versions share the same record format.
+     */
+    static final int VERSION = Const.DataFileVersion;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * The file mutations are appended to.
+     */
+    private final File file;
+
+    /**
+     * Size in bytes of the buffer used when appending records.
+     */
+    private int bufferSize = Const.IOBufferSize;
+
+    /**
+     * Number of records currently stored in the journal file.
+     */
+    private int recordCount;
+
+    /**
+     * True if the last replayed journal file was written in the legacy format.
+     */
+    private boolean legacyFormat;
+
+    /**
+     * Constructor for Journal.
+     * @param file file the mutations should be appended to, required argument
+     * @throws IllegalArgumentException if file is null.
+     */
+    public Journal(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null.");
+        }
+        this.file = file;
+    }
+
+    /**
+     * Checks if the journal file exists on disk.
+     * @return true if the journal file exists, false otherwise
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Gets the number of records stored in the journal since it was last cleared.
+     * @return number of journal records
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Sets the size of the buffer used when appending records.
+     * @param bufferSize buffer size in bytes, has to be positive
+     * @throws IllegalArgumentException if bufferSize is not positive.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize has to be positive.");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Checks if the last replayed journal was written in the legacy format.
+     * New records cannot be appended to such a journal, it should be compacted first.
+     * @return true if the journal file holds entities in the legacy format
+     */
+    public boolean isLegacyFormat() {
+        return legacyFormat;
+    }
+
+    /**
+     * Appends given mutations at the end of the journal and forces them to the disk.
+     * @param mutations mutations to append, in the order they were applied
+     * @throws IOException if an I/O error occurs.
+     */
+    public void append(List<Mutation<T>> mutations) throws IOException {
+        boolean writeHeader = !file.exists() || file.length() == 0;
+        try (FileOutputStream fileOutput = new FileOutputStream(file, true);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput, bufferSize))) {
+            if (writeHeader) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+            }
+            for (Mutation<T> mutation : mutations) {
+                writeRecord(output, mutation);
+            }
+            output.flush();
+            fileOutput.getFD().sync();
+        }
+        recordCount += mutations.size();
+    }
+
+    /**
+     * Applies all mutations stored in the journal to given set of entities.
+     * A torn record at the end of the file (left by a crash during append) is cut off,
+     * so that later appends are not written after unreadable data.
+     * @param entities set the journaled mutations are applied to
+     * @param readFunc function reading a single entity from a binary stream
+     * @param legacyReadFunc function reading a single entity saved in the legacy format
+     * @return number of replayed mutations
+     * @throws IOException if an I/O error occurs or the file is not a journal.
+     */
+    public int replay(Set<T> entities, IOThrowableFunction<DataInputStream, T> readFunc,
+                      IOThrowableFunction<DataInputStream, T> legacyReadFunc) throws IOException {
+        recordCount = 0;
+        legacyFormat = false;
+        if (!file.exists()) {
+            return 0;
+        }
+
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length < HEADER_SIZE) {
+            // crash before the header was written, nothing to replay
+            clear();
+            return 0;
+        }
+        Contents contents = parse(content, entities, readFunc, legacyReadFunc);
+        recordCount = contents.records;
+        legacyFormat = contents.legacy;
+        truncate(contents, content.length);
+        return recordCount;
+    }
+
+    /**
+     * Applies all mutations stored in the journal to given set of entities without changing the journal or its state,
+     * so several threads can read the same journal at once. A torn record at the end of the file is skipped,
+     * see {@link #repair()}. Appending or clearing the journal while it is read is not allowed.
+     * @param entities set the journaled mutations are applied to
+     * @param readFunc function reading a single entity from a binary stream
+     * @param legacyReadFunc function reading a single entity saved in the legacy format
+     * @return number of read mutations
+     * @throws IOException if an I/O error occurs or the file is not a journal.
+     */
+    public int read(Set<T> entities, IOThrowableFunction<DataInputStream, T> readFunc,
+                    IOThrowableFunction<DataInputStream, T> legacyReadFunc) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length < HEADER_SIZE) {
+            return 0;
+        }
+        return parse(content, entities, readFunc, legacyReadFunc).records;
+    }
+
+    /**
+     * Cuts off a torn record at the end of the journal, like {@link #replay} does, without decoding any record.
+     * Has to be called before the first append to a journal that is never replayed.
+     * @throws IOException if an I/O error occurs or the file is not a journal.
+     */
+    public void repair() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length < HEADER_SIZE) {
+            clear();
+            return;
+        }
+        Contents contents = parse(content, null, null, null);
+        recordCount = contents.records;
+        legacyFormat = contents.legacy;
+        truncate(contents, content.length);
+    }
+
+    /**
+     * Result of {@link #parse}.
+     */
+    private static final class Contents {
+        int records;
+        int validLength;
+        boolean legacy;
+    }
+
+    /**
+     * Checks the records of a journal file and applies them to given set of entities.
+     * @param content whole content of the journal file, at least the header
+     * @param entities set the mutations are applied to, null to only check the records
+     * @return number of valid records, length of the valid part of the file and its format
+     * @throws IOException if an I/O error occurs or the content is not a journal.
+     */
+    private Contents parse(byte[] content, Set<T> entities, IOThrowableFunction<DataInputStream, T> readFunc,
+                           IOThrowableFunction<DataInputStream, T> legacyReadFunc) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a journal file: " + file);
+        }
+        int version = buffer.getInt();
+        if (version < Const.LegacyDataFileVersion || version > VERSION) {
+            throw new IOException("Unsupported journal version: " + version);
+        }
+        Contents contents = new Contents();
+        contents.legacy = version == Const.LegacyDataFileVersion;
+        IOThrowableFunction<DataInputStream, T> recordReadFunc = contents.legacy ? legacyReadFunc : readFunc;
+
+        contents.validLength = buffer.position();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            int payloadStart = buffer.position();
+            CRC32 crc = new CRC32();
+            crc.update(content, payloadStart, length);
+            buffer.position(payloadStart + length);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                break;
+            }
+
+            if (entities != null) {
+                DataInputStream input = new DataInputStream(new ByteArrayInputStream(content, payloadStart, length));
+                Mutation.readData(input, recordReadFunc).applyTo(entities);
+            }
+            contents.records++;
+            contents.validLength = buffer.position();
+        }
+        return contents;
+    }
+
+    /**
+     * Cuts off the part of the journal file after its last valid record.
+     * @param contents result of {@link #parse} for the file
+     * @param length length of the file
+     * @throws IOException if an I/O error occurs.
+     */
+    private void truncate(Contents contents, int length) throws IOException {
+        if (contents.validLength < length) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(contents.validLength);
+            }
+        }
+    }
+
+    /**
+     * Removes the journal file, should be called once all journaled mutations are saved in a snapshot.
+     * @throws IOException if the file exists but cannot be deleted.
+     */
+    public void clear() throws IOException {
+        Files.deleteIfExists(file.toPath());
+        recordCount = 0;
+        legacyFormat = false;
+    }
+
+    /**
+     * Writes one mutation as a length-prefixed, checksummed record.
+     * @param output stream to write to
+     * @param mutation mutation to write
+     * @throws IOException if an I/O error occurs.
+     */
+    private void writeRecord(DataOutputStream output, Mutation<T> mutation) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        mutation.writeData(new DataOutputStream(payload));
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+
+        output.writeInt(payload.size());
+        payload.writeTo(output);
+        output.writeInt((int) crc.getValue());
+    }
+}
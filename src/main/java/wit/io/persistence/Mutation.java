@@ -0,0 +1,198 @@
+package wit.io.persistence;
+
+import wit.io.utils.IOThrowableFunction;
+import wit.io.utils.Util;
+import wit.io.utils.Writeable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Class representing a single change of a managed set of entities.
+ * Mutations are applied to the in-memory set and appended to a {@link Journal},
+ * so the same change can be replayed on top of the last saved snapshot.
+ * @param <T> The type of the changed entities, which MUST implement {@link Writeable}.
+ */
+public final class Mutation<T extends Writeable> {
+    /**
+     * Enum representing all kinds of changes a Mutation can describe.
+     * Each type has a fixed code used when the mutation is written to a binary stream.
+     */
+    public enum Type {
+        /**
+         * represents adding a new entity
+         */
+        ADD((byte) 1),
+        /**
+         * represents removing an existing entity
+         */
+        REMOVE((byte) 2),
+        /**
+         * represents replacing an existing entity with a new one
+         */
+        REPLACE((byte) 3);
+
+        private final byte code;
+
+        Type(byte code) {
+            this.code = code;
+        }
+
+        /**
+         * Finds the type saved under given code.
+         * @param code code read from a binary stream
+         * @return matching Type
+         * @throws IOException if no type uses given code
+         */
+        static Type fromCode(byte code) throws IOException {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IOException("Unknown mutation type: " + code);
+        }
+    }
+
+    private final Type type;
+    private final T oldEntity;
+    private final T newEntity;
+
+    private Mutation(Type type, T oldEntity, T newEntity) {
+        this.type = type;
+        this.oldEntity = oldEntity;
+        this.newEntity = newEntity;
+    }
+
+    /**
+     * Creates a mutation adding a new entity.
+     * @param entity entity to add, required argument
+     * @return new ADD Mutation
+     * @param <T> type of the entity
+     */
+    public static <T extends Writeable> Mutation<T> add(T entity) {
+        if (Util.isAnyArgumentNull(entity)) {
+            throw new IllegalArgumentException("entity cannot be null.");
+        }
+        return new Mutation<>(Type.ADD, null, entity);
+    }
+
+    /**
+     * Creates a mutation removing an existing entity.
+     * @param entity entity to remove, required argument
+     * @return new REMOVE Mutation
+     * @param <T> type of the entity
+     */
+    public static <T extends Writeable> Mutation<T> remove(T entity) {
+        if (Util.isAnyArgumentNull(entity)) {
+            throw new IllegalArgumentException("entity cannot be null.");
+        }
+        return new Mutation<>(Type.REMOVE, entity, null);
+    }
+
+    /**
+     * Creates a mutation replacing an existing entity with a new one.
+     * @param oldEntity entity to be replaced, required argument
+     * @param newEntity entity replacing the old one, required argument
+     * @return new REPLACE Mutation
+     * @param <T> type of the entity
+     */
+    public static <T extends Writeable> Mutation<T> replace(T oldEntity, T newEntity) {
+        if (Util.isAnyArgumentNull(oldEntity, newEntity)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        return new Mutation<>(Type.REPLACE, oldEntity, newEntity);
+    }
+
+    /**
+     * Applies this mutation to the given set of entities.
+     * Applying the same mutation twice leaves the set in the same state as applying it once,
+     * which makes replaying a journal on top of a newer snapshot safe.
+     * @param entities set the mutation is applied to
+     */
+    public void applyTo(Set<T> entities) {
+        if (oldEntity != null) {
+            entities.remove(oldEntity);
+        }
+        if (newEntity != null) {
+            entities.add(newEntity);
+        }
+    }
+
+    /**
+     * Writes the mutation to a binary stream.
+     * The data is written in the order: type code, old entity (REMOVE, REPLACE), new entity (ADD, REPLACE).
+     * @param output The DataOutputStream to write the data to.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeData(DataOutputStream output) throws IOException {
+        output.writeByte(type.code);
+        if (oldEntity != null) {
+            oldEntity.writeData(output);
+        }
+        if (newEntity != null) {
+            newEntity.writeData(output);
+        }
+    }
+
+    /**
+     * Reads a mutation from a binary stream.
+     * @param input The DataInputStream to read the data from.
+     * @param readFunc function reading a single entity from the stream
+     * @return A new Mutation populated with the data from the stream.
+     * @param <T> type of the entity
+     * @throws IOException if an I/O error occurs or the stream contains an unknown mutation type.
+     */
+    public static <T extends Writeable> Mutation<T> readData(DataInputStream input, IOThrowableFunction<DataInputStream, T> readFunc) throws IOException {
+        Type type = Type.fromCode(input.readByte());
+        switch (type) {
+            case ADD:
+                return add(readFunc.apply(input));
+            case REMOVE:
+                return remove(readFunc.apply(input));
+            default:
+                T oldEntity = readFunc.apply(input);
+                T newEntity = readFunc.apply(input);
+                return replace(oldEntity, newEntity);
+        }
+    }
+
+    /**
+     * Gets the kind of this mutation.
+     * @return Type of the mutation
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the entity removed or replaced by this mutation.
+     * @return removed entity, or null for ADD mutations
+     */
+    public T getOldEntity() {
+        return oldEntity;
+    }
+
+    /**
+     * Gets the entity added by this mutation.
+     * @return added entity, or null for REMOVE mutations
+     */
+    public T getNewEntity() {
+        return newEntity;
+    }
+
+    /**
+     * Returns a string representation of the Mutation object.
+     * @return A string containing the type and both entities.
+     */
+    @Override
+    public String toString() {
+        return "Mutation{" +
+                "type=" + type +
+                ", oldEntity=" + oldEntity +
+                ", newEntity=" + newEntity +
+                '}';
+    }
+}
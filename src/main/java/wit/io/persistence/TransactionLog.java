@@ -0,0 +1,423 @@
+package wit.io.persistence;
+
+import wit.io.utils.IOThrowableFunction;
+import wit.io.utils.Writeable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Redo log making changes spanning several managed sets of entities atomic.
+ * A transaction is written as a single COMMIT record holding all of its mutations, each tagged with the index
+ * of the set it belongs to, before any of them is applied. Once every set has saved its part of the transaction,
+ * the transaction is marked done, and the log is cleared as soon as no transaction is left open.
+ * Transactions committed but not marked done when the log is read again are returned by {@link #replay(List)},
+ * so they can be redone. If only some sets saved their part, a SAVED record names them, so only the other parts
+ * are redone.
+ * <p>
+ * Records of concurrent transactions are group-committed: the first waiting thread writes every queued record
+ * and forces all of them to the disk at once, the other threads only wait for it.
+ * <p>
+ * File layout: magic number, format version, then records of the form payload length, payload, CRC32 of the payload.
+ * The payload is the record type and the transaction ID, followed for a COMMIT record by the number of mutations
+ * and the set index and serialized Mutation of each of them, and for a SAVED record by the number of saved sets
+ * and the index of each of them.
+ * A record cut short by a crash is detected by its length or checksum, the log is read up to it.
+ */
+public class TransactionLog {
+    /**
+     * Marks the beginning of a transaction log file.
+     */
+    static final int MAGIC = 0x4E54584C;
+
+    /**
+     * Version of the transaction log file format.
+     */
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final byte COMMIT = 1;
+    private static final byte DONE = 2;
+    private static final byte SAVED = 3;
+
+    /**
+     * A single mutation of a transaction, together with the index of the set of entities it changes.
+     */
+    public static final class Change {
+        private final int part;
+        private final Mutation<?> mutation;
+
+        /**
+         * Constructor for Change.
+         * @param part index of the changed set of entities, between 0 and 127
+         * @param mutation the mutation, required argument
+         * @throws IllegalArgumentException if mutation is null or part is out of range.
+         */
+        public Change(int part, Mutation<?> mutation) {
+            if (mutation == null || part < 0 || part > Byte.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid change of part " + part + ": " + mutation);
+            }
+            this.part = part;
+            this.mutation = mutation;
+        }
+
+        public int getPart() {
+            return part;
+        }
+
+        public Mutation<?> getMutation() {
+            return mutation;
+        }
+    }
+
+    /**
+     * A transaction committed but not marked done, as read by {@link #replay(List)}.
+     */
+    public static final class OpenTransaction {
+        private final List<Change> changes;
+        private final Set<Integer> savedParts = new HashSet<>();
+
+        private OpenTransaction(List<Change> changes) {
+            this.changes = changes;
+        }
+
+        /**
+         * Gets the mutations of the transaction.
+         * @return changes of the transaction, in the order they were committed
+         */
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        /**
+         * Gets the sets that saved their part of the transaction, see {@link #saved(long, Collection)}.
+         * @return indexes of the saved sets
+         */
+        public Set<Integer> getSavedParts() {
+            return savedParts;
+        }
+    }
+
+    /**
+     * Encoded record waiting to be written by the next group commit.
+     * Its fields are guarded by {@link #ioLock}.
+     */
+    private static final class QueuedRecord {
+        private final byte[] bytes;
+        private boolean written;
+        private IOException failure;
+
+        private QueuedRecord(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The file records are appended to.
+     */
+    private final File file;
+
+    /**
+     * Held by the thread writing a group of records.
+     */
+    private final Object ioLock = new Object();
+
+    /**
+     * Guards the queue, the open transactions and the transaction IDs.
+     */
+    private final Object queueLock = new Object();
+
+    /**
+     * Records waiting for the next group commit, in the order they were queued.
+     */
+    private List<QueuedRecord> queue = new ArrayList<>();
+
+    /**
+     * Number of transactions committed or queued for commit that are not done yet.
+     */
+    private int openTransactions;
+
+    private long nextTransactionId = 1;
+
+    /**
+     * Constructor for TransactionLog.
+     * @param file file the records should be appended to, required argument
+     * @throws IllegalArgumentException if file is null.
+     */
+    public TransactionLog(File file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null.");
+        }
+        this.file = file;
+    }
+
+    /**
+     * Checks if the log file exists on disk.
+     * @return true if the log file exists, false otherwise
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Writes a COMMIT record holding given changes and forces it to the disk, together with the records
+     * of all transactions committed at the same time. Once this method returns, the transaction
+     * is redone by {@link #replay(List)} unless it is marked done.
+     * @param changes mutations of the transaction, in the order they should be applied to each set
+     * @return ID of the committed transaction, to be passed to {@link #done(long)}
+     * @throws IOException if an I/O error occurs, the transaction is not committed then.
+     */
+    public long commit(List<Change> changes) throws IOException {
+        long transactionId;
+        synchronized (queueLock) {
+            transactionId = nextTransactionId++;
+            openTransactions++;
+        }
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(payload);
+            output.writeByte(COMMIT);
+            output.writeLong(transactionId);
+            output.writeInt(changes.size());
+            for (Change change : changes) {
+                output.writeByte(change.part);
+                change.mutation.writeData(output);
+            }
+            write(encode(payload.toByteArray()));
+        } catch (IOException e) {
+            synchronized (queueLock) {
+                openTransactions--;
+            }
+            throw e;
+        }
+        return transactionId;
+    }
+
+    /**
+     * Marks a committed transaction as done, should be called once every set has saved its part of it.
+     * If no other transaction is open, the whole log is cleared instead of writing a DONE record.
+     * @param transactionId ID returned by {@link #commit(List)}
+     * @throws IOException if an I/O error occurs, the transaction is redone by the next replay then.
+     */
+    public void done(long transactionId) throws IOException {
+        synchronized (ioLock) {
+            synchronized (queueLock) {
+                openTransactions--;
+                if (openTransactions == 0) {
+                    // every committed transaction is saved, records still queued are DONE records only
+                    Files.deleteIfExists(file.toPath());
+                    return;
+                }
+            }
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(payload);
+        output.writeByte(DONE);
+        output.writeLong(transactionId);
+        write(encode(payload.toByteArray()));
+    }
+
+    /**
+     * Writes a SAVED record naming the sets that saved their part of a transaction which cannot be marked done,
+     * because other sets failed to save theirs, and forces it to the disk. The named parts are not redone by
+     * {@link #replay(List)}, so the sets can be changed again before the transaction is redone.
+     * @param transactionId ID returned by {@link #commit(List)}
+     * @param parts indexes of the saved sets
+     * @throws IOException if an I/O error occurs, all parts are redone by the next replay then.
+     */
+    public void saved(long transactionId, Collection<Integer> parts) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(payload);
+        output.writeByte(SAVED);
+        output.writeLong(transactionId);
+        output.writeByte(parts.size());
+        for (int part : parts) {
+            output.writeByte(part);
+        }
+        write(encode(payload.toByteArray()));
+    }
+
+    /**
+     * Reads the log and returns the mutations of every transaction committed but not marked done.
+     * Transactions committed by this log later get IDs above all read ones.
+     * @param readFuncs function reading a single entity of each set, indexed by the set index
+     * @return every open transaction, in the order the transactions were committed
+     * @throws IOException if an I/O error occurs, the file is not a transaction log or a record refers to an unknown set.
+     */
+    public List<OpenTransaction> replay(List<? extends IOThrowableFunction<DataInputStream, ? extends Writeable>> readFuncs)
+            throws IOException {
+        Map<Long, OpenTransaction> committed = new LinkedHashMap<>();
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length < HEADER_SIZE) {
+            // crash before the header was written, nothing was committed
+            return new ArrayList<>();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a transaction log file: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported transaction log version: " + version);
+        }
+
+        long maxTransactionId = 0;
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < length + Integer.BYTES) {
+                break;
+            }
+            int payloadStart = buffer.position();
+            CRC32 crc = new CRC32();
+            crc.update(content, payloadStart, length);
+            buffer.position(payloadStart + length);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                break;
+            }
+
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(content, payloadStart, length));
+            byte type = input.readByte();
+            long transactionId = input.readLong();
+            maxTransactionId = Math.max(maxTransactionId, transactionId);
+            if (type == DONE) {
+                committed.remove(transactionId);
+                continue;
+            }
+            if (type == SAVED) {
+                OpenTransaction transaction = committed.get(transactionId);
+                int count = input.readByte();
+                for (int i = 0; i < count; i++) {
+                    int part = input.readByte();
+                    if (transaction != null) {
+                        transaction.savedParts.add(part);
+                    }
+                }
+                continue;
+            }
+            if (type != COMMIT) {
+                throw new IOException("Unknown transaction log record type: " + type);
+            }
+            int count = input.readInt();
+            List<Change> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int part = input.readByte();
+                if (part < 0 || part >= readFuncs.size()) {
+                    throw new IOException("Unknown part of transaction " + transactionId + ": " + part);
+                }
+                changes.add(new Change(part, Mutation.readData(input, readFuncs.get(part))));
+            }
+            committed.put(transactionId, new OpenTransaction(changes));
+        }
+
+        synchronized (queueLock) {
+            nextTransactionId = Math.max(nextTransactionId, maxTransactionId + 1);
+        }
+        return new ArrayList<>(committed.values());
+    }
+
+    /**
+     * Removes the log file and forgets all open transactions, should be called only once
+     * every committed transaction is saved and no transaction is being committed.
+     * @throws IOException if the file exists but cannot be deleted.
+     */
+    public void clear() throws IOException {
+        synchronized (ioLock) {
+            synchronized (queueLock) {
+                openTransactions = 0;
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Queues an encoded record and waits until it is forced to the disk.
+     * The first thread to get {@link #ioLock} writes all queued records at once,
+     * threads whose records were written meanwhile return right away.
+     * @param record encoded record
+     * @throws IOException if writing the group holding the record failed.
+     */
+    private void write(byte[] record) throws IOException {
+        QueuedRecord queued = new QueuedRecord(record);
+        synchronized (queueLock) {
+            queue.add(queued);
+        }
+        synchronized (ioLock) {
+            if (!queued.written) {
+                List<QueuedRecord> group;
+                synchronized (queueLock) {
+                    group = queue;
+                    queue = new ArrayList<>();
+                }
+                IOException failure = null;
+                try {
+                    append(group);
+                } catch (IOException e) {
+                    failure = e;
+                }
+                for (QueuedRecord groupRecord : group) {
+                    groupRecord.written = true;
+                    groupRecord.failure = failure;
+                }
+            }
+            if (queued.failure != null) {
+                throw new IOException("Failed to write the transaction log.", queued.failure);
+            }
+        }
+    }
+
+    /**
+     * Appends a group of records at the end of the log and forces them to the disk.
+     * If the write fails, the log is cut back to its previous length, so none of the records is replayed,
+     * a failure to cut it back is added to the thrown exception as a suppressed exception.
+     * Has to be called while holding {@link #ioLock}.
+     * @param group records to append
+     * @throws IOException if an I/O error occurs.
+     */
+    private void append(List<QueuedRecord> group) throws IOException {
+        long validLength = file.exists() ? file.length() : 0;
+        try (FileOutputStream fileOutput = new FileOutputStream(file, true)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            if (validLength == 0) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+            }
+            for (QueuedRecord record : group) {
+                output.write(record.bytes);
+            }
+            bytes.writeTo(fileOutput);
+            fileOutput.getFD().sync();
+        } catch (IOException e) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException truncateException) {
+                e.addSuppressed(truncateException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Frames a payload as a length-prefixed, checksummed record.
+     * @param payload the payload
+     * @return the record
+     */
+    private static byte[] encode(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(payload.length + 2 * Integer.BYTES)
+                .putInt(payload.length)
+                .put(payload)
+                .putInt((int) crc.getValue())
+                .array();
+    }
+}
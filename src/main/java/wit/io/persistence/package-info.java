@@ -0,0 +1,5 @@
+/**
+ * This package contains classes responsible for persisting managed entities on disk.
+ */
+
+package wit.io.persistence;
@@ -20,7 +20,10 @@ import java.awt.event.*;
 import java.text.ParseException;
 import java.util.*;
 import java.time.LocalDate;
+import java.time.Period;
 import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 
 /*
@@ -63,7 +66,14 @@ public class SkiDriver {
             skiManager = new SkiManager(Const.SkiFilePath);
             clientManager = new ClientManager(Const.ClientFilePath);
             rentManger = new RentManager(Const.RentFilePath);
+            rentManger.startStatusSweeper(1, TimeUnit.HOURS, SwingUtilities::invokeLater);
+            rentManger.archiveClosedRents(Period.ofDays(Const.RentArchiveHorizonDays));
             reportManager = new ReportManager(rentManger, skiManager);
+            for (Manager<?> manager : List.of(skiTypeManager, skiManager, clientManager, rentManger)) {
+                manager.setWriteFailureHandler(SkiDriver::showWriteFailure);
+                manager.enableWriteBehind();
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(SkiDriver::flushManagers, "flush-managers"));
         } catch (ReadingException e)
         {
             System.out.println("Failed to create Manager");
@@ -74,6 +84,27 @@ public class SkiDriver {
     }
 
 
+    private static void showWriteFailure(WritingException e) {
+        SwingUtilities.invokeLater(() -> {
+            if (errorPopup != null) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                errorPopup.show("Failed to save data: " + (cause.getMessage() == null ? cause : cause.getMessage()));
+            }
+        });
+    }
+
+
+    private static void flushManagers() {
+        for (Manager<?> manager : List.of(skiTypeManager, skiManager, clientManager, rentManger)) {
+            try {
+                manager.flush().join();
+            } catch (CompletionException e) {
+                System.out.println("Failed to save " + manager.getClass().getSimpleName() + " data. Error: " + e.getCause());
+            }
+        }
+    }
+
+
     private static void populateData() throws SkiAppException {
         skiManager.resetEntityData();
         skiTypeManager.resetEntityData();
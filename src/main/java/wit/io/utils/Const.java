@@ -12,4 +12,15 @@ public enum Const {
     public static final String SkiTypeFilePath = RootFolder + "/SkiType";
     public static final String RentFilePath = RootFolder + "/Rent";
     public static final String ClientFilePath = RootFolder + "/Client";
+    public static final int DataFileMagic = 0x4E415254;
+    public static final int LegacyDataFileVersion = 1;
+    public static final int UnsummedDataFileVersion = 2;
+    public static final int DataFileVersion = 3;
+    public static final String TempFileSuffix = ".tmp";
+    public static final String JournalFileSuffix = ".journal";
+    public static final int JournalCompactionThreshold = 1000;
+    public static final int IOBufferSize = 64 * 1024;
+    public static final long WriteBehindDelayMillis = 100;
+    public static final String ArchiveFileSuffix = ".archive";
+    public static final int RentArchiveHorizonDays = 365;
 }
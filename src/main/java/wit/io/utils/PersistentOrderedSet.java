@@ -0,0 +1,463 @@
+package wit.io.utils;
+
+import java.util.*;
+
+/**
+ * Immutable set keeping its elements in insertion order, where every change returns a new set
+ * sharing almost all of its structure with the previous one.
+ * Elements are looked up in a hash array mapped trie (HAMT) mapping every element to its slot, and iterated
+ * over a persistent vector (a 32-way trie) of slots, where removed elements leave empty slots behind.
+ * {@link #with(Object)} and {@link #without(Object)} copy only the nodes on the path to the changed element,
+ * O(log32 n) nodes of both tries. Empty slots are compacted away once they outnumber the elements,
+ * which keeps the amortized cost of a change at O(log n).
+ * The set iterates like a LinkedHashSet that got the same changes: added elements go to the end,
+ * and adding an element that is already present keeps the present one in its place.
+ * Null elements are not supported.
+ * @param <E> The type of elements, identified by their equals and hashCode.
+ */
+public final class PersistentOrderedSet<E> extends AbstractSet<E> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentOrderedSet<?> EMPTY = new PersistentOrderedSet<>(Node.EMPTY, null, 0, 0, 0);
+
+    /**
+     * Root of the HAMT mapping every element to its {@link Entry}.
+     */
+    private final Node index;
+
+    /**
+     * Root of the vector of slots, null if there are no slots. Leaves hold elements, null in empty slots.
+     */
+    private final Object[] slots;
+
+    /**
+     * Shift of the index of a slot at the root of {@link #slots}, 0 if the root is a leaf.
+     */
+    private final int shift;
+
+    /**
+     * Number of used slots, including the empty ones.
+     */
+    private final int slotCount;
+
+    private final int size;
+
+    private PersistentOrderedSet(Node index, Object[] slots, int shift, int slotCount, int size) {
+        this.index = index;
+        this.slots = slots;
+        this.shift = shift;
+        this.slotCount = slotCount;
+        this.size = size;
+    }
+
+    /**
+     * Gets the empty set.
+     * @return empty PersistentOrderedSet
+     * @param <E> type of elements
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentOrderedSet<E> empty() {
+        return (PersistentOrderedSet<E>) EMPTY;
+    }
+
+    /**
+     * Creates a set of given elements, in their iteration order, in O(n).
+     * @param elements elements of the set, required argument, cannot contain null
+     * @return new PersistentOrderedSet
+     * @param <E> type of elements
+     * @throws IllegalArgumentException if elements are or contain null.
+     */
+    public static <E> PersistentOrderedSet<E> copyOf(Collection<? extends E> elements) {
+        if (Util.isAnyArgumentNull(elements)) {
+            throw new IllegalArgumentException("elements cannot be null.");
+        }
+        // nodes owned by the builder are changed in place, as no other set can see them yet
+        Object owner = new Object();
+        Node index = new Node(0, new Object[0], owner);
+        Object[] ordered = new Object[elements.size()];
+        int count = 0;
+        for (E element : elements) {
+            if (element == null) {
+                throw new IllegalArgumentException("elements cannot contain null.");
+            }
+            int hash = hash(element);
+            if (index.find(element, hash, 0) == null) {
+                index = index.put(new Entry(element, hash, count), 0, owner);
+                ordered[count++] = element;
+            }
+        }
+        if (count == 0) {
+            return empty();
+        }
+
+        // the vector is built bottom-up, from full leaves
+        Object[] level = new Object[(count + MASK) / WIDTH];
+        for (int i = 0; i < level.length; i++) {
+            Object[] leaf = new Object[WIDTH];
+            System.arraycopy(ordered, i * WIDTH, leaf, 0, Math.min(WIDTH, count - i * WIDTH));
+            level[i] = leaf;
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            Object[] parents = new Object[(level.length + MASK) / WIDTH];
+            for (int i = 0; i < parents.length; i++) {
+                Object[] parent = new Object[WIDTH];
+                System.arraycopy(level, i * WIDTH, parent, 0, Math.min(WIDTH, level.length - i * WIDTH));
+                parents[i] = parent;
+            }
+            level = parents;
+            shift += BITS;
+        }
+        return new PersistentOrderedSet<>(index, (Object[]) level[0], shift, count, count);
+    }
+
+    /**
+     * Gets a set with given element added at the end.
+     * @param element element to add, required argument
+     * @return new set with the element, or this set if the element is already present
+     * @throws IllegalArgumentException if element is null.
+     */
+    public PersistentOrderedSet<E> with(E element) {
+        if (Util.isAnyArgumentNull(element)) {
+            throw new IllegalArgumentException("element cannot be null.");
+        }
+        int hash = hash(element);
+        if (index.find(element, hash, 0) != null) {
+            return this;
+        }
+
+        Object[] newSlots;
+        int newShift = shift;
+        if (slotCount == 1 << (shift + BITS)) {
+            // the vector is full, the old root becomes the first child of a new one
+            newSlots = new Object[WIDTH];
+            newSlots[0] = slots;
+            newShift += BITS;
+        } else {
+            newSlots = slots;
+        }
+        newSlots = setSlot(newSlots, newShift, slotCount, element);
+        Node newIndex = index.put(new Entry(element, hash, slotCount), 0, null);
+        return new PersistentOrderedSet<>(newIndex, newSlots, newShift, slotCount + 1, size + 1);
+    }
+
+    /**
+     * Gets a set without given element.
+     * @param element element to remove
+     * @return new set without the element, or this set if the element is not present
+     */
+    public PersistentOrderedSet<E> without(Object element) {
+        if (element == null) {
+            return this;
+        }
+        int hash = hash(element);
+        Entry entry = index.find(element, hash, 0);
+        if (entry == null) {
+            return this;
+        }
+        if (size == 1) {
+            return empty();
+        }
+
+        Node newIndex = index.remove(element, hash, 0);
+        PersistentOrderedSet<E> removed = new PersistentOrderedSet<>(newIndex == null ? Node.EMPTY : newIndex,
+                setSlot(slots, shift, entry.slot, null), shift, slotCount, size - 1);
+        if (slotCount > WIDTH && slotCount - removed.size > removed.size) {
+            return copyOf(removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && index.find(o, hash(o), 0) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next = advance(0);
+
+            /**
+             * Finds the first used slot from given one, slotCount if there is none.
+             */
+            private int advance(int from) {
+                int slot = from;
+                while (slot < slotCount) {
+                    Object[] leaf = leafFor(slot);
+                    for (int i = slot & MASK; i < WIDTH && slot < slotCount; i++, slot++) {
+                        if (leaf[i] != null) {
+                            return slot;
+                        }
+                    }
+                }
+                return slotCount;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < slotCount;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (next >= slotCount) {
+                    throw new NoSuchElementException();
+                }
+                E element = (E) leafFor(next)[next & MASK];
+                next = advance(next + 1);
+                return element;
+            }
+        };
+    }
+
+    /**
+     * Gets the leaf of the vector holding given slot.
+     */
+    private Object[] leafFor(int slot) {
+        Object[] node = slots;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(slot >>> level) & MASK];
+        }
+        return node;
+    }
+
+    /**
+     * Copies the path to given slot of a vector and sets the slot, creating missing nodes.
+     * @param node root of the vector, may be null
+     * @param shift shift of the root
+     * @param slot index of the slot
+     * @param value new value of the slot
+     * @return new root of the vector
+     */
+    private static Object[] setSlot(Object[] node, int shift, int slot, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int i = (slot >>> shift) & MASK;
+        copy[i] = shift == 0 ? value : setSlot((Object[]) copy[i], shift - BITS, slot, value);
+        return copy;
+    }
+
+    /**
+     * Spreads the hash code of an element, so that keys differing only in high bits
+     * do not share the first levels of the HAMT.
+     */
+    private static int hash(Object element) {
+        int hash = element.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Element of the set together with its hash and its slot in the vector.
+     */
+    private static final class Entry {
+        final Object element;
+        final int hash;
+        final int slot;
+
+        Entry(Object element, int hash, int slot) {
+            this.element = element;
+            this.hash = hash;
+            this.slot = slot;
+        }
+
+        boolean matches(Object other, int otherHash) {
+            return hash == otherHash && element.equals(other);
+        }
+    }
+
+    /**
+     * Entries whose hashes are equal in all 32 bits.
+     */
+    private static final class Collision {
+        final int hash;
+        final Entry[] entries;
+
+        Collision(int hash, Entry[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        Entry find(Object element) {
+            for (Entry entry : entries) {
+                if (entry.element.equals(element)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        Collision put(Entry entry) {
+            Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+            grown[entries.length] = entry;
+            return new Collision(hash, grown);
+        }
+
+        /**
+         * @return this if the element is not present, otherwise the remaining Collision or the single remaining Entry
+         */
+        Object remove(Object element) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].element.equals(element)) {
+                    if (entries.length == 2) {
+                        return entries[1 - i];
+                    }
+                    Entry[] shrunk = new Entry[entries.length - 1];
+                    System.arraycopy(entries, 0, shrunk, 0, i);
+                    System.arraycopy(entries, i + 1, shrunk, i, entries.length - i - 1);
+                    return new Collision(hash, shrunk);
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Node of the HAMT. Every set bit of the bitmap has an item in the array, which is an Entry,
+     * a Collision or a child Node for the next 5 bits of the hash.
+     * Nodes are immutable once they are reachable from a set, only nodes of a set being built by
+     * {@link #copyOf(Collection)} are changed in place.
+     */
+    private static final class Node {
+        static final Node EMPTY = new Node(0, new Object[0], null);
+
+        int bitmap;
+        Object[] items;
+
+        /**
+         * Builder allowed to change the node in place, null if the node is immutable.
+         */
+        final Object owner;
+
+        Node(int bitmap, Object[] items, Object owner) {
+            this.bitmap = bitmap;
+            this.items = items;
+            this.owner = owner;
+        }
+
+        Entry find(Object element, int hash, int shift) {
+            Node node = this;
+            while (true) {
+                int bit = bit(hash, shift);
+                if ((node.bitmap & bit) == 0) {
+                    return null;
+                }
+                Object item = node.items[Integer.bitCount(node.bitmap & (bit - 1))];
+                if (item instanceof Entry) {
+                    Entry entry = (Entry) item;
+                    return entry.matches(element, hash) ? entry : null;
+                }
+                if (item instanceof Collision) {
+                    Collision collision = (Collision) item;
+                    return collision.hash == hash ? collision.find(element) : null;
+                }
+                node = (Node) item;
+                shift += BITS;
+            }
+        }
+
+        /**
+         * Puts an entry whose element is not present yet.
+         * @param owner builder of the set, null for a persistent change
+         * @return the node with the entry, this node if it was changed in place
+         */
+        Node put(Entry entry, int shift, Object owner) {
+            int bit = bit(entry.hash, shift);
+            int i = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Object[] grown = new Object[items.length + 1];
+                System.arraycopy(items, 0, grown, 0, i);
+                grown[i] = entry;
+                System.arraycopy(items, i, grown, i + 1, items.length - i);
+                if (isOwnedBy(owner)) {
+                    bitmap |= bit;
+                    items = grown;
+                    return this;
+                }
+                return new Node(bitmap | bit, grown, owner);
+            }
+
+            Object item = items[i];
+            Object child;
+            if (item instanceof Node) {
+                child = ((Node) item).put(entry, shift + BITS, owner);
+            } else if (item instanceof Collision && ((Collision) item).hash == entry.hash) {
+                child = ((Collision) item).put(entry);
+            } else {
+                child = merge(item, entry, shift + BITS, owner);
+            }
+            Node node = isOwnedBy(owner) ? this : new Node(bitmap, items.clone(), owner);
+            node.items[i] = child;
+            return node;
+        }
+
+        /**
+         * Removes a present element.
+         * @return the node without the element, or null if no item is left
+         */
+        Node remove(Object element, int hash, int shift) {
+            int bit = bit(hash, shift);
+            int i = Integer.bitCount(bitmap & (bit - 1));
+            Object item = items[i];
+            Object child;
+            if (item instanceof Entry) {
+                child = null;
+            } else if (item instanceof Collision) {
+                child = ((Collision) item).remove(element);
+            } else {
+                child = ((Node) item).remove(element, hash, shift + BITS);
+                Node childNode = (Node) child;
+                if (childNode != null && childNode.items.length == 1 && !(childNode.items[0] instanceof Node)) {
+                    // a single entry or collision moves up to its parent
+                    child = childNode.items[0];
+                }
+            }
+
+            if (child != null) {
+                Object[] copy = items.clone();
+                copy[i] = child;
+                return new Node(bitmap, copy, null);
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] shrunk = new Object[items.length - 1];
+            System.arraycopy(items, 0, shrunk, 0, i);
+            System.arraycopy(items, i + 1, shrunk, i, items.length - i - 1);
+            return new Node(bitmap & ~bit, shrunk, null);
+        }
+
+        private boolean isOwnedBy(Object owner) {
+            return owner != null && this.owner == owner;
+        }
+
+        /**
+         * Creates the item holding an existing Entry or Collision and a new entry with a different element.
+         */
+        private static Object merge(Object existing, Entry entry, int shift, Object owner) {
+            int existingHash = existing instanceof Entry ? ((Entry) existing).hash : ((Collision) existing).hash;
+            if (existingHash == entry.hash) {
+                return new Collision(entry.hash, new Entry[]{(Entry) existing, entry});
+            }
+            int existingBit = bit(existingHash, shift);
+            int bit = bit(entry.hash, shift);
+            if (existingBit == bit) {
+                return new Node(bit, new Object[]{merge(existing, entry, shift + BITS, owner)}, owner);
+            }
+            Object[] items = Integer.compareUnsigned(existingBit, bit) < 0
+                    ? new Object[]{existing, entry} : new Object[]{entry, existing};
+            return new Node(existingBit | bit, items, owner);
+        }
+    }
+}
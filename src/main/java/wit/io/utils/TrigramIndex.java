@@ -0,0 +1,118 @@
+package wit.io.utils;
+
+import java.util.*;
+
+/**
+ * Index answering case-insensitive "contains" queries over one text attribute of entities,
+ * with the same results as {@link Util#containsString(String, String)}.
+ * Texts are case-folded once when indexed, and every trigram (three consecutive characters)
+ * of a folded text points to the entities containing it. A query of at least three characters only
+ * checks the entities sharing its rarest trigram, shorter queries check the folded texts of all entities.
+ * @param <T> The type of indexed entities, identified by their equals and hashCode.
+ */
+public class TrigramIndex<T> {
+    private static final int GRAM_LENGTH = 3;
+
+    /**
+     * Folded text of every indexed entity, in the order the entities were indexed.
+     */
+    private final Map<T, String> foldedTexts = new LinkedHashMap<>();
+
+    /**
+     * Entities whose folded text contains a trigram, by the trigram packed into a long.
+     */
+    private final Map<Long, Set<T>> entitiesByGram = new HashMap<>();
+
+    /**
+     * Indexes an entity by given text, replacing the previously indexed version of the entity.
+     * An already folded text (see {@link Util#foldCase(String)}) is kept as it is, without a copy.
+     * @param entity entity to index, required argument
+     * @param text text the entity should be found by, required argument
+     * @throws IllegalArgumentException if any argument is null.
+     */
+    public void put(T entity, String text) {
+        if (Util.isAnyArgumentNull(entity, text)) {
+            throw new IllegalArgumentException("One or more of given arguments were null.");
+        }
+        remove(entity);
+
+        String folded = Util.foldCase(text);
+        foldedTexts.put(entity, folded);
+        for (int i = 0; i + GRAM_LENGTH <= folded.length(); i++) {
+            entitiesByGram.computeIfAbsent(gram(folded, i), gram -> new LinkedHashSet<>()).add(entity);
+        }
+    }
+
+    /**
+     * Removes an entity from the index, does nothing if it is not indexed.
+     * @param entity entity to remove
+     */
+    public void remove(T entity) {
+        String folded = foldedTexts.remove(entity);
+        if (folded == null) {
+            return;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= folded.length(); i++) {
+            Long gram = gram(folded, i);
+            Set<T> entities = entitiesByGram.get(gram);
+            if (entities != null) {
+                entities.remove(entity);
+                if (entities.isEmpty()) {
+                    entitiesByGram.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entities from the index.
+     */
+    public void clear() {
+        foldedTexts.clear();
+        entitiesByGram.clear();
+    }
+
+    /**
+     * Gets the number of indexed entities.
+     * @return number of indexed entities
+     */
+    public int size() {
+        return foldedTexts.size();
+    }
+
+    /**
+     * Finds all entities whose text contains the query, ignoring case.
+     * @param query searched text, required argument
+     * @return matching entities
+     * @throws IllegalArgumentException if query is null.
+     */
+    public List<T> search(String query) {
+        if (Util.isAnyArgumentNull(query)) {
+            throw new IllegalArgumentException("query cannot be null.");
+        }
+        String folded = Util.foldCase(query);
+
+        Collection<T> candidates = foldedTexts.keySet();
+        for (int i = 0; i + GRAM_LENGTH <= folded.length(); i++) {
+            Set<T> entities = entitiesByGram.get(gram(folded, i));
+            if (entities == null) {
+                return new ArrayList<>();
+            }
+            if (entities.size() < candidates.size()) {
+                candidates = entities;
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+        for (T entity : candidates) {
+            if (foldedTexts.get(entity).contains(folded)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    private static Long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+}
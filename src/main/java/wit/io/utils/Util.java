@@ -1,6 +1,7 @@
 package wit.io.utils;
 
 import java.text.ParseException;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -26,50 +27,173 @@ public class Util {
         return false;
     }
 
+    /**
+     * Formatter for the date format defined in Const.DateFormat, shared by all conversions.
+     * DateTimeFormatter is immutable and thread-safe.
+     */
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(Const.DateFormat);
+
     /**
      * Converts a LocalDate instance to a string using the format defined in Const.DateFormat.
+     * Dates with a four-digit year are formatted by hand, others fall back to the shared formatter.
      * @param date LocalDate instance to convert
      * @return Formatted string representation of the date
      */
     public static String dateToString(LocalDate date) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(Const.DateFormat);
-        return formatter.format(date);
+        int year = date.getYear();
+        if (year < 1 || year > 9999) {
+            return DATE_FORMATTER.format(date);
+        }
+
+        char[] chars = new char[10];
+        writeDigits(chars, 0, date.getDayOfMonth(), 2);
+        chars[2] = '-';
+        writeDigits(chars, 3, date.getMonthValue(), 2);
+        chars[5] = '-';
+        writeDigits(chars, 6, year, 4);
+        return new String(chars);
     }
 
     /**
      * Converts a string to a LocalDate instance using the format defined in Const.DateFormat.
+     * Strings in the exact dd-MM-yyyy shape are parsed by hand, others fall back to the shared formatter.
      * Returns null if parsing fails instead of throwing an exception.
      * @param string String to parse into a date
      * @throws ParseException if date is not saved in format specified in Const
      * @return LocalDate object if parsing succeeds, null otherwise
      */
     public static LocalDate stringToDate(String string) throws ParseException {
+        LocalDate date = parseDateFast(string);
+        if (date != null) {
+            return date;
+        }
+
         try {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(Const.DateFormat);
-            return LocalDate.parse(string, formatter);
+            return LocalDate.parse(string, DATE_FORMATTER);
         } catch (DateTimeParseException e) {
             return null; // frontend moment
         }
     }
 
+    /**
+     * Parses a date in the dd-MM-yyyy format without pattern-based parsing.
+     * @param string String to parse into a date
+     * @return LocalDate object, or null if the string is not a valid dd-MM-yyyy date
+     */
+    private static LocalDate parseDateFast(String string) {
+        if (string.length() != 10 || string.charAt(2) != '-' || string.charAt(5) != '-') {
+            return null;
+        }
+
+        int day = readDigits(string, 0, 2);
+        int month = readDigits(string, 3, 2);
+        int year = readDigits(string, 6, 4);
+        if (day < 0 || month < 0 || year < 1) {
+            return null;
+        }
+
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            // e.g. 31-04, the shared formatter decides how to resolve it
+            return null;
+        }
+    }
+
+    /**
+     * Reads a non-negative decimal number written with ASCII digits.
+     * @param string string to read from
+     * @param start index of the first digit
+     * @param length number of digits
+     * @return the number, or -1 if any of the characters is not a digit
+     */
+    private static int readDigits(String string, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Writes a non-negative number as zero-padded ASCII digits.
+     * @param chars array to write to
+     * @param start index of the first digit
+     * @param value number to write, has to fit in given number of digits
+     * @param length number of digits
+     */
+    private static void writeDigits(char[] chars, int start, int value, int length) {
+        for (int i = start + length - 1; i >= start; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Folds a string for case-insensitive comparisons, every character is mapped the same way
+     * {@link String#regionMatches(boolean, int, String, int, int)} compares characters ignoring case.
+     * Two strings are equal ignoring case exactly when their folded versions are equal, so a folded
+     * query can be compared with folded keys cached by entities using plain {@link String#contains} and
+     * {@link String#startsWith}.
+     * @param string The string to fold
+     * @return folded string, the same instance if it is already folded
+     */
+    public static String foldCase(String string) {
+        int i = 0;
+        while (i < string.length() && foldCase(string.charAt(i)) == string.charAt(i)) {
+            i++;
+        }
+        if (i == string.length()) {
+            return string;
+        }
+
+        char[] chars = string.toCharArray();
+        for (; i < chars.length; i++) {
+            chars[i] = foldCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static char foldCase(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
     /**
      * Checks if the first string contains the second string (case-insensitive).
+     * Compares the strings in place, without allocating lowercase copies, the rest of the
+     * searched string is compared only at positions where its first character matches.
      * @param string1 The string to search in
      * @param string2 The string to search for
      * @return true if string1 contains string2 (case-insensitive), false otherwise
      */
     public static boolean containsString(String string1, String string2) {
-        return string1.toLowerCase().contains(string2.toLowerCase());
+        if (string2.isEmpty()) {
+            return true;
+        }
+        char first = foldCase(string2.charAt(0));
+        int last = string1.length() - string2.length();
+        for (int i = 0; i <= last; i++) {
+            if (foldCase(string1.charAt(i)) == first
+                    && string1.regionMatches(true, i + 1, string2, 1, string2.length() - 1)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Checks if the first string starts with the second string (case-insensitive).
+     * Compares the strings in place, without allocating lowercase copies.
      * @param string1 The string to check
      * @param string2 The prefix to look for
      * @return true if string1 starts with string2 (case-insensitive), false otherwise
      */
     public static boolean startsWithString(String string1, String string2) {
-        return string1.toLowerCase().startsWith(string2.toLowerCase());
+        return string1.regionMatches(true, 0, string2, 0, string2.length());
     }
 
     /**
@@ -8,10 +8,18 @@ import wit.io.exceptions.EntityAlreadyPresentException;
 import wit.io.exceptions.EntityNotPresentException;
 import wit.io.exceptions.ReadingException;
 import wit.io.exceptions.WritingException;
+import wit.io.utils.Const;
 import wit.io.utils.Util;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -243,6 +251,21 @@ public class ClientManagerTest {
         assertTrue(Util.compareObjectsByStringValue(clients.get(0), results.get(0)));
     }
 
+    @Test
+    public void givenNamesWithNationalCharacters_whenSearchingInDifferentCase_thenReturnMatchingClients() {
+        List<Client> clients = List.of(
+                new Client("12345", "Łukasz", "Żółw", "Zgłoszył USZKODZENIE wiązań"),
+                new Client("5678", "Lukas", "Zolw", "brak uwag"),
+                new Client("91011", "Ludwik", "Ślęk", "")
+        );
+        clientAddingConsumer.accept(clients);
+
+        assertEquals(List.of(clients.get(0)), manager.search(null, "łUK", null, null));
+        assertEquals(List.of(clients.get(0)), manager.search(null, null, "ŻÓ", null));
+        assertEquals(List.of(clients.get(0)), manager.search(null, null, null, "uszkodzenie WIĄ"));
+        assertEquals(List.of(clients.get(2)), manager.search(null, "l", "śLĘK", null));
+    }
+
     @Test
     public void givenPartialKnownLastNamePrefix_whenSearching_thenReturnMatchingClients() {
         List<Client> clients = List.of(
@@ -259,6 +282,25 @@ public class ClientManagerTest {
         assertTrue(Util.compareObjectsByStringValue(clients.get(2), results.get(0)));
     }
 
+    @Test
+    public void givenClientsAddedOutOfNameOrder_whenSearchingByNamePrefix_thenReturnThemInInsertionOrder() throws Exception {
+        List<Client> clients = List.of(
+                new Client("1", "Mateusz", "Zając", ""),
+                new Client("2", "Marek", "Zalewski", ""),
+                new Client("3", "Maja", "Zabłocka", ""),
+                new Client("4", "Marta", "Nowak", "")
+        );
+        clientAddingConsumer.accept(clients);
+        manager.editEntity(clients.get(1), new Client("2", "Marek", "Zalewski", "edited"));
+
+        List<Client> expected = List.of(clients.get(0), clients.get(2), clients.get(3),
+                new Client("2", "Marek", "Zalewski", "edited"));
+        assertEquals(expected.toString(), manager.search(null, "ma", null, null).toString());
+        assertEquals(expected.toString(), new ArrayList<>(manager.getEntities()).toString());
+        assertEquals(List.of(expected.get(0), expected.get(1), expected.get(3)).toString(),
+                manager.search(null, "ma", "za", null).toString());
+    }
+
     @Test
     public void givenKnownDescriptionSubstring_whenSearching_thenReturnMatchingClients() {
         List<Client> clients = List.of(
@@ -291,6 +333,24 @@ public class ClientManagerTest {
         assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(clients.subList(0,2), results));
     }
 
+    @Test
+    public void givenEditedAndRemovedClients_whenSearchingByNamePrefix_thenCurrentNamesAreMatchedIgnoringCase() throws Exception {
+        Client edited = new Client("0000", "Anna", "Nowak", "");
+        Client removed = new Client("0011", "Annabel", "Kowalska", "");
+        Client other = new Client("1100", "Zofia", "Annowska", "");
+        clientAddingConsumer.accept(List.of(edited, removed, other));
+
+        Client afterEdit = new Client("0000", "Marta", "Nowak", "");
+        manager.editEntity(edited, afterEdit);
+        manager.removeEntity(removed);
+
+        assertTrue(manager.search(null, "ANN", null, null).isEmpty());
+        assertEquals(List.of(afterEdit), manager.search(null, "mar", "NOW", null));
+        assertEquals(List.of(other), manager.search(null, null, "ann", null));
+        assertEquals(List.of(other), manager.search("1100", "z", null, null));
+        assertEquals(2, manager.search(null, "", null, null).size());
+    }
+
     @Test
     public void givenUnknownCriteria_whenSearching_thenReturnEmptyList() {
         List<Client> clients = List.of(
@@ -307,6 +367,266 @@ public class ClientManagerTest {
     }
 
 
+    @Test
+    public void givenJournalEnabled_whenCreatingNewManager_thenJournaledChangesAreLoaded() throws Exception {
+        manager.enableJournal(100);
+        Client edited = new Client("0011", "first", "last", "d2");
+        Client removed = new Client("1100", "first", "last", "d3");
+        clientAddingConsumer.accept(List.of(new Client("0000", "first", "last", "d1"), edited, removed));
+        Client afterEdit = new Client("0011", "changed", "last", "d2");
+        manager.editEntity(edited, afterEdit);
+        manager.removeEntity(removed);
+
+        assertTrue(new File("src/test/java/wit/io/datasources/ClientTest.journal").exists());
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+
+        assertEquals(2, manager.getEntities().size());
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(
+                List.of(new Client("0000", "first", "last", "d1"), afterEdit), manager.getEntitiesList()));
+    }
+
+    @Test
+    public void givenJournalEnabled_whenCompactionThresholdIsReached_thenJournalIsFoldedIntoDataFile() throws Exception {
+        manager.enableJournal(3);
+        List<Client> clients = List.of(
+                new Client("0000", "first", "last", "d1"),
+                new Client("0011", "first", "last", "d2"),
+                new Client("1100", "first", "last", "d3")
+        );
+        clientAddingConsumer.accept(clients);
+
+        assertFalse(new File("src/test/java/wit/io/datasources/ClientTest.journal").exists());
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(clients, manager.getEntitiesList()));
+    }
+
+    @Test
+    public void givenFailedJournalAppend_whenNextChangeIsSaved_thenBothChangesAreLoadedByNewManager() throws Exception {
+        manager.enableJournal(100);
+        File journalFile = new File("src/test/java/wit/io/datasources/ClientTest.journal");
+        // a directory in place of the journal makes the append fail
+        assertTrue(journalFile.mkdir());
+        Client failed = new Client("0000", "first", "last", "d1");
+        try {
+            assertThrows(WritingException.class, () -> manager.addEntity(failed));
+        } finally {
+            journalFile.delete();
+        }
+        assertTrue(manager.getEntities().contains(failed));
+
+        Client saved = new Client("0011", "first", "last", "d2");
+        manager.addEntity(saved);
+
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+        assertEquals(List.of(failed, saved), manager.getEntitiesList());
+    }
+
+    @Test
+    public void givenJournalWithTornLastRecord_whenCreatingNewManager_thenCompleteRecordsAreLoaded() throws Exception {
+        manager.enableJournal(100);
+        Client client = new Client("0000", "first", "last", "d1");
+        manager.addEntity(client);
+        try (FileOutputStream output = new FileOutputStream("src/test/java/wit/io/datasources/ClientTest.journal", true)) {
+            output.write(new byte[]{0, 0, 0, 42, 1, 2});
+        }
+
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+        manager.enableJournal(100);
+        Client other = new Client("0011", "first", "last", "d2");
+        manager.addEntity(other);
+
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(List.of(client, other), manager.getEntitiesList()));
+    }
+
+    @Test
+    public void givenBufferSmallerThanEntities_whenCreatingNewManager_thenDataIsLoaded() throws Exception {
+        manager.setBufferSize(3);
+        List<Client> clients = List.of(
+                new Client("0000", "first", "last", "d1"),
+                new Client("0011", "first", "last", "d2"),
+                new Client("1100", "first", "last", "d3")
+        );
+        clientAddingConsumer.accept(clients);
+
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest", 3);
+        assertEquals(3, manager.getBufferSize());
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(clients, manager.getEntitiesList()));
+    }
+
+    @Test
+    public void givenNonPositiveBufferSize_whenSettingBufferSize_thenThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> manager.setBufferSize(0));
+        assertThrows(IllegalArgumentException.class, () -> new ClientManager("src/test/java/wit/io/datasources/ClientTest", 0));
+    }
+
+    @Test
+    public void givenClientDataExists_whenWritingToFile_thenNoTemporaryFileIsLeft() throws Exception {
+        manager.addEntity(new Client("0000", "first", "last", "d1"));
+
+        assertTrue(new File("src/test/java/wit/io/datasources/ClientTest").exists());
+        assertFalse(new File("src/test/java/wit/io/datasources/ClientTest.tmp").exists());
+    }
+
+    @Test
+    public void givenDataFileWithDamagedByte_whenCreatingNewManager_thenThrowReadingException() throws Exception {
+        manager.addEntity(new Client("0000", "first", "last", "d1"));
+        try (RandomAccessFile file = new RandomAccessFile("src/test/java/wit/io/datasources/ClientTest", "rw")) {
+            file.seek(14);
+            file.write('X');
+        }
+
+        assertThrows(ReadingException.class, () -> new ClientManager("src/test/java/wit/io/datasources/ClientTest"));
+    }
+
+    @Test
+    public void givenDataFileWithoutChecksum_whenCreatingNewManager_thenDataIsLoadedAndMigrated() throws Exception {
+        Client client = new Client("0000", "first", "last", "d1");
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream("src/test/java/wit/io/datasources/ClientTest"))) {
+            output.writeInt(Const.DataFileMagic);
+            output.writeInt(Const.UnsummedDataFileVersion);
+            output.writeInt(1);
+            client.writeData(output);
+        }
+        long unsummedLength = new File("src/test/java/wit/io/datasources/ClientTest").length();
+
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(List.of(client), manager.getEntitiesList()));
+        assertEquals(unsummedLength + Integer.BYTES, new File("src/test/java/wit/io/datasources/ClientTest").length());
+    }
+
+    @Test
+    public void givenWriteBehindEnabled_whenFlushing_thenAllChangesAreSavedInOrder() throws Exception {
+        manager.enableWriteBehind();
+        Client edited = new Client("0011", "first", "last", "d2");
+        Client removed = new Client("1100", "first", "last", "d3");
+        clientAddingConsumer.accept(List.of(new Client("0000", "first", "last", "d1"), edited, removed));
+        Client afterEdit = new Client("0011", "changed", "last", "d2");
+        manager.editEntity(edited, afterEdit);
+        manager.removeEntity(removed);
+
+        manager.flush().join();
+
+        ClientManager loaded = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(
+                List.of(new Client("0000", "first", "last", "d1"), afterEdit), loaded.getEntitiesList()));
+        manager.disableWriteBehind();
+    }
+
+    @Test
+    public void givenWriteBehindEnabled_whenSavingInBackgroundFails_thenFailureIsReportedToHandler() throws Exception {
+        List<WritingException> failures = new CopyOnWriteArrayList<>();
+        manager.setWriteFailureHandler(failures::add);
+        manager.enableWriteBehind();
+        // a directory in place of the temporary file makes the next snapshot fail
+        File tempFile = new File("src/test/java/wit/io/datasources/ClientTest.tmp");
+        assertTrue(tempFile.mkdir());
+        try {
+            manager.addEntity(new Client("0000", "first", "last", "d1"));
+
+            assertThrows(CompletionException.class, () -> manager.flush().join());
+            assertEquals(1, failures.size());
+        } finally {
+            tempFile.delete();
+        }
+        manager.disableWriteBehind();
+        assertEquals(1, new ClientManager("src/test/java/wit/io/datasources/ClientTest").getEntities().size());
+    }
+
+    @Test
+    public void givenWriteBehindAndJournalEnabled_whenDisablingWriteBehind_thenChangesAreJournaled() throws Exception {
+        manager.enableJournal(100);
+        manager.enableWriteBehind();
+        List<Client> clients = List.of(
+                new Client("0000", "first", "last", "d1"),
+                new Client("0011", "first", "last", "d2")
+        );
+        clientAddingConsumer.accept(clients);
+
+        manager.disableWriteBehind();
+
+        assertFalse(manager.isWriteBehindEnabled());
+        assertTrue(new File("src/test/java/wit/io/datasources/ClientTest.journal").exists());
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(clients, manager.getEntitiesList()));
+    }
+
+    @Test
+    public void givenSnapshotOfClients_whenChangingClients_thenSnapshotIsUnchangedAndNextSnapshotFollowsChanges() throws Exception {
+        Client kept = new Client("0000", "first", "last", "d1");
+        Client edited = new Client("0011", "first", "last", "d2");
+        Client removed = new Client("1100", "first", "last", "d3");
+        clientAddingConsumer.accept(List.of(kept, edited, removed));
+        Set<Client> before = manager.getEntities();
+
+        Client afterEdit = new Client("0011", "changed", "last", "d2");
+        manager.editEntity(edited, afterEdit);
+        manager.removeEntity(removed);
+        Client added = new Client("1111", "first", "last", "d4");
+        manager.addEntity(added);
+
+        assertEquals(List.of(kept, edited, removed), new ArrayList<>(before));
+        assertEquals("first", before.stream().filter(edited::equals).findFirst().orElseThrow().getFirstName());
+        Set<Client> after = manager.getEntities();
+        assertEquals(List.of(kept, afterEdit, added), new ArrayList<>(after));
+        assertEquals("changed", after.stream().filter(edited::equals).findFirst().orElseThrow().getFirstName());
+        assertSame(after, manager.getEntities());
+        assertThrows(UnsupportedOperationException.class, () -> after.add(removed));
+    }
+
+    @Test
+    public void givenConcurrentWritersAndReaders_whenAddingClients_thenNoChangeIsLost() throws Exception {
+        manager.enableJournal(50);
+        int writers = 4;
+        int clientsPerWriter = 100;
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < clientsPerWriter; i++) {
+                        manager.addEntity(new Client(writer + "-" + i, "first" + i, "last", "d"));
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    while (writing.get()) {
+                        int size = manager.getEntities().size();
+                        for (Client client : manager.getEntities()) {
+                            assertNotNull(client.getDocId());
+                        }
+                        manager.search(null, "first", null, null);
+                        assertTrue(manager.getEntities().size() >= size);
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads.subList(0, writers)) {
+            thread.join();
+        }
+        writing.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(), errors);
+        assertEquals(writers * clientsPerWriter, manager.getEntities().size());
+        manager = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+        assertEquals(writers * clientsPerWriter, manager.getEntities().size());
+    }
+
     @Test
     public void givenDatasourceFileIsMissing_whenWritingNewClient_thenFileIsCreated() throws Exception {
         File file = new File("src/test/java/wit/io/datasources/ClientTest");
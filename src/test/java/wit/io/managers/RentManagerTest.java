@@ -4,13 +4,29 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import wit.io.data.Rent;
+import wit.io.data.Ski;
+import wit.io.data.SkiType;
 import wit.io.data.enums.RentStatus;
 import wit.io.exceptions.*;
+import wit.io.persistence.Mutation;
+import wit.io.persistence.TransactionLog;
+import wit.io.utils.Const;
 import wit.io.utils.Util;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,6 +56,36 @@ public class RentManagerTest {
     }
 
 
+    /**
+     * Clock that can be moved forward by tests.
+     */
+    private static class MovableClock extends Clock {
+        private LocalDate date;
+
+        MovableClock(LocalDate date) {
+            this.date = date;
+        }
+
+        void moveTo(LocalDate date) {
+            this.date = date;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return date.atStartOfDay(getZone()).toInstant();
+        }
+    }
+
     private static LocalDate getDateForDay(int day) {
         return LocalDate.of(2025, 5, day);
     }
@@ -81,6 +127,28 @@ public class RentManagerTest {
         assertEquals(1, manager.getEntitiesList().stream().filter((rent) -> rent.getStatus().equals(RentStatus.OVERDUE)).count());
     }
 
+    @Test
+    public void givenManyRentsOnManySkis_whenReadingInData_thenOnlyRentsOfOverdueSkisGetUpdatedToFailed() throws SkiAppException {
+        int skiCount = 2000;
+        Set<Rent> setOfRentals = new HashSet<>();
+        for (int i = 0; i < skiCount; i++) {
+            String model = "model" + i;
+            // every second ski is not returned on time
+            setOfRentals.add(new Rent(null, getDateForDay(10), getDateForDay(i % 2 == 0 ? 12 : 25), null, model, "client", "", RentStatus.ACTIVE));
+            setOfRentals.add(new Rent(null, getDateForDay(13), getDateForDay(26), null, model + "-next", "client", "", RentStatus.ACTIVE));
+            setOfRentals.add(new Rent(null, getDateForDay(19), getDateForDay(21), null, model, "client", "", RentStatus.ACTIVE));
+        }
+        dataEntitySetter.accept(setOfRentals);
+
+        switchToNewDay(20);
+
+        assertEquals(3 * skiCount, manager.getEntities().size());
+        assertEquals(skiCount / 2, manager.search(null, null, null, null, null, null, RentStatus.OVERDUE).size());
+        assertEquals(skiCount / 2, manager.search(null, null, null, null, null, null, RentStatus.FAILED).size());
+        assertTrue(manager.search(null, null, null, null, null, null, RentStatus.FAILED).stream()
+                .allMatch(rent -> Integer.parseInt(rent.getSkiModel().substring("model".length())) % 2 == 0));
+    }
+
     @Test
     public void givenOverdueRentExistsAndScheduledRentWithNotCollidingStartDate_whenReadingInData_thenRentStatusDoesNotGetUpdated() throws SkiAppException {
         Set<Rent> setOfRentals = new HashSet<>(List.of(
@@ -94,6 +162,74 @@ public class RentManagerTest {
     }
 
 
+    @Test
+    public void givenRunningManager_whenEndDatePassesAndStatusesAreSwept_thenRentsGetUpdatedToOverdueAndFailed() throws SkiAppException {
+        MovableClock clock = new MovableClock(getDateForDay(20));
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent", clock);
+        manager.addEntity(new Rent(Util.stringToUUID("test"), getDateForDay(22), getDateForDay(23), null, "10", "10", "", null));
+        manager.addEntity(new Rent(Util.stringToUUID("test1"), getDateForDay(24), getDateForDay(26), null, "10", "10", "", null));
+        manager.addEntity(new Rent(Util.stringToUUID("test2"), getDateForDay(22), getDateForDay(30), null, "20", "10", "", null));
+
+        clock.moveTo(getDateForDay(23));
+        manager.sweepStatuses();
+        assertEquals(3, manager.search(null, null, null, null, null, null, RentStatus.ACTIVE).size());
+
+        clock.moveTo(getDateForDay(25));
+        manager.sweepStatuses();
+        List<Rent> overdue = manager.search(null, null, null, null, null, null, RentStatus.OVERDUE);
+        assertEquals(1, overdue.size());
+        assertEquals(Util.stringToUUID("test"), overdue.get(0).getRentID());
+        assertEquals(getDateForDay(25), overdue.get(0).getUpdatedEndDate());
+        List<Rent> failed = manager.search(null, null, null, null, null, null, RentStatus.FAILED);
+        assertEquals(1, failed.size());
+        assertEquals(Util.stringToUUID("test1"), failed.get(0).getRentID());
+
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent", getDateForDay(20));
+        assertEquals(1, manager.search(null, null, null, null, null, null, RentStatus.OVERDUE).size());
+        assertEquals(1, manager.search(null, null, null, null, null, null, RentStatus.FAILED).size());
+    }
+
+    @Test
+    public void givenRentStartedBeforeOtherRentOfSkiGoesOverdue_whenStatusesAreSwept_thenStartedRentFailsLikeOnRead() throws SkiAppException {
+        MovableClock clock = new MovableClock(getDateForDay(20));
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent", clock);
+        Rent late = new Rent(Util.stringToUUID("late"), getDateForDay(20), getDateForDay(22), null, "10", "10", "", RentStatus.ACTIVE);
+        Rent started = new Rent(Util.stringToUUID("started"), getDateForDay(21), getDateForDay(30), null, "10", "11", "", RentStatus.ACTIVE);
+        Rent removed = new Rent(Util.stringToUUID("removed"), getDateForDay(21), getDateForDay(22), null, "20", "12", "", RentStatus.ACTIVE);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(late, started, removed)));
+
+        clock.moveTo(getDateForDay(21));
+        manager.sweepStatuses();
+        assertEquals(3, manager.search(null, null, null, null, null, null, RentStatus.ACTIVE).size());
+        manager.removeEntity(removed);
+
+        clock.moveTo(getDateForDay(23));
+        manager.sweepStatuses();
+        assertEquals(List.of(late.setStatus(RentStatus.OVERDUE)), manager.search(null, null, null, null, null, null, RentStatus.OVERDUE));
+        assertEquals(List.of(started), manager.search(null, null, null, null, null, null, RentStatus.FAILED));
+        assertEquals(List.of(), manager.search(null, null, null, null, null, null, RentStatus.ACTIVE));
+
+        // reading the same rentals in on that day gives the same statuses
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(late, started)));
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent", getDateForDay(23));
+        assertEquals(List.of(late), manager.search(null, null, null, null, null, null, RentStatus.OVERDUE));
+        assertEquals(List.of(started), manager.search(null, null, null, null, null, null, RentStatus.FAILED));
+    }
+
+    @Test
+    public void givenRentEditedBeforeItsEndDate_whenStatusesAreSwept_thenNewEndDateIsUsed() throws SkiAppException {
+        MovableClock clock = new MovableClock(getDateForDay(20));
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent", clock);
+        manager.addEntity(new Rent(Util.stringToUUID("test"), getDateForDay(22), getDateForDay(23), null, "10", "10", "", null));
+        Rent stored = manager.getEntitiesList().get(0);
+        manager.editEntity(stored, new Rent(Util.stringToUUID("test"), getDateForDay(22), getDateForDay(27), null, "10", "10", "", RentStatus.ACTIVE));
+
+        clock.moveTo(getDateForDay(25));
+        manager.sweepStatuses();
+
+        assertEquals(RentStatus.ACTIVE, manager.getEntitiesList().get(0).getStatus());
+    }
+
     @Test
     public void givenRentalsDataExist_whenCreatingNewManager_thenRentalDataIsCorrectlyLoaded() throws SkiAppException {
         Set<Rent> setOfRentals = new HashSet<>(List.of(
@@ -107,6 +243,157 @@ public class RentManagerTest {
         assertTrue(Util.orderAndCompareSetsOfObjectsByStringValue(setOfRentals, manager.getEntities()));
     }
 
+    @Test
+    public void givenRentalHistory_whenCreatingManagerWithMappedHistory_thenRentsAreLoadedAndReconciledInOrder() throws SkiAppException {
+        List<Rent> rents = List.of(
+                new Rent(Util.stringToUUID("returned"), getDateForDay(1), getDateForDay(3), null, "10", "10", "", RentStatus.RETURNED),
+                new Rent(Util.stringToUUID("overdue"), getDateForDay(10), getDateForDay(12), null, "10", "10", "", RentStatus.ACTIVE),
+                new Rent(Util.stringToUUID("failed"), getDateForDay(2), getDateForDay(4), null, "11", "10", "", RentStatus.FAILED),
+                new Rent(Util.stringToUUID("scheduled"), getDateForDay(25), getDateForDay(26), null, "11", "10", "", RentStatus.ACTIVE)
+        );
+        dataEntitySetter.accept(new LinkedHashSet<>(rents));
+
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent",
+                Clock.fixed(getDateForDay(20).atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()), true);
+
+        List<Rent> loaded = manager.getEntitiesList();
+        assertEquals(rents, loaded);
+        assertEquals(RentStatus.RETURNED, loaded.get(0).getStatus());
+        assertEquals(RentStatus.OVERDUE, loaded.get(1).getStatus());
+        assertTrue(manager.getEntities().contains(rents.get(2)));
+        assertEquals(1, manager.search(null, null, null, null, null, null, RentStatus.FAILED).size());
+        assertThrows(OverlappingRentDateException.class, () -> manager.addEntity(
+                new Rent(null, getDateForDay(20), getDateForDay(21), null, "10", "10", "", RentStatus.ACTIVE)));
+    }
+
+    @Test
+    public void givenMappedHistory_whenChangingRents_thenChangesAreSavedAndLoaded() throws SkiAppException {
+        Rent returned = new Rent(Util.stringToUUID("returned"), getDateForDay(1), getDateForDay(3), null, "10", "10", "", RentStatus.RETURNED);
+        Rent active = new Rent(Util.stringToUUID("active"), getDateForDay(18), getDateForDay(24), null, "11", "10", "", RentStatus.ACTIVE);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(returned, active)));
+        Clock clock = Clock.fixed(getDateForDay(20).atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent", clock, true);
+        manager.enableJournal(100);
+
+        manager.removeEntity(returned);
+        Rent activeReturned = active.setStatus(RentStatus.RETURNED);
+        manager.editEntity(active, activeReturned);
+        Rent added = new Rent(null, getDateForDay(22), getDateForDay(23), null, "12", "10", "", RentStatus.ACTIVE);
+        manager.addEntity(added);
+
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent", clock, true);
+        assertEquals(2, manager.getEntities().size());
+        assertFalse(manager.getEntities().contains(returned));
+        assertEquals(RentStatus.RETURNED, manager.search("11", null, null, null, null, null, null).get(0).getStatus());
+        manager.compact();
+
+        switchToNewDay(20);
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(List.of(activeReturned, added.setStatus(RentStatus.ACTIVE)),
+                manager.getEntitiesList()));
+    }
+
+    @Test
+    public void givenOldClosedRents_whenArchiving_thenTheyAreMovedToArchiveAndFoundOnlyWithArchive() throws Exception {
+        Rent oldReturned = new Rent(Util.stringToUUID("old"), getDateForDay(1), getDateForDay(2), null, "10", "10", "", RentStatus.RETURNED);
+        Rent oldFailed = new Rent(Util.stringToUUID("failed"), getDateForDay(3), getDateForDay(4), null, "11", "10", "", RentStatus.FAILED);
+        Rent recentReturned = new Rent(Util.stringToUUID("recent"), getDateForDay(15), getDateForDay(17), null, "10", "10", "", RentStatus.RETURNED);
+        Rent active = new Rent(Util.stringToUUID("active"), getDateForDay(1), getDateForDay(25), null, "12", "10", "", RentStatus.ACTIVE);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(oldReturned, oldFailed, recentReturned, active)));
+
+        assertEquals(2, manager.archiveClosedRents(Period.ofDays(10)));
+
+        assertTrue(new File("src/test/java/wit/io/datasources/Rent.archive").exists());
+        switchToNewDay(20);
+        assertEquals(List.of(recentReturned, active), manager.getEntitiesList());
+        assertEquals(List.of(recentReturned), manager.search("10", null, null, null, null, null, null));
+        assertEquals(List.of(recentReturned, oldReturned), manager.search("10", null, null, null, null, null, null, true));
+        assertEquals(List.of(oldFailed), manager.search(null, null, null, null, null, null, RentStatus.FAILED, true));
+        assertEquals(0, manager.archiveClosedRents(Period.ofDays(10)));
+    }
+
+    @Test
+    public void givenRentInLiveDataAndArchive_whenSearchingWithArchive_thenRentIsReturnedOnce() throws Exception {
+        Rent returned = new Rent(Util.stringToUUID("old"), getDateForDay(1), getDateForDay(2), null, "10", "10", "", RentStatus.RETURNED);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(returned)));
+        manager.archiveClosedRents(Period.ofDays(10));
+        // simulate a crash between archiving and saving the live data
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(returned)));
+
+        assertEquals(List.of(returned), manager.search(null, null, null, null, null, null, null, true));
+    }
+
+    @Test
+    public void givenTornRecordAtEndOfArchive_whenSearchingAndArchivingAgain_thenSearchLeavesFileAndArchivingCutsRecordOff() throws Exception {
+        Rent first = new Rent(Util.stringToUUID("first"), getDateForDay(1), getDateForDay(2), null, "10", "10", "", RentStatus.RETURNED);
+        Rent second = new Rent(Util.stringToUUID("second"), getDateForDay(3), getDateForDay(4), null, "11", "10", "", RentStatus.RETURNED);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(first)));
+        manager.archiveClosedRents(Period.ofDays(10));
+        File archiveFile = new File("src/test/java/wit/io/datasources/Rent.archive");
+        // simulate a crash in the middle of appending a record
+        try (FileOutputStream output = new FileOutputStream(archiveFile, true)) {
+            output.write(new byte[]{0, 0, 0, 100, 1, 2});
+        }
+        long tornLength = archiveFile.length();
+        switchToNewDay(20);
+
+        assertEquals(List.of(first), manager.search(null, null, null, null, null, null, null, true));
+        assertEquals(tornLength, archiveFile.length());
+
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(second)));
+        assertEquals(1, manager.archiveClosedRents(Period.ofDays(10)));
+        assertEquals(List.of(first, second), manager.search(null, null, null, null, null, null, null, true));
+    }
+
+    @Test
+    public void givenRentFileInLegacyFormat_whenCreatingNewManager_thenDataIsLoadedAndFileIsMigrated() throws Exception {
+        List<Rent> rents = new ArrayList<>(List.of(
+                new Rent(Util.stringToUUID("test"), getDateForDay(22), getDateForDay(23), null, "10", "10", "first", RentStatus.ACTIVE),
+                new Rent(Util.stringToUUID("test1"), getDateForDay(5), getDateForDay(6), getDateForDay(8), "11", "10", "", RentStatus.RETURNED)
+        ));
+        // enough rents for the size of the entities to outweigh the header and checksum of the new format
+        for (int i = 0; i < 50; i++) {
+            rents.add(new Rent(null, getDateForDay(5), getDateForDay(6), null, "model" + i, "client" + i, "", RentStatus.RETURNED));
+        }
+        File file = new File("src/test/java/wit/io/datasources/Rent");
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(file))) {
+            output.writeInt(rents.size());
+            for (Rent rent : rents) {
+                output.writeUTF(rent.getRentID().toString());
+                output.writeUTF(rent.getSkiModel());
+                output.writeUTF(rent.getClientID());
+                output.writeUTF(Util.dateToString(rent.getStartDate()));
+                output.writeUTF(Util.dateToString(rent.getEndDate()));
+                output.writeUTF(Util.dateToString(rent.getUpdatedEndDate()));
+                output.writeUTF(rent.getComment());
+                output.writeUTF(rent.getStatus().name());
+            }
+        }
+        long legacyLength = file.length();
+
+        switchToNewDay(20);
+
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(rents, manager.getEntitiesList()));
+        assertTrue(file.length() < legacyLength / 2);
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            assertEquals(Const.DataFileMagic, input.readInt());
+            assertEquals(Const.DataFileVersion, input.readInt());
+        }
+        switchToNewDay(20);
+        assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(rents, manager.getEntitiesList()));
+    }
+
+    @Test
+    public void givenRentWithDateBeyondEpochDayRange_whenSavingRents_thenThrowWritingExceptionAndKeepSavedData() throws Exception {
+        Rent saved = new Rent(null, getDateForDay(22), getDateForDay(23), null, "model1", "client1", "", RentStatus.ACTIVE);
+        manager.addEntity(saved);
+
+        Rent distant = new Rent(null, LocalDate.of(6_000_000, 1, 1), LocalDate.of(6_000_000, 1, 2), null, "model2", "client1", "", RentStatus.ACTIVE);
+        assertThrows(WritingException.class, () -> manager.setEntities(new LinkedHashSet<>(List.of(saved, distant))));
+
+        switchToNewDay(20);
+        assertEquals(List.of(saved), manager.getEntitiesList());
+    }
+
     @Test
     public void givenNewRentWithEndDateBeforeStartDate_whenAddingRent_thenThrowInvalidRentDateException() {
         Rent test1 = new Rent(null, getDateForDay(25), getDateForDay(22), null, "model1", "client1", "", null);
@@ -146,6 +433,170 @@ public class RentManagerTest {
         assertEquals(1, manager.getEntities().size());
     }
 
+    @Test
+    public void givenLongestRentOfSkiShortenedAndRemoved_whenAddingRents_thenOverlapsAreStillFound() throws Exception {
+        Rent longRent = new Rent(Util.stringToUUID("long"), getDateForDay(20), getDateForDay(30), null, "model1", "client1", "", null);
+        Rent later = new Rent(null, getDateForDay(31), getDateForDay(31), null, "model1", "client2", "", null);
+        manager.addEntity(longRent);
+        manager.addEntity(later);
+
+        Rent shortened = new Rent(Util.stringToUUID("long"), getDateForDay(20), getDateForDay(21), null, "model1", "client1", "", RentStatus.ACTIVE);
+        manager.editEntity(manager.getEntitiesList().get(0), shortened);
+        assertThrows(OverlappingRentDateException.class, () -> manager.addEntity(
+                new Rent(null, getDateForDay(21), getDateForDay(22), null, "model1", "client3", "", null)));
+        manager.addEntity(new Rent(null, getDateForDay(23), getDateForDay(24), null, "model1", "client3", "", null));
+
+        manager.removeEntity(shortened);
+        assertThrows(OverlappingRentDateException.class, () -> manager.addEntity(
+                new Rent(null, getDateForDay(30), getDateForDay(31), null, "model1", "client4", "", null)));
+        manager.addEntity(new Rent(null, getDateForDay(20), getDateForDay(21), null, "model1", "client4", "", null));
+        assertEquals(3, manager.getEntities().size());
+    }
+
+    @Test
+    public void givenConcurrentBookings_whenAddingRents_thenOnlyOneOverlappingBookingOfSkiIsAdded() throws Exception {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Rent> added = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < threads; i++) {
+            // all threads book the same period of "model1", each also books its own ski
+            Rent overlapping = new Rent(null, getDateForDay(22), getDateForDay(25), null, "model1", "client" + i, "", null);
+            Rent own = new Rent(null, getDateForDay(22), getDateForDay(25), null, "model" + (i + 2), "client" + i, "", null);
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    try {
+                        manager.addEntity(overlapping);
+                        added.add(overlapping);
+                    } catch (OverlappingRentDateException e) {
+                        // expected for all but one thread
+                    }
+                    manager.addEntity(own);
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(List.of(), errors);
+        assertEquals(1, added.size());
+        assertEquals(threads + 1, manager.getEntities().size());
+        assertEquals(1, manager.search("model1", null, null, null, null, null, null).size());
+    }
+
+    @Test
+    public void givenConcurrentBookingsWithJournal_whenReadingManagerAgain_thenRentsAreReadInOrderTheyWereAdded() throws Exception {
+        manager.enableJournal(1000);
+        int threads = 4;
+        int rentsPerThread = 25;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < rentsPerThread; j++) {
+                        // every other booking of a thread overlaps a booking of another thread
+                        String model = j % 2 == 0 ? "shared" + j : "model" + thread + "-" + j;
+                        try {
+                            manager.addEntity(new Rent(null, getDateForDay(22), getDateForDay(25), null, model, "client" + thread, "", null));
+                        } catch (OverlappingRentDateException e) {
+                            // expected for all but one thread booking a shared ski
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(List.of(), errors);
+        List<Rent> added = new ArrayList<>(manager.getEntities());
+        assertEquals(threads * (rentsPerThread / 2) + (rentsPerThread + 1) / 2, added.size());
+        manager = new RentManager("src/test/java/wit/io/datasources/Rent", getDateForDay(20));
+        assertEquals(added, new ArrayList<>(manager.getEntities()));
+    }
+
+    @Test
+    public void givenBatchOfRents_whenAddingAll_thenRentsAreAddedAsActive() throws SkiAppException {
+        List<Rent> rents = List.of(
+                new Rent(null, getDateForDay(22), getDateForDay(25), null, "model1", "client1", "", null),
+                new Rent(null, getDateForDay(26), getDateForDay(28), null, "model1", "client2", "", null),
+                new Rent(null, getDateForDay(22), getDateForDay(25), null, "model2", "client3", "", null)
+        );
+
+        manager.addAll(rents);
+
+        assertEquals(rents, manager.getEntitiesList());
+        assertTrue(manager.getEntities().stream().allMatch(rent -> rent.getStatus() == RentStatus.ACTIVE));
+        assertFalse(manager.isSkiFree("model1", getDateForDay(27), getDateForDay(27)));
+    }
+
+    @Test
+    public void givenBatchOfRentsOverlappingEachOther_whenAddingAll_thenThrowOverlappingRentDateExceptionAndNothingIsAdded() throws SkiAppException {
+        Rent existing = new Rent(null, getDateForDay(22), getDateForDay(23), null, "model1", "client1", "", null);
+        manager.addEntity(existing);
+
+        assertThrows(OverlappingRentDateException.class, () -> manager.addAll(List.of(
+                new Rent(null, getDateForDay(24), getDateForDay(26), null, "model1", "client2", "", null),
+                new Rent(null, getDateForDay(22), getDateForDay(25), null, "model2", "client3", "", null),
+                new Rent(null, getDateForDay(26), getDateForDay(28), null, "model1", "client4", "", null)
+        )));
+        assertThrows(OverlappingRentDateException.class, () -> manager.addAll(List.of(
+                new Rent(null, getDateForDay(23), getDateForDay(24), null, "model1", "client2", "", null))));
+        assertThrows(InvalidRentDateException.class, () -> manager.addAll(List.of(
+                new Rent(null, getDateForDay(26), getDateForDay(28), null, "model1", "client2", "", null),
+                new Rent(null, getDateForDay(15), getDateForDay(16), null, "model3", "client3", "", null))));
+        assertEquals(List.of(existing), manager.getEntitiesList());
+        assertTrue(manager.isSkiFree("model2", getDateForDay(22), getDateForDay(25)));
+    }
+
+    @Test
+    public void givenBatchCancellingAndRebookingSki_whenApplyingBatch_thenFreedPeriodCanBeBooked() throws SkiAppException {
+        Rent cancelled = new Rent(null, getDateForDay(22), getDateForDay(25), null, "model1", "client1", "", null);
+        Rent moved = new Rent(null, getDateForDay(26), getDateForDay(27), null, "model1", "client2", "", null);
+        manager.addAll(List.of(cancelled, moved));
+        Rent rebooked = new Rent(null, getDateForDay(22), getDateForDay(24), null, "model1", "client3", "", RentStatus.ACTIVE);
+        Rent movedEarlier = new Rent(moved.getRentID(), getDateForDay(25), getDateForDay(27), null, "model1", "client2", "", RentStatus.ACTIVE);
+
+        manager.applyBatch(List.of(Mutation.remove(cancelled), Mutation.add(rebooked), Mutation.replace(moved, movedEarlier)));
+
+        assertEquals(List.of(rebooked, movedEarlier), manager.getEntitiesList());
+        assertThrows(OverlappingRentDateException.class, () -> manager.applyBatch(List.of(
+                Mutation.replace(movedEarlier, new Rent(moved.getRentID(), getDateForDay(24), getDateForDay(27), null, "model1", "client2", "", RentStatus.ACTIVE)))));
+        assertEquals(List.of(rebooked, movedEarlier), manager.getEntitiesList());
+    }
+
+    @Test
+    public void givenRentsWithOtherStatusInBatch_whenApplyingBatch_thenRentsAreAddedAsActive() throws SkiAppException {
+        Rent returned = new Rent(null, getDateForDay(22), getDateForDay(23), null, "model1", "client1", "", RentStatus.RETURNED);
+        Rent withoutStatus = new Rent(null, getDateForDay(22), getDateForDay(23), null, "model2", "client2", "", null);
+
+        manager.applyBatch(List.of(Mutation.add(returned), Mutation.add(withoutStatus)));
+
+        assertEquals(List.of(RentStatus.ACTIVE, RentStatus.ACTIVE),
+                manager.getEntitiesList().stream().map(Rent::getStatus).collect(Collectors.toList()));
+        assertFalse(manager.isSkiFree("model1", getDateForDay(22), getDateForDay(23)));
+        assertThrows(OverlappingRentDateException.class, () -> manager.addEntity(
+                new Rent(null, getDateForDay(23), getDateForDay(24), null, "model1", "client3", "", null)));
+    }
+
     @Test
     public void whenAddingRentInThePast_thenThrowInvalidRentDateException() {
         Rent test1 = new Rent(null, getDateForDay(15), getDateForDay(16), null, "model1", "client1", "", null);
@@ -173,6 +624,59 @@ public class RentManagerTest {
         assertEquals(2, manager.getEntities().size());
     }
 
+    @Test
+    public void givenOverdueRentWithExtendedEndDate_whenAddingRentWithinExtension_thenThrowOverlappingRentDateException() throws SkiAppException {
+        Set<Rent> setOfRentals = new HashSet<>(List.of(
+                new Rent(null, getDateForDay(10), getDateForDay(12), getDateForDay(24), "model1", "client1", "", RentStatus.OVERDUE)
+        ));
+        dataEntitySetter.accept(setOfRentals);
+        switchToNewDay(20);
+
+        Rent test1 = new Rent(null, getDateForDay(23), getDateForDay(26), null, "model1", "client2", "", null);
+        Rent test2 = new Rent(null, getDateForDay(25), getDateForDay(26), null, "model1", "client2", "", null);
+
+        assertThrows(OverlappingRentDateException.class, () -> manager.addEntity(test1));
+        assertDoesNotThrow(() -> manager.addEntity(test2));
+    }
+
+    @Test
+    public void givenRemovedRent_whenAddingRentWithSameDates_thenDoesNotThrow() throws SkiAppException {
+        Rent test1 = new Rent(null, getDateForDay(22), getDateForDay(25), null, "model1", "client1", "", null);
+        manager.addEntity(test1);
+        manager.removeEntity(test1);
+
+        Rent test2 = new Rent(null, getDateForDay(22), getDateForDay(25), null, "model1", "client2", "", null);
+
+        assertDoesNotThrow(() -> manager.addEntity(test2));
+        assertEquals(1, manager.getEntities().size());
+    }
+
+    @Test
+    public void givenRentEditedToReturned_whenAddingRentWithOverlappingDates_thenDoesNotThrow() throws SkiAppException {
+        Rent test1 = new Rent(Util.stringToUUID("rent1"), getDateForDay(22), getDateForDay(25), null, "model1", "client1", "", null);
+        manager.addEntity(test1);
+        Rent stored = manager.getEntitiesList().get(0);
+        manager.editEntity(stored, stored.setStatus(RentStatus.RETURNED));
+
+        Rent test2 = new Rent(null, getDateForDay(23), getDateForDay(24), null, "model1", "client2", "", null);
+
+        assertDoesNotThrow(() -> manager.addEntity(test2));
+        assertEquals(2, manager.getEntities().size());
+    }
+
+    @Test
+    public void givenExistingRent_whenEditingItsDatesToOverlapOnlyItself_thenDataIsUpdated() throws SkiAppException {
+        Rent test1 = new Rent(Util.stringToUUID("rent1"), getDateForDay(22), getDateForDay(25), null, "model1", "client1", "", null);
+        manager.addEntity(test1);
+        Rent stored = manager.getEntitiesList().get(0);
+
+        Rent test2 = new Rent(Util.stringToUUID("rent1"), getDateForDay(23), getDateForDay(27), null, "model1", "client1", "", RentStatus.ACTIVE);
+        assertDoesNotThrow(() -> manager.editEntity(stored, test2));
+
+        Rent test3 = new Rent(null, getDateForDay(26), getDateForDay(28), null, "model1", "client2", "", null);
+        assertThrows(OverlappingRentDateException.class, () -> manager.addEntity(test3));
+    }
+
     @Test
     public void givenExistingRent_whenEditingRentWithCorrectData_thenDataIsUpdated() throws SkiAppException {
         Rent test1 = new Rent(Util.stringToUUID("rent1"), getDateForDay(22), getDateForDay(23), null, "10", "10", "old comment", RentStatus.ACTIVE);
@@ -222,6 +726,60 @@ public class RentManagerTest {
         assertEquals("client1", results.get(0).getClientID());
     }
 
+    @Test
+    public void givenEditedAndRemovedRents_whenSearchingByIndexedCriteria_thenCurrentVersionsAreReturned() throws SkiAppException {
+        Rent edited = new Rent(null, getDateForDay(22), getDateForDay(23), null, "10", "a", "", RentStatus.ACTIVE);
+        Rent removed = new Rent(null, getDateForDay(24), getDateForDay(25), null, "10", "b", "", RentStatus.ACTIVE);
+        Rent other = new Rent(null, getDateForDay(22), getDateForDay(23), null, "11", "a", "", RentStatus.ACTIVE);
+        manager.addEntity(edited);
+        manager.addEntity(removed);
+        manager.addEntity(other);
+
+        Rent returned = edited.setStatus(RentStatus.RETURNED);
+        manager.editEntity(edited, returned);
+        manager.removeEntity(removed);
+
+        assertEquals(List.of(other), manager.search(null, null, null, null, null, null, RentStatus.ACTIVE));
+        assertEquals(RentStatus.RETURNED, manager.search("10", "a", null, null, null, null, null).get(0).getStatus());
+        assertTrue(manager.search("10", "b", null, null, null, null, null).isEmpty());
+        assertTrue(manager.search("12", null, null, null, null, null, null).isEmpty());
+        assertEquals(List.of(other), manager.search("11", "a", null, null, null, null, RentStatus.ACTIVE));
+    }
+
+    @Test
+    public void givenRentsOnManyDays_whenSearchingByStartDateRange_thenRentsStartingInRangeAreReturned() throws SkiAppException {
+        List<Rent> rents = new ArrayList<>();
+        for (int day = 21; day <= 30; day++) {
+            Rent rent = new Rent(null, getDateForDay(day), getDateForDay(day), null, "model" + day, "10", "", RentStatus.ACTIVE);
+            manager.addEntity(rent);
+            rents.add(rent);
+        }
+
+        assertEquals(rents.subList(2, 5), manager.search(null, null, getDateForDay(23), getDateForDay(25), null, null, null));
+        assertEquals(rents.subList(0, 3), manager.search(null, null, null, getDateForDay(26), getDateForDay(23), null, null));
+        assertEquals(rents.subList(8, 10), manager.search(null, null, getDateForDay(29), null, null, null, null));
+        assertEquals(List.of(rents.get(4)), manager.search("model25", null, getDateForDay(21), getDateForDay(30), null, null, null));
+        assertTrue(manager.search(null, null, getDateForDay(25), getDateForDay(24), null, null, null).isEmpty());
+    }
+
+    @Test
+    public void givenRentsAddedOutOfDateOrder_whenSearchingByStartDateRange_thenRentsAreReturnedInInsertionOrder() throws SkiAppException {
+        List<Rent> rents = new ArrayList<>();
+        for (int day : new int[]{27, 23, 25, 22, 29}) {
+            Rent rent = new Rent(null, getDateForDay(day), getDateForDay(day), null, "model" + day, "10", "", RentStatus.ACTIVE);
+            manager.addEntity(rent);
+            rents.add(rent);
+        }
+        for (int i = 0; i < 10; i++) {
+            manager.addEntity(new Rent(null, getDateForDay(30), getDateForDay(30), null, "other" + i, "11", "", RentStatus.ACTIVE));
+        }
+
+        List<Rent> expected = rents.subList(0, 4);
+        assertEquals(expected, manager.search(null, null, getDateForDay(22), getDateForDay(28), null, null, null));
+        assertEquals(expected, manager.search(null, "10", getDateForDay(22), getDateForDay(28), null, null, null));
+        assertEquals(rents, manager.search(null, "10", null, getDateForDay(29), null, null, null));
+    }
+
     @Test
     public void givenExistingRent_whenSearchingWithNoMatchingCriteria_thenReturnsEmptyList() {
         Set<Rent> setOfRentals = new HashSet<>(List.of(
@@ -241,4 +799,196 @@ public class RentManagerTest {
         assertEquals(RentStatus.ACTIVE, manager.getEntitiesList().get(0).getStatus());
     }
 
+    @Test
+    public void givenSkiTypeWithSkisAndRent_whenChangingThemInTransaction_thenAllChangesAreAppliedAndSaved() throws Exception {
+        SkiTypeManager skiTypes = new SkiTypeManager("src/test/java/wit/io/datasources/SkiType");
+        SkiManager skis = new SkiManager("src/test/java/wit/io/datasources/ski");
+        ClientManager clients = new ClientManager("src/test/java/wit/io/datasources/ClientTest");
+        skiTypes.resetEntityData();
+        skis.resetEntityData();
+        SkiType type = new SkiType("retired", "old type");
+        Ski first = new Ski(type, "brand", "model1", "bonds", 160f);
+        Ski second = new Ski(type, "brand", "model2", "bonds", 170f);
+        Rent rent = new Rent(null, getDateForDay(22), getDateForDay(23), null, "model1", "client1", "", RentStatus.ACTIVE);
+        skiTypes.addEntity(type);
+        skis.addAll(List.of(first, second));
+        manager.addEntity(rent);
+        TransactionManager transactions = new TransactionManager(
+                "src/test/java/wit/io/datasources/Transactions", skiTypes, skis, clients, manager);
+
+        transactions.begin()
+                .edit(manager, rent, rent.setStatus(RentStatus.RETURNED))
+                .remove(skis, first)
+                .remove(skis, second)
+                .remove(skiTypes, type)
+                .commit();
+
+        assertTrue(skiTypes.getEntities().isEmpty());
+        assertTrue(skis.getEntities().isEmpty());
+        assertEquals(RentStatus.RETURNED, manager.getEntitiesList().get(0).getStatus());
+        assertFalse(new File("src/test/java/wit/io/datasources/Transactions").exists());
+        assertTrue(new SkiTypeManager("src/test/java/wit/io/datasources/SkiType").getEntities().isEmpty());
+        assertTrue(new SkiManager("src/test/java/wit/io/datasources/ski").getEntities().isEmpty());
+        switchToNewDay(20);
+        assertEquals(RentStatus.RETURNED, manager.getEntitiesList().get(0).getStatus());
+    }
+
+    @Test
+    public void givenOverlappingRentInTransaction_whenCommitting_thenThrowAndNothingIsChanged() throws Exception {
+        SkiManager skis = new SkiManager("src/test/java/wit/io/datasources/ski");
+        skis.resetEntityData();
+        Rent booked = new Rent(null, getDateForDay(22), getDateForDay(24), null, "model1", "client1", "", RentStatus.ACTIVE);
+        manager.addEntity(booked);
+        TransactionManager transactions = new TransactionManager("src/test/java/wit/io/datasources/Transactions",
+                new SkiTypeManager("src/test/java/wit/io/datasources/SkiType"), skis,
+                new ClientManager("src/test/java/wit/io/datasources/ClientTest"), manager);
+
+        Transaction transaction = transactions.begin()
+                .add(skis, new Ski(new SkiType("name", "description"), "brand", "model1", "bonds", 160f))
+                .add(manager, new Rent(null, getDateForDay(23), getDateForDay(25), null, "model1", "client2", "", RentStatus.ACTIVE));
+
+        assertThrows(OverlappingRentDateException.class, transaction::commit);
+        assertTrue(skis.getEntities().isEmpty());
+        assertEquals(List.of(booked), manager.getEntitiesList());
+        assertFalse(new File("src/test/java/wit/io/datasources/Transactions").exists());
+        assertThrows(IllegalStateException.class, transaction::commit);
+    }
+
+    @Test
+    public void givenRentWithOtherStatusInTransaction_whenCommitting_thenRentIsAddedAsActive() throws Exception {
+        TransactionManager transactions = new TransactionManager("src/test/java/wit/io/datasources/Transactions",
+                new SkiTypeManager("src/test/java/wit/io/datasources/SkiType"),
+                new SkiManager("src/test/java/wit/io/datasources/ski"),
+                new ClientManager("src/test/java/wit/io/datasources/ClientTest"), manager);
+
+        transactions.begin()
+                .add(manager, new Rent(null, getDateForDay(22), getDateForDay(23), null, "model1", "client1", "", RentStatus.FAILED))
+                .commit();
+
+        assertEquals(RentStatus.ACTIVE, manager.getEntitiesList().get(0).getStatus());
+        assertFalse(manager.isSkiFree("model1", getDateForDay(22), getDateForDay(23)));
+        switchToNewDay(20);
+        assertEquals(RentStatus.ACTIVE, manager.getEntitiesList().get(0).getStatus());
+    }
+
+    @Test
+    public void givenCommittedTransactionNotMarkedDone_whenCreatingTransactionManager_thenTransactionIsRedoneAndSaved() throws Exception {
+        SkiTypeManager skiTypes = new SkiTypeManager("src/test/java/wit/io/datasources/SkiType");
+        SkiManager skis = new SkiManager("src/test/java/wit/io/datasources/ski");
+        skiTypes.resetEntityData();
+        skis.resetEntityData();
+        SkiType type = new SkiType("retired", "old type");
+        Ski ski = new Ski(type, "brand", "model1", "bonds", 160f);
+        skiTypes.addEntity(type);
+        skis.addEntity(ski);
+        Rent rent = new Rent(null, getDateForDay(22), getDateForDay(23), null, "model2", "client1", "", RentStatus.ACTIVE);
+        // crash after the transaction was committed, before the managers saved it
+        new TransactionLog(new File("src/test/java/wit/io/datasources/Transactions")).commit(List.of(
+                new TransactionLog.Change(1, Mutation.remove(ski)),
+                new TransactionLog.Change(0, Mutation.remove(type)),
+                new TransactionLog.Change(3, Mutation.add(rent))));
+
+        skiTypes = new SkiTypeManager("src/test/java/wit/io/datasources/SkiType");
+        skis = new SkiManager("src/test/java/wit/io/datasources/ski");
+        new TransactionManager("src/test/java/wit/io/datasources/Transactions", skiTypes, skis,
+                new ClientManager("src/test/java/wit/io/datasources/ClientTest"), manager);
+
+        assertTrue(skiTypes.getEntities().isEmpty());
+        assertTrue(skis.getEntities().isEmpty());
+        assertEquals(List.of(rent), manager.getEntitiesList());
+        assertFalse(new File("src/test/java/wit/io/datasources/Transactions").exists());
+        assertTrue(new SkiTypeManager("src/test/java/wit/io/datasources/SkiType").getEntities().isEmpty());
+        assertTrue(new SkiManager("src/test/java/wit/io/datasources/ski").getEntities().isEmpty());
+        switchToNewDay(20);
+        assertEquals(List.of(rent), manager.getEntitiesList());
+    }
+
+    @Test
+    public void givenCrashBetweenSavingPartsOfTransaction_whenCreatingTransactionManager_thenOnlyUnsavedPartsAreRedone() throws Exception {
+        SkiTypeManager skiTypes = new SkiTypeManager("src/test/java/wit/io/datasources/SkiType");
+        SkiManager skis = new SkiManager("src/test/java/wit/io/datasources/ski");
+        skiTypes.resetEntityData();
+        skis.resetEntityData();
+        SkiType type = new SkiType("new", "new type");
+        Ski ski = new Ski(type, "brand", "model1", "bonds", 160f);
+        Rent rent = new Rent(null, getDateForDay(22), getDateForDay(23), null, "model1", "client1", "", RentStatus.ACTIVE);
+        // crash after the ski types and skis saved their parts, before the rents saved theirs
+        new TransactionLog(new File("src/test/java/wit/io/datasources/Transactions")).commit(List.of(
+                new TransactionLog.Change(0, Mutation.add(type)),
+                new TransactionLog.Change(1, Mutation.add(ski)),
+                new TransactionLog.Change(3, Mutation.add(rent))));
+        skiTypes.addEntity(type);
+        skis.addEntity(ski);
+
+        skiTypes = new SkiTypeManager("src/test/java/wit/io/datasources/SkiType");
+        skis = new SkiManager("src/test/java/wit/io/datasources/ski");
+        List<Ski> redoneSkis = new ArrayList<>();
+        skis.addListener(new ManagerListener<>() {
+            @Override
+            public void entityAdded(Ski entity) {
+                redoneSkis.add(entity);
+            }
+
+            @Override
+            public void entityRemoved(Ski entity) {
+                redoneSkis.add(entity);
+            }
+
+            @Override
+            public void entitiesReset(Set<Ski> entities) {
+                redoneSkis.addAll(entities);
+            }
+        });
+        new TransactionManager("src/test/java/wit/io/datasources/Transactions", skiTypes, skis,
+                new ClientManager("src/test/java/wit/io/datasources/ClientTest"), manager);
+
+        assertTrue(redoneSkis.isEmpty());
+        assertEquals(List.of(type), skiTypes.getEntitiesList());
+        assertEquals(List.of(ski), skis.getEntitiesList());
+        assertEquals(List.of(rent), manager.getEntitiesList());
+        assertFalse(new File("src/test/java/wit/io/datasources/Transactions").exists());
+        switchToNewDay(20);
+        assertEquals(List.of(rent), manager.getEntitiesList());
+    }
+
+    @Test
+    public void givenManagerFailingToSaveItsPartOfTransaction_whenCommitting_thenItRejectsChangesUntilCheckpointAndSavedPartsAreNotRedone() throws Exception {
+        SkiTypeManager skiTypes = new SkiTypeManager("src/test/java/wit/io/datasources/SkiType");
+        SkiManager skis = new SkiManager("src/test/java/wit/io/datasources/ski");
+        skis.resetEntityData();
+        TransactionManager transactions = new TransactionManager("src/test/java/wit/io/datasources/Transactions",
+                skiTypes, skis, new ClientManager("src/test/java/wit/io/datasources/ClientTest"), manager);
+        SkiType type = new SkiType("new", "new type");
+        Ski ski = new Ski(type, "brand", "model1", "bonds", 160f);
+        Ski otherSki = new Ski(type, "brand", "model2", "bonds", 170f);
+        Rent rent = new Rent(null, getDateForDay(22), getDateForDay(23), null, "model1", "client1", "", RentStatus.ACTIVE);
+        // a directory in place of the temporary file makes the next snapshot of the skis fail
+        File tempFile = new File("src/test/java/wit/io/datasources/ski.tmp");
+        assertTrue(tempFile.mkdir());
+        try {
+            Transaction transaction = transactions.begin().add(skis, ski).add(manager, rent);
+
+            assertThrows(WritingException.class, transaction::commit);
+            assertThrows(WritingException.class, () -> skis.addEntity(otherSki));
+            assertThrows(WritingException.class, () -> transactions.begin().add(skis, otherSki).commit());
+            manager.removeEntity(rent);
+        } finally {
+            tempFile.delete();
+        }
+        assertThrows(WritingException.class, () -> skis.addEntity(otherSki));
+
+        // crash before the checkpoint: the rents saved their part and were changed since, only the skis redo theirs
+        SkiManager recoveredSkis = new SkiManager("src/test/java/wit/io/datasources/ski");
+        RentManager recoveredRents = new RentManager("src/test/java/wit/io/datasources/Rent", getDateForDay(20));
+        new TransactionManager("src/test/java/wit/io/datasources/Transactions",
+                new SkiTypeManager("src/test/java/wit/io/datasources/SkiType"), recoveredSkis,
+                new ClientManager("src/test/java/wit/io/datasources/ClientTest"), recoveredRents);
+        assertEquals(List.of(ski), recoveredSkis.getEntitiesList());
+        assertTrue(recoveredRents.getEntities().isEmpty());
+
+        transactions.checkpoint();
+        skis.addEntity(otherSki);
+        assertEquals(List.of(ski, otherSki), new SkiManager("src/test/java/wit/io/datasources/ski").getEntitiesList());
+    }
+
 }
@@ -13,8 +13,13 @@ import wit.io.utils.Util;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,6 +58,7 @@ public class ReportManagerTest {
             rentManager.resetEntityData();
 
             reportManager = new ReportManager(rentManager, skiManager);
+            reportManager.setConsistencyCheck(true);
             now = getDateForDay(20);
         } catch (Exception e) {
             fail(e.getMessage());
@@ -73,6 +79,7 @@ public class ReportManagerTest {
         LocalDate now = getDateForDay(day);
         rentManager = new RentManager("src/test/java/wit/io/datasources/Rent", now);
         reportManager = new ReportManager(rentManager, skiManager);
+        reportManager.setConsistencyCheck(true);
         this.now = now;
     }
 
@@ -223,6 +230,124 @@ public class ReportManagerTest {
         assertTrue(Util.orderAndCompareListsOfObjectsByStringValue(listOfSkis.subList(0, 3), new ArrayList<>(reportManager.rentedSkis(now))));
     }
 
+    @Test
+    public void givenRentsAndSkisChange_whenReportsAreCalled_thenReportsFollowChanges() throws SkiAppException {
+        Ski ski1 = new Ski(new SkiType("name1", "description1"), "brand1", "model1", "bond1", 1f);
+        Ski ski2 = new Ski(new SkiType("name2", "description2"), "brand2", "model2", "bond2", 2f);
+        Ski ski3 = new Ski(new SkiType("name3", "description3"), "brand3", "model3", "bond3", 3f);
+        skiAddingConsumer.accept(List.of(ski1, ski2, ski3));
+        Rent activeRent = new Rent(Util.stringToUUID("test"), getDateForDay(19), getDateForDay(25), null, "model1", "10", "", RentStatus.ACTIVE);
+        Rent overdueRent = new Rent(Util.stringToUUID("test1"), getDateForDay(10), getDateForDay(15), null, "model2", "10", "", RentStatus.OVERDUE);
+        Rent futureRent = new Rent(Util.stringToUUID("test2"), getDateForDay(25), getDateForDay(28), null, "model3", "10", "", RentStatus.ACTIVE);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(activeRent, overdueRent)));
+
+        assertEquals(Set.of(ski1, ski2), reportManager.rentedSkis(now));
+        assertEquals(Set.of(ski2), reportManager.overdueSkis());
+        assertEquals(Set.of(ski3), reportManager.availableSkis(now));
+
+        rentManager.removeEntity(overdueRent);
+        skiManager.removeEntity(ski1);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(activeRent, futureRent)));
+
+        assertTrue(reportManager.rentedSkis(now).isEmpty());
+        assertTrue(reportManager.overdueSkis().isEmpty());
+        assertEquals(Set.of(ski2, ski3), reportManager.availableSkis(now));
+        assertEquals(Set.of(ski3), reportManager.rentedSkis(getDateForDay(25)));
+        assertEquals(Set.of(ski2), reportManager.availableSkis(getDateForDay(25)));
+    }
+
+    @Test
+    public void givenFutureBookingsAndRentsOutOfInventoryOrder_whenReportsAreCalled_thenSkisAreListedInInventoryOrder() throws SkiAppException {
+        Ski ski1 = new Ski(new SkiType("name1", "description1"), "brand1", "model1", "bond1", 1f);
+        Ski ski2 = new Ski(new SkiType("name2", "description2"), "brand2", "model2", "bond2", 2f);
+        Ski ski3 = new Ski(new SkiType("name3", "description3"), "brand3", "model3", "bond3", 3f);
+        Ski ski4 = new Ski(new SkiType("name4", "description4"), "brand4", "model4", "bond4", 4f);
+        skiAddingConsumer.accept(List.of(ski1, ski2, ski3, ski4));
+        Rent currentRent4 = new Rent(Util.stringToUUID("test"), getDateForDay(19), getDateForDay(22), null, "model4", "10", "", RentStatus.ACTIVE);
+        Rent futureRent4 = new Rent(Util.stringToUUID("test1"), getDateForDay(26), getDateForDay(27), null, "model4", "10", "", RentStatus.ACTIVE);
+        Rent futureRent2 = new Rent(Util.stringToUUID("test2"), getDateForDay(24), getDateForDay(25), null, "model2", "10", "", RentStatus.ACTIVE);
+        Rent currentRent1 = new Rent(Util.stringToUUID("test3"), getDateForDay(18), getDateForDay(21), null, "model1", "10", "", RentStatus.ACTIVE);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(currentRent4, futureRent4, futureRent2, currentRent1)));
+
+        assertEquals(List.of(ski1, ski4), new ArrayList<>(reportManager.rentedSkis(now)));
+        assertEquals(List.of(ski2, ski3), new ArrayList<>(reportManager.availableSkis(now)));
+        assertEquals(List.of(ski1, ski2, ski4), new ArrayList<>(reportManager.rentedSkis(getDateForDay(24))));
+        assertEquals(List.of(ski3), new ArrayList<>(reportManager.availableSkis(getDateForDay(24))));
+
+        rentManager.removeEntity(currentRent4);
+        rentManager.removeEntity(futureRent2);
+
+        assertEquals(List.of(ski1), new ArrayList<>(reportManager.rentedSkis(now)));
+        assertEquals(List.of(ski2, ski3, ski4), new ArrayList<>(reportManager.availableSkis(now)));
+        assertEquals(List.of(ski1, ski4), new ArrayList<>(reportManager.rentedSkis(getDateForDay(26))));
+    }
+
+    @Test
+    public void givenRentRemovedWhileReportManagerIsCreated_whenReportsAreCalled_thenRemovalIsNotLost() throws Exception {
+        Ski ski = new Ski(new SkiType("name1", "description1"), "brand1", "model1", "bond1", 1f);
+        skiAddingConsumer.accept(List.of(ski));
+        Rent rent = new Rent(Util.stringToUUID("test"), getDateForDay(19), getDateForDay(23), null, "model1", "10", "", RentStatus.ACTIVE);
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(rent)));
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch removed = new CountDownLatch(1);
+        Thread remover = new Thread(() -> {
+            try {
+                rentManager.removeEntity(rent);
+                removed.countDown();
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        });
+        AtomicBoolean removeOnNextSnapshot = new AtomicBoolean(false);
+        rentManager = new RentManager("src/test/java/wit/io/datasources/Rent", now) {
+            @Override
+            public Set<Rent> getEntities() {
+                Set<Rent> entities = super.getEntities();
+                if (removeOnNextSnapshot.getAndSet(false)) {
+                    // the rent is removed after the view got its snapshot, unless the snapshot is taken under a lock
+                    remover.start();
+                    try {
+                        removed.await(500, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return entities;
+            }
+        };
+
+        removeOnNextSnapshot.set(true);
+        reportManager = new ReportManager(rentManager, skiManager);
+        reportManager.setConsistencyCheck(true);
+        remover.join();
+
+        assertEquals(List.of(), errors);
+        assertEquals(List.of(), new ArrayList<>(reportManager.rentedSkis(now)));
+        assertEquals(List.of(ski), new ArrayList<>(reportManager.availableSkis(now)));
+    }
+
+    @Test
+    public void givenCurrentAndFutureBookings_whenAvailableSkisInPeriodCalled_thenReturnSkisWithoutOverlappingBooking() {
+        SkiType alpine = new SkiType("alpine", "description1");
+        SkiType freeride = new SkiType("freeride", "description2");
+        Ski ski1 = new Ski(alpine, "brand1", "model1", "bond1", 1f);
+        Ski ski2 = new Ski(alpine, "brand2", "model2", "bond2", 2f);
+        Ski ski3 = new Ski(freeride, "brand3", "model3", "bond3", 3f);
+        skiAddingConsumer.accept(List.of(ski1, ski2, ski3));
+        dataEntitySetter.accept(new LinkedHashSet<>(List.of(
+                new Rent(Util.stringToUUID("test"), getDateForDay(19), getDateForDay(25), null, "model1", "10", "", RentStatus.ACTIVE),
+                new Rent(Util.stringToUUID("test1"), getDateForDay(27), getDateForDay(29), null, "model2", "10", "", RentStatus.ACTIVE),
+                new Rent(Util.stringToUUID("test2"), getDateForDay(20), getDateForDay(22), null, "model3", "10", "", RentStatus.RETURNED)
+        )));
+
+        assertEquals(Set.of(ski2, ski3), reportManager.availableSkis(getDateForDay(21), getDateForDay(23)));
+        assertEquals(Set.of(ski1, ski2, ski3), reportManager.availableSkis(getDateForDay(26), getDateForDay(26)));
+        assertEquals(Set.of(ski3), reportManager.availableSkis(getDateForDay(25), getDateForDay(27)));
+        assertEquals(Set.of(ski1), reportManager.availableSkis(alpine, getDateForDay(26), getDateForDay(28)));
+        assertEquals(Set.of(ski3), reportManager.availableSkis(freeride, getDateForDay(21), getDateForDay(23)));
+        assertThrows(IllegalArgumentException.class, () -> reportManager.availableSkis(getDateForDay(23), getDateForDay(21)));
+    }
+
     @Test
     public void givenNoSkis_whenRentedSkisIsCalled_thenReturnEmpty()  {
         assertTrue(reportManager.rentedSkis(now).isEmpty());
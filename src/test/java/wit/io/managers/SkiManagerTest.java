@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import wit.io.data.Ski;
 import wit.io.data.SkiType;
 import wit.io.exceptions.*;
+import wit.io.persistence.Mutation;
 import wit.io.utils.Util;
 import java.util.ArrayList;
 import java.util.List;
@@ -121,6 +122,21 @@ public class SkiManagerTest {
         assertEquals(updatedSki, skiManager.getEntitiesList().get(0));
     }
 
+    @Test
+    public void givenEditedAndRemovedSkis_whenGettingSkiByModel_thenReturnCurrentSki() throws SkiAppException {
+        Ski oldSki = new Ski(new SkiType("name1", "description1"), "brand1", "model1", "bond1", 1f);
+        Ski updatedSki = new Ski(new SkiType("name1", "description1"), "brand1", "model2", "bond1", 1f);
+        Ski removedSki = new Ski(new SkiType("name2", "description2"), "brand2", "model3", "bond2", 2f);
+        skiAddingConsumer.accept(List.of(oldSki, removedSki));
+
+        skiManager.editEntity(oldSki, updatedSki);
+        skiManager.removeEntity(removedSki);
+
+        assertNull(skiManager.getSkiByModel("model1"));
+        assertSame(updatedSki, skiManager.getSkiByModel("model2"));
+        assertNull(skiManager.getSkiByModel("model3"));
+    }
+
     @Test
     public void givenExistingSki_whenEditingWithNull_thenThrowsIllegalArgumentExceptionAndNotModify() throws SkiAppException {
         Ski oldSki = new Ski(new SkiType("name1", "description1"), "brand1", "model1", "bond1", 1f);
@@ -296,6 +312,22 @@ public class SkiManagerTest {
         assertEquals(listOfSkis.get(0), results.get(0));
     }
 
+    @Test
+    public void givenEditedSki_whenSearchingByContainedText_thenCurrentValuesAreMatchedIgnoringCase() throws SkiAppException {
+        SkiType type1 = new SkiType("type1", "desc1");
+        Ski edited = new Ski(type1, "Rossignol", "model1", "Marker", 150f);
+        Ski other = new Ski(type1, "Atomic", "model2", "Tyrolia", 160f);
+        skiAddingConsumer.accept(List.of(edited, other));
+
+        Ski afterEdit = new Ski(type1, "Salomon", "model1", "Marker", 150f);
+        skiManager.editEntity(edited, afterEdit);
+
+        assertTrue(skiManager.search(null, "ross", null, null, null, null).isEmpty());
+        assertEquals(List.of(afterEdit), skiManager.search(null, "LOMO", null, null, null, null));
+        assertEquals(List.of(other), skiManager.search(null, "at", "DEL2", "rol", null, null));
+        assertEquals(2, skiManager.search(null, null, "model", null, null, null).size());
+    }
+
     @Test
     public void givenWrongFiltersThatMatchNothing_whenSearching_thenReturnsEmptyArrayList() throws SkiAppException {
         SkiType type1 = new SkiType("type1", "desc1");
@@ -316,5 +348,53 @@ public class SkiManagerTest {
         assertTrue(results.isEmpty());
     }
 
+    @Test
+    public void givenCatalogueOfSkis_whenAddingAll_thenSkisAreAddedAndSaved() throws SkiAppException {
+        SkiType type = new SkiType("type1", "desc1");
+        List<Ski> catalogue = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            catalogue.add(new Ski(type, "brand" + i, "model" + i, "bonds", 150f));
+        }
+
+        skiManager.addAll(catalogue);
+
+        assertEquals(catalogue, skiManager.getEntitiesList());
+        assertEquals(catalogue.get(42), skiManager.getSkiByModel("model42"));
+        assertEquals(100, skiManager.getSkisOfType(type).size());
+        skiManager = new SkiManager("src/test/java/wit/io/datasources/ski");
+        assertEquals(catalogue, skiManager.getEntitiesList());
+    }
+
+    @Test
+    public void givenBatchWithPresentSki_whenAddingAll_thenThrowEntityAlreadyPresentExceptionAndNothingIsAdded() throws SkiAppException {
+        SkiType type = new SkiType("type1", "desc1");
+        Ski present = new Ski(type, "brand1", "model1", "bonds1", 150f);
+        skiManager.addEntity(present);
+
+        assertThrows(EntityAlreadyPresentException.class, () -> skiManager.addAll(List.of(
+                new Ski(type, "brand2", "model2", "bonds2", 150f),
+                new Ski(type, "brand1", "model1", "bonds1", 160f)
+        )));
+        assertEquals(List.of(present), skiManager.getEntitiesList());
+        assertNull(skiManager.getSkiByModel("model2"));
+    }
 
+    @Test
+    public void givenBatchOfMutations_whenApplyingBatch_thenMutationsAreCheckedAgainstEarlierOnes() throws SkiAppException {
+        SkiType type = new SkiType("type1", "desc1");
+        Ski first = new Ski(type, "brand1", "model1", "bonds1", 150f);
+        Ski second = new Ski(type, "brand2", "model2", "bonds2", 150f);
+        skiManager.addEntity(first);
+        Ski edited = new Ski(type, "brand2", "model2", "bonds2", 170f);
+
+        skiManager.applyBatch(List.of(Mutation.add(second), Mutation.replace(second, edited), Mutation.remove(first)));
+
+        assertEquals(List.of(edited), skiManager.getEntitiesList());
+        assertThrows(EntityNotPresentException.class, () -> skiManager.applyBatch(List.of(Mutation.remove(edited), Mutation.remove(edited))));
+        assertThrows(EntityNotPresentException.class, () -> skiManager.removeAll(List.of(edited, first)));
+        assertEquals(List.of(edited), skiManager.getEntitiesList());
+
+        skiManager.removeAll(List.of(edited));
+        assertTrue(skiManager.getEntities().isEmpty());
+    }
 }
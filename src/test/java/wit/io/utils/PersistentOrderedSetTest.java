@@ -0,0 +1,235 @@
+package wit.io.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentOrderedSetTest
+{
+    /**
+     * Element with a chosen hash code, so elements can share all or some bits of their hashes.
+     */
+    private static final class Key {
+        private final int id;
+        private final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + id;
+        }
+    }
+
+    private static <E> void assertSameAs(Set<E> expected, PersistentOrderedSet<E> actual) {
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+        assertEquals(expected.size(), actual.size());
+        for (E element : expected) {
+            assertTrue(actual.contains(element), () -> "missing " + element);
+        }
+    }
+
+    @Test
+    public void givenEmptySet_whenAddingElements_thenTheyAreIteratedInInsertionOrder() {
+        PersistentOrderedSet<String> set = PersistentOrderedSet.<String>empty().with("c").with("a").with("b");
+
+        assertEquals(List.of("c", "a", "b"), new ArrayList<>(set));
+        assertTrue(set.contains("a"));
+        assertFalse(set.contains("d"));
+        assertFalse(set.contains(null));
+    }
+
+    @Test
+    public void givenPresentElement_whenAddingItAgain_thenSameSetIsReturned() {
+        PersistentOrderedSet<String> set = PersistentOrderedSet.<String>empty().with("a").with("b");
+
+        assertSame(set, set.with("a"));
+        assertSame(set, set.without("c"));
+        assertSame(set, set.without(null));
+    }
+
+    @Test
+    public void givenNullElement_whenAddingIt_thenThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> PersistentOrderedSet.empty().with(null));
+        assertThrows(IllegalArgumentException.class, () -> PersistentOrderedSet.copyOf(null));
+        assertThrows(IllegalArgumentException.class, () -> PersistentOrderedSet.copyOf(Arrays.asList("a", null)));
+    }
+
+    @Test
+    public void givenSet_whenChangingIt_thenPreviousSetIsNotChanged() {
+        PersistentOrderedSet<Integer> before = PersistentOrderedSet.empty();
+        for (int i = 0; i < 100; i++) {
+            before = before.with(i);
+        }
+        List<Integer> beforeElements = new ArrayList<>(before);
+
+        PersistentOrderedSet<Integer> after = before.without(50).with(100).without(0);
+
+        assertEquals(beforeElements, new ArrayList<>(before));
+        assertEquals(100, before.size());
+        assertTrue(before.contains(50));
+        assertFalse(after.contains(50));
+        assertEquals(Integer.valueOf(1), after.iterator().next());
+        assertEquals(99, after.size());
+    }
+
+    @Test
+    public void givenRemovedElement_whenAddingItAgain_thenItMovesToTheEnd() {
+        PersistentOrderedSet<String> set = PersistentOrderedSet.copyOf(List.of("a", "b", "c"));
+
+        set = set.without("a").with("a");
+
+        assertEquals(List.of("b", "c", "a"), new ArrayList<>(set));
+    }
+
+    @Test
+    public void givenCollectionWithDuplicates_whenCopying_thenFirstOccurrencesAreKeptInOrder() {
+        List<String> elements = List.of("b", "a", "b", "c", "a");
+
+        PersistentOrderedSet<String> set = PersistentOrderedSet.copyOf(elements);
+
+        assertSameAs(new LinkedHashSet<>(elements), set);
+        assertSame(PersistentOrderedSet.empty(), PersistentOrderedSet.copyOf(List.of()));
+    }
+
+    @Test
+    public void givenElementsWithEqualHashes_whenAddingAndRemovingThem_thenAllRemainingAreFound() {
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(new Key(i, 42));
+        }
+        PersistentOrderedSet<Key> set = PersistentOrderedSet.copyOf(keys);
+        LinkedHashSet<Key> expected = new LinkedHashSet<>(keys);
+        assertSameAs(expected, set);
+        assertFalse(set.contains(new Key(10, 42)));
+
+        for (int i = 0; i < 10; i += 2) {
+            set = set.without(keys.get(i));
+            expected.remove(keys.get(i));
+            assertSameAs(expected, set);
+        }
+        // the last elements of a collision end up alone in their node
+        for (int i = 1; i < 9; i += 2) {
+            set = set.without(keys.get(i));
+            expected.remove(keys.get(i));
+            assertSameAs(expected, set);
+        }
+        set = set.with(keys.get(0)).with(new Key(10, 42));
+        expected.add(keys.get(0));
+        expected.add(new Key(10, 42));
+        assertSameAs(expected, set);
+    }
+
+    @Test
+    public void givenElementsWithHashesSharingLowBits_whenAddingAndRemovingThem_thenAllRemainingAreFound() {
+        // hashes differing only in their highest bits share the first levels of the trie
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            keys.add(new Key(i, (i << 29) | 7));
+            keys.add(new Key(100 + i, (i << 29) | 7));
+        }
+        PersistentOrderedSet<Key> set = PersistentOrderedSet.empty();
+        LinkedHashSet<Key> expected = new LinkedHashSet<>();
+        for (Key key : keys) {
+            set = set.with(key);
+            expected.add(key);
+        }
+        assertSameAs(expected, set);
+
+        for (Key key : keys.subList(0, 12)) {
+            set = set.without(key);
+            expected.remove(key);
+            assertSameAs(expected, set);
+        }
+    }
+
+    @Test
+    public void givenMostElementsRemoved_whenRemovingMore_thenSetIsCompactedAndKeepsItsOrder() {
+        PersistentOrderedSet<Integer> set = PersistentOrderedSet.empty();
+        LinkedHashSet<Integer> expected = new LinkedHashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            set = set.with(i);
+            expected.add(i);
+        }
+
+        // removing every element but a few passes the point where empty slots outnumber the elements
+        for (int i = 0; i < 2000; i++) {
+            if (i % 97 != 0) {
+                PersistentOrderedSet<Integer> before = set;
+                set = set.without(i);
+                expected.remove(i);
+                assertEquals(expected.size(), set.size());
+                assertTrue(before.contains(i));
+            }
+        }
+        assertSameAs(expected, set);
+
+        set = set.with(5000).with(0).without(97);
+        expected.add(5000);
+        expected.remove(97);
+        assertSameAs(expected, set);
+    }
+
+    @Test
+    public void givenEmptiedSet_whenIterating_thenNoElementIsReturned() {
+        PersistentOrderedSet<String> set = PersistentOrderedSet.copyOf(List.of("a", "b")).without("a").without("b");
+
+        assertTrue(set.isEmpty());
+        assertFalse(set.iterator().hasNext());
+        assertThrows(NoSuchElementException.class, () -> set.iterator().next());
+    }
+
+    @Test
+    public void givenRandomChanges_whenIterating_thenOrderMatchesLinkedHashSetWithSameChanges() {
+        Random random = new Random(20250515L);
+        PersistentOrderedSet<Key> set = PersistentOrderedSet.empty();
+        LinkedHashSet<Key> expected = new LinkedHashSet<>();
+        for (int step = 0; step < 20000; step++) {
+            // few distinct hashes, so collisions and shared trie paths are common
+            int id = random.nextInt(3000);
+            Key key = new Key(id, id % 500 * 0x9E3779B1);
+            if (random.nextInt(3) == 0) {
+                set = set.without(key);
+                expected.remove(key);
+            } else {
+                set = set.with(key);
+                expected.add(key);
+            }
+            if (step % 1000 == 0) {
+                assertSameAs(expected, set);
+                assertSameAs(expected, PersistentOrderedSet.copyOf(expected));
+            }
+        }
+        assertSameAs(expected, set);
+
+        // removing nearly everything exercises compaction on a set built by single changes
+        for (Key key : new ArrayList<>(expected)) {
+            if (random.nextInt(10) != 0) {
+                set = set.without(key);
+                expected.remove(key);
+            }
+        }
+        assertSameAs(expected, set);
+    }
+}